@@ -0,0 +1,66 @@
+package com.flippingcopilot.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of decoding a single EXT_INT32 array at the sizes found in graph payloads: a day of 5m predictions,
+ * 6 months of 1h data and 1 month of 5m data. perByte is the previous decoder that assembled each int from four
+ * single byte reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Int32ArrayDecodeBenchmark {
+
+    @Param({"288", "4320", "8640"})
+    public int length;
+
+    @Param({"heap", "direct"})
+    public String bufferType;
+
+    private ByteBuffer payload;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextInt();
+        }
+        byte[] bytes = new MsgPackWriter().int32Array(values).toByteArray();
+        payload = bufferType.equals("direct") ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+        payload.put(bytes).flip();
+    }
+
+    @Benchmark
+    public int[] bulk() {
+        return MsgPackUtil.decodeInt32Array(payload.duplicate());
+    }
+
+    @Benchmark
+    public IntBuffer view() {
+        return MsgPackUtil.decodeInt32ArrayView(payload.duplicate());
+    }
+
+    @Benchmark
+    public int[] perByte() {
+        ByteBuffer b = payload.duplicate();
+        b.get();
+        int arrayLength = b.getInt() / 4;
+        b.get();
+        int[] result = new int[arrayLength];
+        for (int i = 0; i < arrayLength; i++) {
+            result[i] = (b.get() & 0xff) | ((b.get() & 0xff) << 8) |
+                    ((b.get() & 0xff) << 16) | ((b.get() & 0xff) << 24);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package com.flippingcopilot.util;
+
+import com.flippingcopilot.model.Suggestion;
+import com.flippingcopilot.ui.graph.model.Data;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a suggestion with graph data using the symbol table decoder against the previous decoder, which
+ * boxed every value, allocated a String for every key and decoded int32 arrays a byte at a time. Run with
+ * ./gradlew jmh, a payload captured from the server can be benchmarked by passing its path as the payloadFile param,
+ * otherwise a generated payload of the same shape is used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MsgPackDecodeBenchmark {
+
+    @Param("")
+    public String payloadFile;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = payloadFile.isEmpty() ? MsgPackWriter.suggestionPayload(1) : Files.readAllBytes(Paths.get(payloadFile));
+    }
+
+    @Benchmark
+    public Suggestion symbolTable() {
+        return Suggestion.fromMsgPack(ByteBuffer.wrap(payload));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        ByteBuffer b = ByteBuffer.wrap(payload);
+        Integer mapSize = MsgPackUtil.decodeMapSize(b);
+        for (int i = 0; i < mapSize; i++) {
+            String key = (String) MsgPackUtil.decodePrimitive(b);
+            if (key.equals("gd")) {
+                bh.consume(legacyData(b));
+            } else {
+                bh.consume(MsgPackUtil.decodePrimitive(b));
+            }
+        }
+    }
+
+    private static final int EXT_INT32 = 41;
+
+    // the string switch Data.fromMsgPack used before keys were matched against a symbol table
+    private static Data legacyData(ByteBuffer b) {
+        Data d = new Data();
+        Integer mapSize = MsgPackUtil.decodeMapSize(b);
+        for (int i = 0; i < mapSize; i++) {
+            String key = (String) MsgPackUtil.decodePrimitive(b);
+            switch (key) {
+                case "l1ht": d.low1hTimes = legacyInt32Array(b); break;
+                case "l1hp": d.low1hPrices = legacyInt32Array(b); break;
+                case "h1ht": d.high1hTimes = legacyInt32Array(b); break;
+                case "h1hp": d.high1hPrices = legacyInt32Array(b); break;
+                case "l5mt": d.low5mTimes = legacyInt32Array(b); break;
+                case "l5mp": d.low5mPrices = legacyInt32Array(b); break;
+                case "h5mt": d.high5mTimes = legacyInt32Array(b); break;
+                case "h5mp": d.high5mPrices = legacyInt32Array(b); break;
+                case "llt": d.lowLatestTimes = legacyInt32Array(b); break;
+                case "llp": d.lowLatestPrices = legacyInt32Array(b); break;
+                case "hlt": d.highLatestTimes = legacyInt32Array(b); break;
+                case "hlp": d.highLatestPrices = legacyInt32Array(b); break;
+                case "pt": d.predictionTimes = legacyInt32Array(b); break;
+                case "plm": d.predictionLowMeans = legacyInt32Array(b); break;
+                case "pliu": d.predictionLowIQRUpper = legacyInt32Array(b); break;
+                case "plil": d.predictionLowIQRLower = legacyInt32Array(b); break;
+                case "phm": d.predictionHighMeans = legacyInt32Array(b); break;
+                case "phiu": d.predictionHighIQRUpper = legacyInt32Array(b); break;
+                case "phil": d.predictionHighIQRLower = legacyInt32Array(b); break;
+                case "id": d.itemId = (int) (long) MsgPackUtil.decodePrimitive(b); break;
+                case "n": d.name = (String) MsgPackUtil.decodePrimitive(b); break;
+                case "dv": d.dailyVolume = (double) MsgPackUtil.decodePrimitive(b); break;
+                case "sp": d.sellPrice = (long) MsgPackUtil.decodePrimitive(b); break;
+                case "bp": d.buyPrice = (long) MsgPackUtil.decodePrimitive(b); break;
+                default: MsgPackUtil.decodePrimitive(b);
+            }
+        }
+        return d;
+    }
+
+    // the per element decode loop MsgPackUtil.decodeInt32Array used before it read through an IntBuffer view
+    private static int[] legacyInt32Array(ByteBuffer b) {
+        int format = b.get() & 0xFF;
+        if (format == 0xC0) {
+            return null;
+        } else if (format == 0xC9) {
+            int byteLength = b.getInt();
+            int extType = b.get() & 0xFF;
+            if (extType != EXT_INT32) {
+                throw new IllegalArgumentException("Expected extension type " + EXT_INT32 + ", got: " + extType);
+            }
+            int arrayLength = byteLength / 4;
+            int[] result = new int[arrayLength];
+            for (int i = 0; i < arrayLength; i++) {
+                result[i] = (b.get() & 0xff) | ((b.get() & 0xff) << 8) |
+                        ((b.get() & 0xff) << 16) | ((b.get() & 0xff) << 24);
+            }
+            return result;
+        } else {
+            throw new IllegalArgumentException("Expected extension format 0xC9 or nil 0xC0, got: " + format);
+        }
+    }
+}
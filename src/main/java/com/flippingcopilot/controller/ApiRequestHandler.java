@@ -2,10 +2,11 @@ package com.flippingcopilot.controller;
 
 import com.flippingcopilot.model.*;
 import com.flippingcopilot.ui.graph.model.Data;
+import com.flippingcopilot.util.MsgPackStreamReader;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import com.google.inject.Singleton;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.callback.ClientThread;
 import okhttp3.*;
@@ -25,10 +26,9 @@ import java.util.function.Consumer;
 
 @Slf4j
 @Singleton
-@RequiredArgsConstructor(onConstructor_ = @Inject)
 public class ApiRequestHandler {
 
-    private static final String serverUrl = System.getenv("FLIPPING_COPILOT_HOST") != null ? System.getenv("FLIPPING_COPILOT_HOST")  : "https://api.flippingcopilot.com";
+    private static final String DEFAULT_SERVER_URL = System.getenv("FLIPPING_COPILOT_HOST") != null ? System.getenv("FLIPPING_COPILOT_HOST")  : "https://api.flippingcopilot.com";
     public static final String DEFAULT_COPILOT_PRICE_ERROR_MESSAGE = "Unable to fetch price copilot price (possible server update)";
     public static final String DEFAULT_PREMIUM_INSTANCE_ERROR_MESSAGE = "Error loading premium instance data (possible server update)";
 
@@ -39,10 +39,25 @@ public class ApiRequestHandler {
     private final LoginResponseManager loginResponseManager;
     private final SuggestionPreferencesManager preferencesManager;
     private final ClientThread clientThread;
+    private final String serverUrl;
 
     // state
     private Instant lastDebugMessageSent = Instant.now();
 
+    @Inject
+    public ApiRequestHandler(OkHttpClient client, Gson gson, LoginResponseManager loginResponseManager, SuggestionPreferencesManager preferencesManager, ClientThread clientThread) {
+        this(client, gson, loginResponseManager, preferencesManager, clientThread, DEFAULT_SERVER_URL);
+    }
+
+    public ApiRequestHandler(OkHttpClient client, Gson gson, LoginResponseManager loginResponseManager, SuggestionPreferencesManager preferencesManager, ClientThread clientThread, String serverUrl) {
+        this.client = client;
+        this.gson = gson;
+        this.loginResponseManager = loginResponseManager;
+        this.preferencesManager = preferencesManager;
+        this.clientThread = clientThread;
+        this.serverUrl = serverUrl;
+    }
+
 
     public void authenticate(String username, String password, Runnable callback) {
         Request request = new Request.Builder()
@@ -138,33 +153,40 @@ public class ApiRequestHandler {
                 s = Suggestion.fromMsgPack(ByteBuffer.wrap(suggestionBytes));
                 log.debug("suggestion received");
                 clientThread.invoke(() -> suggestionConsumer.accept(s));
+                if (s != null) {
+                    d.itemId = s.getItemId();
+                    d.name = s.getName();
+                    d.fromWaitSuggestion = "wait".equals(s.getType());
+                }
 
                 if (graphDataContentLength == 0) {
                     d.loadingErrorMessage = "No graph data loaded for this item.";
                 } else {
+                    // the graph data is decoded as it streams in, the partial data is passed on as each of the
+                    // series completes so the graph can be drawn while the rest of it is still loading
+                    MsgPackStreamReader reader = new MsgPackStreamReader(is);
                     try {
-                        byte[] remainingBytes = is.readAllBytes();
-                        if (graphDataContentLength != remainingBytes.length) {
-                            log.error("the graph data bytes read {} doesn't match the expected bytes {}", bytesRead, graphDataContentLength);
+                        Data decoded = Data.fromMsgPack(reader, d, (partial) -> {
+                            log.debug("partial graph data received");
+                            clientThread.invoke(() -> graphDataConsumer.accept(partial));
+                        });
+                        if (reader.getBytesRead() != graphDataContentLength) {
+                            log.error("the graph data bytes read {} doesn't match the expected bytes {}", reader.getBytesRead(), graphDataContentLength);
                             d.loadingErrorMessage = "There was an issue loading the graph data for this item.";
+                        } else if (decoded == null) {
+                            d.loadingErrorMessage = "No graph data loaded for this item.";
                         } else {
-                            try {
-                                d = Data.fromMsgPack(ByteBuffer.wrap(remainingBytes));
-                                log.debug("graph data received");
-                            } catch (Exception e) {
-                                log.error("error deserializing graph data", e);
-                                d.loadingErrorMessage = "There was an issue loading the graph data for this item.";
-                            }
+                            log.debug("graph data received");
                         }
                     } catch (IOException e) {
                         log.error("error on reading graph data bytes from the suggestion response", e);
                         d.loadingErrorMessage = "There was an issue loading the graph data for this item.";
+                    } catch (Exception e) {
+                        log.error("error deserializing graph data", e);
+                        d.loadingErrorMessage = "There was an issue loading the graph data for this item.";
                     }
                 }
             }
-            if (s != null && "wait".equals(s.getType())){
-                d.fromWaitSuggestion = true;
-            }
             Data finalD = d;
             clientThread.invoke(() -> graphDataConsumer.accept(finalD));
         } else {
@@ -250,7 +272,7 @@ public class ApiRequestHandler {
         return "Unknown Error";
     }
 
-    public void asyncGetItemPriceWithGraphData(int itemId, String displayName, Consumer<ItemPrice> consumer, boolean includeGraphData) {
+    public Call asyncGetItemPriceWithGraphData(int itemId, String displayName, Consumer<ItemPrice> consumer, boolean includeGraphData) {
         JsonObject body = new JsonObject();
         body.add("item_id", new JsonPrimitive(itemId));
         body.add("display_name", new JsonPrimitive(displayName));
@@ -265,14 +287,18 @@ public class ApiRequestHandler {
                 .post(RequestBody.create(MediaType.get("application/json; charset=utf-8"), body.toString()))
                 .build();
 
-        client.newBuilder()
+        Call call = client.newBuilder()
                 .callTimeout(30, TimeUnit.SECONDS) // Overall timeout
                 .build()
-                .newCall(request)
-                .enqueue(new Callback() {
+                .newCall(request);
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                log.error("error fetching copilot price for item {}", itemId, e);
+                if (call.isCanceled()) {
+                    log.debug("fetching copilot price for item {} was cancelled", itemId);
+                } else {
+                    log.error("error fetching copilot price for item {}", itemId, e);
+                }
                 ItemPrice ip = new ItemPrice(0, 0, DEFAULT_COPILOT_PRICE_ERROR_MESSAGE, null);
                 clientThread.invoke(() -> consumer.accept(ip));
             }
@@ -290,12 +316,17 @@ public class ApiRequestHandler {
                         clientThread.invoke(() -> consumer.accept(ip));
                     }
                 } catch (Exception e) {
-                    log.error("error fetching copilot price for item {}", itemId, e);
+                    if (call.isCanceled()) {
+                        log.debug("fetching copilot price for item {} was cancelled", itemId);
+                    } else {
+                        log.error("error fetching copilot price for item {}", itemId, e);
+                    }
                     ItemPrice ip = new ItemPrice(0, 0, DEFAULT_COPILOT_PRICE_ERROR_MESSAGE, null);
                     clientThread.invoke(() -> consumer.accept(ip));
                 }
             }
         });
+        return call;
     }
 
 
@@ -389,10 +420,52 @@ public class ApiRequestHandler {
         return names == null ? new HashMap<>() : names;
     }
 
-    public List<FlipV2> LoadFlips() throws HttpResponseException {
-        Type respType = new TypeToken<List<FlipV2>>(){}.getType();
-        List<FlipV2> flips = doHttpRequest("GET", null, "/profit-tracking/client-flips", respType);
-        return flips == null ? new ArrayList<>() : flips;
+    public int LoadFlips(int changedSince, int chunkSize, Consumer<List<FlipV2>> chunkConsumer) throws HttpResponseException {
+        // A user's full flip history can be tens of MBs of json. Rather than buffering the body into a string and
+        // decoding one giant list we stream the array and hand the flips over in chunks as they are decoded.
+        String jwtToken = loginResponseManager.getJwtToken();
+        if (jwtToken == null) {
+            throw new IllegalStateException("Not authenticated");
+        }
+        String route = "/profit-tracking/client-flips" + (changedSince > 0 ? "?changed_since=" + changedSince : "");
+        Request request = new Request.Builder()
+                .url(serverUrl + route)
+                .addHeader("Authorization", "Bearer " + jwtToken)
+                .get()
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new HttpResponseException(response.code(), extractErrorMessage(response));
+            }
+            if (response.body() == null) {
+                return 0;
+            }
+            TypeAdapter<FlipV2> adapter = gson.getAdapter(FlipV2.class);
+            int total = 0;
+            try (JsonReader reader = new JsonReader(response.body().charStream())) {
+                reader.beginArray();
+                List<FlipV2> chunk = new ArrayList<>(chunkSize);
+                while (reader.hasNext()) {
+                    chunk.add(adapter.read(reader));
+                    if (chunk.size() == chunkSize) {
+                        total += chunk.size();
+                        chunkConsumer.accept(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                reader.endArray();
+                if (!chunk.isEmpty()) {
+                    total += chunk.size();
+                    chunkConsumer.accept(chunk);
+                }
+            }
+            return total;
+        } catch (HttpResponseException e) {
+            throw e;
+        } catch (JsonParseException | IllegalStateException | IOException e) {
+            throw new HttpResponseException(-1, "Unknown server error (possible system update)", e);
+        }
     }
 
     public <T> T doHttpRequest(String method, JsonElement bodyJson, String route, Type responseType) throws HttpResponseException {
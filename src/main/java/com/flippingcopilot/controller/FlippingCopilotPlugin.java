@@ -2,6 +2,7 @@ package com.flippingcopilot.controller;
 
 import com.flippingcopilot.model.*;
 import com.flippingcopilot.ui.*;
+import com.flippingcopilot.ui.graph.GraphDataPrefetcher;
 import com.google.gson.Gson;
 import com.google.inject.Provides;
 import lombok.extern.slf4j.Slf4j;
@@ -86,6 +87,8 @@ public class FlippingCopilotPlugin extends Plugin {
 	private OfferManager offerManager;
 	@Inject
 	private TooltipController tooltipController;
+	@Inject
+	private GraphDataPrefetcher graphDataPrefetcher;
   @Inject
 	private MenuHandler menuHandler;
   
@@ -174,6 +177,7 @@ public class FlippingCopilotPlugin extends Plugin {
 	public void onGameTick(GameTick event) {
 		suggestionController.onGameTick();
 		offerEventHandler.onGameTick();
+		graphDataPrefetcher.onGameTick();
 	}
 
 	@Subscribe
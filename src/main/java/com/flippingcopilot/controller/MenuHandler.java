@@ -1,6 +1,7 @@
 package com.flippingcopilot.controller;
 
 import com.flippingcopilot.model.OfferManager;
+import com.flippingcopilot.ui.graph.PriceComparisonController;
 import com.flippingcopilot.ui.graph.PriceGraphController;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +11,8 @@ import net.runelite.api.widgets.Widget;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @Singleton
@@ -20,6 +23,7 @@ public class MenuHandler {
     private final Client client;
     private final OfferManager offerManager;
     private final PriceGraphController priceGraphController;
+    private final PriceComparisonController priceComparisonController;
 
 
     public void injectCopilotPriceGraphMenuEntry(MenuEntryAdded event) {
@@ -43,6 +47,19 @@ public class MenuHandler {
                             }
                         }
                     });
+            client.getMenu()
+                    .createMenuEntry(-1)
+                    .setOption("Copilot compare offers")
+                    .onClick((MenuEntry e) -> {
+                        List<Integer> itemIds = new ArrayList<>();
+                        for (GrandExchangeOffer offer : client.getGrandExchangeOffers()) {
+                            if (offer != null && offer.getItemId() > 0 && !itemIds.contains(offer.getItemId())) {
+                                itemIds.add(offer.getItemId());
+                            }
+                        }
+                        log.debug("comparing the price graphs of items {}", itemIds);
+                        priceComparisonController.loadAndShowComparison(itemIds);
+                    });
         }
     }
 
@@ -2,19 +2,12 @@ package com.flippingcopilot.controller;
 
 import com.flippingcopilot.model.LoginResponse;
 import com.flippingcopilot.model.SessionData;
-import com.flippingcopilot.model.Transaction;
 import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
-import com.google.gson.JsonSyntaxException;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.RuneLite;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -23,7 +16,6 @@ import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
-import java.util.*;
 
 @Slf4j
 public class Persistance {
@@ -100,54 +92,9 @@ public class Persistance {
     }
 
 
-    public static List<Transaction> loadUnAckedTransactions(String displayName) {
-        List<Transaction> transactions = new ArrayList<>();
-        File file = new File(PARENT_DIRECTORY, String.format(UN_ACKED_TRANSACTIONS_FILE_TEMPLATE, hashDisplayName(displayName)));
-        if (!file.exists()) {
-            log.info("no existing un acked transactions file for {}", displayName);
-            return new ArrayList<>();
-        }
-        Set<UUID> added = new HashSet<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isEmpty()) {
-                    continue;
-                }
-                try {
-                    Transaction transaction = gson.fromJson(line, Transaction.class);
-                    // there was previously a bug where the same transaction was being added many times to the list
-                    // just clean things here to be safe
-                    if (!added.contains(transaction.getId())) {
-                        transactions.add(transaction);
-                        added.add(transaction.getId());
-                    }
-                } catch (JsonSyntaxException e) {
-                    log.warn("error deserializing transaction line '{}' file {}", line, file, e);
-                }
-            }
-        } catch (FileNotFoundException e) {
-            log.info("no existing un acked transactions file for {}", displayName);
-            return new ArrayList<>();
-        } catch (IOException e) {
-            log.warn("error loading un acked transaction file {}", file, e);
-            return new ArrayList<>();
-        }
-        log.info("loaded {} stored transactions for {}", transactions.size(), displayName);
-        return transactions;
-    }
-
-    public static void storeUnAckedTransactions(List<Transaction> transactions, String displayName) {
-        File unackedTransactionsFile = new File(PARENT_DIRECTORY, String.format(UN_ACKED_TRANSACTIONS_FILE_TEMPLATE, hashDisplayName(displayName)));
-        try (BufferedWriter w = new BufferedWriter(new FileWriter(unackedTransactionsFile, false))) {
-            for (Transaction transaction : transactions) {
-                String json = gson.toJson(transaction);
-                w.write(json);
-                w.newLine();
-            }
-        } catch (IOException e) {
-            log.warn("error storing un acked transactions to file {}", unackedTransactionsFile, e);
-        }
+    public static TransactionLog openUnAckedTransactionLog(String displayName) {
+        File file = new File(directory, String.format(UN_ACKED_TRANSACTIONS_FILE_TEMPLATE, hashDisplayName(displayName)));
+        return new TransactionLog(file, gson);
     }
 
     public static String hashDisplayName(String displayName) {
@@ -2,6 +2,7 @@ package com.flippingcopilot.controller;
 
 import com.flippingcopilot.model.*;
 import com.flippingcopilot.ui.*;
+import com.flippingcopilot.ui.graph.GraphDataPrefetcher;
 import com.flippingcopilot.ui.graph.PriceGraphController;
 import com.flippingcopilot.ui.graph.model.Data;
 import com.google.gson.Gson;
@@ -45,6 +46,7 @@ public class SuggestionController {
     private final AccountStatusManager accountStatusManager;
     private final GrandExchangeUncollectedManager uncollectedManager;
     private final PriceGraphController graphPriceGraphController;
+    private final GraphDataPrefetcher graphDataPrefetcher;
 
     private MainPanel mainPanel;
     private LoginPanel loginPanel;
@@ -114,6 +116,8 @@ public class SuggestionController {
         }
         suggestionManager.setSuggestionRequestInProgress(true);
         suggestionManager.setGraphDataReadingInProgress(true);
+        // the suggestion takes priority over any graph data being prefetched
+        graphDataPrefetcher.cancelAll();
         Suggestion oldSuggestion = suggestionManager.getSuggestion();
         Consumer<Suggestion> suggestionConsumer = (newSuggestion) -> {
             suggestionManager.setSuggestion(newSuggestion);
@@ -0,0 +1,200 @@
+package com.flippingcopilot.controller;
+
+import com.flippingcopilot.model.Transaction;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the un-acked transactions for one display name. Each GE fill appends a single record and each
+ * ack appends a tombstone, so the cost of persisting a transaction no longer grows with the number of transactions
+ * waiting to be sent. Records are lines of the form "T <crc32> <transaction json>" or "A <crc32> <transaction id>",
+ * a line that fails its checksum (e.g. a torn write from a crash) is skipped. Once enough of the log is dead records
+ * it is compacted by rewriting just the live transactions to a new file.
+ * Lines starting with '{' are the plain json lines of the previous file format and are read as transactions.
+ */
+@Slf4j
+public class TransactionLog {
+
+    private static final int MIN_RECORDS_TO_COMPACT = 200;
+
+    private final File file;
+    private final Gson gson;
+
+    // live records keyed by transaction id in the order they were added, we keep the serialized line so
+    // compaction doesn't need to re-serialize anything
+    private final LinkedHashMap<UUID, String> liveLines = new LinkedHashMap<>();
+    private int deadRecords;
+    private boolean rewriteRequired;
+    // set when an append fails, it may have left a partial line that the next append mustn't be joined onto
+    private boolean needsNewline;
+
+    public TransactionLog(File file, Gson gson) {
+        this.file = file;
+        this.gson = gson;
+    }
+
+    /**
+     * Replays the log, returning the live (un-acked) transactions de-duplicated by id in the order they were added.
+     */
+    public synchronized List<Transaction> load() {
+        liveLines.clear();
+        deadRecords = 0;
+        rewriteRequired = false;
+        Map<UUID, Transaction> transactions = new LinkedHashMap<>();
+        if (!file.exists()) {
+            log.info("no existing un acked transactions file {}", file);
+            return new ArrayList<>();
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.charAt(0) == '{') {
+                    rewriteRequired = true;
+                    replayTransaction(line, line, transactions);
+                    continue;
+                }
+                String payload = verifiedPayload(line);
+                if (payload == null) {
+                    log.warn("skipping corrupt un acked transactions record '{}' file {}", line, file);
+                    rewriteRequired = true;
+                } else if (line.charAt(0) == 'T') {
+                    replayTransaction(line, payload, transactions);
+                } else {
+                    UUID id;
+                    try {
+                        id = UUID.fromString(payload);
+                    } catch (IllegalArgumentException e) {
+                        log.warn("skipping un acked transactions record with invalid id '{}' file {}", line, file);
+                        rewriteRequired = true;
+                        continue;
+                    }
+                    transactions.remove(id);
+                    liveLines.remove(id);
+                    deadRecords += 2;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("error loading un acked transaction file {}", file, e);
+            rewriteRequired = true;
+        }
+        if (rewriteRequired) {
+            // get rid of any legacy or torn records now so the appends that follow start on a clean line
+            compact();
+        }
+        log.info("loaded {} stored transactions from {}", transactions.size(), file);
+        return new ArrayList<>(transactions.values());
+    }
+
+    public synchronized void append(Transaction transaction) {
+        String line = record('T', gson.toJson(transaction));
+        if (liveLines.putIfAbsent(transaction.getId(), line) == null) {
+            write(line);
+        }
+    }
+
+    public synchronized void ack(Collection<Transaction> acked) {
+        StringBuilder lines = new StringBuilder();
+        for (Transaction t : acked) {
+            if (liveLines.remove(t.getId()) != null) {
+                lines.append(record('A', t.getId().toString())).append('\n');
+                deadRecords += 2;
+            }
+        }
+        if (lines.length() > 0) {
+            write(lines.substring(0, lines.length() - 1));
+        }
+    }
+
+    public synchronized boolean needsCompaction() {
+        return deadRecords >= MIN_RECORDS_TO_COMPACT && deadRecords > liveLines.size();
+    }
+
+    /**
+     * Rewrites the log with only the live records. The new log is written to a temporary file and moved over the
+     * existing one so a crash during compaction leaves either the old or the new log intact.
+     */
+    public synchronized void compact() {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp, false), StandardCharsets.UTF_8))) {
+            for (String line : liveLines.values()) {
+                w.write(line);
+                w.newLine();
+            }
+        } catch (IOException e) {
+            log.warn("error compacting un acked transactions file {}", file, e);
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("compacted un acked transactions file {} removing {} dead records", file, deadRecords);
+            deadRecords = 0;
+            rewriteRequired = false;
+            needsNewline = false;
+        } catch (IOException e) {
+            log.warn("error replacing un acked transactions file {}", file, e);
+        }
+    }
+
+    private void replayTransaction(String line, String json, Map<UUID, Transaction> transactions) {
+        try {
+            Transaction transaction = gson.fromJson(json, Transaction.class);
+            // there was previously a bug where the same transaction was being added many times to the list
+            // just clean things here to be safe
+            if (transactions.putIfAbsent(transaction.getId(), transaction) == null) {
+                liveLines.put(transaction.getId(), line.charAt(0) == '{' ? record('T', json) : line);
+            } else {
+                deadRecords++;
+            }
+        } catch (JsonSyntaxException e) {
+            log.warn("error deserializing transaction line '{}' file {}", line, file, e);
+            rewriteRequired = true;
+        }
+    }
+
+    private void write(String lines) {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            if (needsNewline) {
+                // terminate whatever a failed append left behind so only that record fails its checksum
+                w.write('\n');
+            }
+            needsNewline = true;
+            w.write(lines);
+            w.write('\n');
+            w.flush();
+            needsNewline = false;
+        } catch (IOException e) {
+            log.warn("error appending to un acked transactions file {}", file, e);
+        }
+    }
+
+    static String record(char type, String payload) {
+        return type + " " + crcHex(type, payload) + " " + payload;
+    }
+
+    private static String verifiedPayload(String line) {
+        int second = line.indexOf(' ', 2);
+        if (line.length() < 3 || line.charAt(1) != ' ' || second < 0 || (line.charAt(0) != 'T' && line.charAt(0) != 'A')) {
+            return null;
+        }
+        String payload = line.substring(second + 1);
+        return line.substring(2, second).equals(crcHex(line.charAt(0), payload)) ? payload : null;
+    }
+
+    private static String crcHex(char type, String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+}
@@ -0,0 +1,298 @@
+package com.flippingcopilot.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Struct-of-arrays storage for the flips of one account within one week bucket. Holding several hundred thousand
+ * FlipV2 objects (each with a UUID and its own item name string) costs a lot of heap, so instead every field is kept
+ * in a primitive column and strings are interned into a shared {@link StringTable}. Rows are sorted by closed time
+ * ascending with the flip id as tie-breaker. FlipV2 objects are only created when a row is read back out with
+ * {@link #get(int)}, which in practice means when a page of flips is displayed.
+ * Running totals of profit, spent and tax are kept alongside the rows so the stats of any range of rows come from two
+ * lookups rather than a scan. Keeping them up to date costs no more than the row shifting an insert already does.
+ * Once published to readers (see FlipManager) the columns are never written to again, a writer works on a
+ * {@link #copy()} instead.
+ */
+class FlipColumns {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int accountId;
+    private final StringTable strings;
+
+    boolean published;
+    int size;
+    int[] closedTime = new int[INITIAL_CAPACITY];
+    long[] idMsb = new long[INITIAL_CAPACITY];
+    long[] idLsb = new long[INITIAL_CAPACITY];
+    int[] itemId = new int[INITIAL_CAPACITY];
+    int[] itemName = new int[INITIAL_CAPACITY];
+    int[] accountDisplayName = new int[INITIAL_CAPACITY];
+    int[] openedTime = new int[INITIAL_CAPACITY];
+    int[] openedQuantity = new int[INITIAL_CAPACITY];
+    int[] closedQuantity = new int[INITIAL_CAPACITY];
+    long[] spent = new long[INITIAL_CAPACITY];
+    long[] receivedPostTax = new long[INITIAL_CAPACITY];
+    long[] profit = new long[INITIAL_CAPACITY];
+    long[] taxPaid = new long[INITIAL_CAPACITY];
+    boolean[] closed = new boolean[INITIAL_CAPACITY];
+    // the totals of the rows before each index, so one longer than the other columns
+    long[] profitBefore = new long[INITIAL_CAPACITY + 1];
+    long[] spentBefore = new long[INITIAL_CAPACITY + 1];
+    long[] taxPaidBefore = new long[INITIAL_CAPACITY + 1];
+
+    FlipColumns(int accountId, StringTable strings) {
+        this.accountId = accountId;
+        this.strings = strings;
+    }
+
+    FlipColumns copy() {
+        FlipColumns c = new FlipColumns(accountId, strings);
+        c.size = size;
+        c.closedTime = closedTime.clone();
+        c.idMsb = idMsb.clone();
+        c.idLsb = idLsb.clone();
+        c.itemId = itemId.clone();
+        c.itemName = itemName.clone();
+        c.accountDisplayName = accountDisplayName.clone();
+        c.openedTime = openedTime.clone();
+        c.openedQuantity = openedQuantity.clone();
+        c.closedQuantity = closedQuantity.clone();
+        c.spent = spent.clone();
+        c.receivedPostTax = receivedPostTax.clone();
+        c.profit = profit.clone();
+        c.taxPaid = taxPaid.clone();
+        c.closed = closed.clone();
+        c.profitBefore = profitBefore.clone();
+        c.spentBefore = spentBefore.clone();
+        c.taxPaidBefore = taxPaidBefore.clone();
+        return c;
+    }
+
+    void insert(FlipV2 f) {
+        UUID id = f.getId();
+        int i = search(f.getClosedTime(), id.getMostSignificantBits(), id.getLeastSignificantBits());
+        if (i >= 0) {
+            // same flip already present, just overwrite the row
+            write(i, f);
+            updateTotals(i);
+            return;
+        }
+        i = -i - 1;
+        ensureCapacity(size + 1);
+        shift(i, i + 1, size - i);
+        size++;
+        write(i, f);
+        updateTotals(i);
+    }
+
+    /**
+     * Removes the row for the given flip id and closed time, returning the removed flip or null if it isn't present.
+     */
+    FlipV2 remove(UUID id, int time) {
+        int i = search(time, id.getMostSignificantBits(), id.getLeastSignificantBits());
+        if (i < 0) {
+            return null;
+        }
+        FlipV2 removed = get(i);
+        shift(i + 1, i, size - i - 1);
+        size--;
+        updateTotals(i);
+        return removed;
+    }
+
+    /**
+     * Returns the index of the first row with a closed time strictly after the given time.
+     */
+    int indexAfter(int time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (closedTime[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    void addStats(Stats stats, int from, int to) {
+        stats.profit += profitBefore[to] - profitBefore[from];
+        stats.gross += spentBefore[to] - spentBefore[from];
+        stats.taxPaid += taxPaidBefore[to] - taxPaidBefore[from];
+        stats.flipsMade += to - from;
+    }
+
+    void addItemStats(Map<Integer, ItemStats> out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            ItemStats s = out.get(itemId[i]);
+            if (s == null) {
+                s = new ItemStats(itemId[i], strings.get(itemName[i]));
+                out.put(itemId[i], s);
+            }
+            s.addFlip(profit[i], spent[i], taxPaid[i], openedTime[i], closedTime[i]);
+        }
+    }
+
+    /**
+     * Compares row i to row j of another column set on (closed time, id).
+     */
+    int compareRows(int i, FlipColumns other, int j) {
+        int c = Integer.compare(closedTime[i], other.closedTime[j]);
+        if (c != 0) {
+            return c;
+        }
+        c = Long.compare(idMsb[i], other.idMsb[j]);
+        return c != 0 ? c : Long.compare(idLsb[i], other.idLsb[j]);
+    }
+
+    FlipV2 get(int i) {
+        FlipV2 f = new FlipV2();
+        f.setId(new UUID(idMsb[i], idLsb[i]));
+        f.setAccountId(accountId);
+        f.setItemId(itemId[i]);
+        f.setItemName(strings.get(itemName[i]));
+        f.setOpenedTime(openedTime[i]);
+        f.setOpenedQuantity(openedQuantity[i]);
+        f.setSpent(spent[i]);
+        f.setClosedTime(closedTime[i]);
+        f.setClosedQuantity(closedQuantity[i]);
+        f.setReceivedPostTax(receivedPostTax[i]);
+        f.setProfit(profit[i]);
+        f.setTaxPaid(taxPaid[i]);
+        f.setClosed(closed[i]);
+        f.setAccountDisplayName(strings.get(accountDisplayName[i]));
+        return f;
+    }
+
+    private void write(int i, FlipV2 f) {
+        closedTime[i] = f.getClosedTime();
+        idMsb[i] = f.getId().getMostSignificantBits();
+        idLsb[i] = f.getId().getLeastSignificantBits();
+        itemId[i] = f.getItemId();
+        itemName[i] = strings.intern(f.getItemName());
+        accountDisplayName[i] = strings.intern(f.getAccountDisplayName());
+        openedTime[i] = f.getOpenedTime();
+        openedQuantity[i] = f.getOpenedQuantity();
+        closedQuantity[i] = f.getClosedQuantity();
+        spent[i] = f.getSpent();
+        receivedPostTax[i] = f.getReceivedPostTax();
+        profit[i] = f.getProfit();
+        taxPaid[i] = f.getTaxPaid();
+        closed[i] = f.isClosed();
+    }
+
+    private void updateTotals(int from) {
+        for (int i = from; i < size; i++) {
+            profitBefore[i + 1] = profitBefore[i] + profit[i];
+            spentBefore[i + 1] = spentBefore[i] + spent[i];
+            taxPaidBefore[i + 1] = taxPaidBefore[i] + taxPaid[i];
+        }
+    }
+
+    private int search(int time, long msb, long lsb) {
+        // note: the id ordering matches UUID.compareTo
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = Integer.compare(closedTime[mid], time);
+            if (c == 0) {
+                c = Long.compare(idMsb[mid], msb);
+            }
+            if (c == 0) {
+                c = Long.compare(idLsb[mid], lsb);
+            }
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void shift(int from, int to, int n) {
+        if (n <= 0) {
+            return;
+        }
+        System.arraycopy(closedTime, from, closedTime, to, n);
+        System.arraycopy(idMsb, from, idMsb, to, n);
+        System.arraycopy(idLsb, from, idLsb, to, n);
+        System.arraycopy(itemId, from, itemId, to, n);
+        System.arraycopy(itemName, from, itemName, to, n);
+        System.arraycopy(accountDisplayName, from, accountDisplayName, to, n);
+        System.arraycopy(openedTime, from, openedTime, to, n);
+        System.arraycopy(openedQuantity, from, openedQuantity, to, n);
+        System.arraycopy(closedQuantity, from, closedQuantity, to, n);
+        System.arraycopy(spent, from, spent, to, n);
+        System.arraycopy(receivedPostTax, from, receivedPostTax, to, n);
+        System.arraycopy(profit, from, profit, to, n);
+        System.arraycopy(taxPaid, from, taxPaid, to, n);
+        System.arraycopy(closed, from, closed, to, n);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= closedTime.length) {
+            return;
+        }
+        int n = Math.max(required, closedTime.length + (closedTime.length >> 1));
+        closedTime = Arrays.copyOf(closedTime, n);
+        idMsb = Arrays.copyOf(idMsb, n);
+        idLsb = Arrays.copyOf(idLsb, n);
+        itemId = Arrays.copyOf(itemId, n);
+        itemName = Arrays.copyOf(itemName, n);
+        accountDisplayName = Arrays.copyOf(accountDisplayName, n);
+        openedTime = Arrays.copyOf(openedTime, n);
+        openedQuantity = Arrays.copyOf(openedQuantity, n);
+        closedQuantity = Arrays.copyOf(closedQuantity, n);
+        spent = Arrays.copyOf(spent, n);
+        receivedPostTax = Arrays.copyOf(receivedPostTax, n);
+        profit = Arrays.copyOf(profit, n);
+        taxPaid = Arrays.copyOf(taxPaid, n);
+        closed = Arrays.copyOf(closed, n);
+        profitBefore = Arrays.copyOf(profitBefore, n + 1);
+        spentBefore = Arrays.copyOf(spentBefore, n + 1);
+        taxPaidBefore = Arrays.copyOf(taxPaidBefore, n + 1);
+    }
+
+    /**
+     * Interns strings to int indexes so each distinct item name is held once regardless of the number of flips.
+     * Index -1 represents null. Only one thread interns at a time but any thread may get, a value is never moved or
+     * removed once added and the array is replaced rather than resized in place, so readers need no lock.
+     */
+    static class StringTable {
+
+        private volatile String[] values = new String[64];
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        int intern(String s) {
+            if (s == null) {
+                return -1;
+            }
+            Integer i = indexes.get(s);
+            if (i == null) {
+                i = indexes.size();
+                String[] v = values;
+                if (i == v.length) {
+                    v = Arrays.copyOf(v, v.length * 2);
+                }
+                v[i] = s;
+                values = v;
+                indexes.put(s, i);
+            }
+            return i;
+        }
+
+        String get(int i) {
+            return i < 0 ? null : values[i];
+        }
+    }
+}
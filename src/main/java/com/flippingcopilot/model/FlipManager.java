@@ -1,6 +1,8 @@
 package com.flippingcopilot.model;
 
 import com.flippingcopilot.controller.ApiRequestHandler;
+import com.flippingcopilot.controller.Persistance;
+import com.flippingcopilot.util.UUIDIntMap;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -8,20 +10,41 @@ import okhttp3.OkHttpClient;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class is essentially a cache of user flips that facilitates efficient access to the flips and statistics for
  * any time range and rs account(s) combination. Since after several years a (very) active user could have hundreds of
  * thousands of flips, it would be too slow to filter and re-calculate flips/statistics from scratch every time.
- * A bucketed aggregation strategy is used where we keep pre-computed weekly buckets of statistics and flips. For any
- * time range we can efficiently combine the weekly buckets and only have to re-calculate statistics for the partial
- * weeks on the boundaries of the time range. Have tested the UI experience with >100k flips.
+ * A bucketed aggregation strategy is used where we keep pre-computed weekly buckets of statistics and flips. Each
+ * published view also holds the running totals of the weeks up to every week, and the flip columns within a week
+ * hold running totals of their rows, so the stats from any start time (an hour ago or all time) take two binary
+ * searches and a handful of additions. Have tested the UI experience with >100k flips.
+ * The weeks also hold per item stats for each account, and all time per item totals are kept alongside them, so the
+ * item stats for any interval are either summed from the weeks after its start or, when there are fewer weeks before
+ * the start, taken off the totals. Either way only one week's flips are looked at individually.
+ * Within each week the flips are held column-wise (see {@link FlipColumns}) rather than as FlipV2 objects, this keeps
+ * the heap footprint of a large history small and the stats scans tight loops over primitive arrays.
+ * The history is also persisted to a local snapshot (see {@link FlipSnapshot}) so on startup we only need to download
+ * the flips that have changed since the snapshot was taken.
+ * <p>
+ * Readers never take a lock. Writers are serialised on this instance and, once a batch of changes has been merged,
+ * publish an immutable {@link View} with a single volatile write. A week bucket (and each account's columns within it)
+ * is copied the first time a writer touches it after it has been published, so the weeks a reader holds never change
+ * under it. This means the client thread looking up the last open flip, or the EDT paging through flips, is never
+ * stalled behind the merge of a large download. The selected interval isn't part of the view, it's applied as the
+ * flips are read so changing it doesn't take the lock either.
  */
 @Slf4j
 @Singleton
@@ -29,6 +52,12 @@ import java.util.stream.Collectors;
 public class FlipManager {
 
     private static final int WEEK_SECS = 7 * 24 * 60 * 60;
+    private static final int FLIP_LOAD_CHUNK_SIZE = 5000;
+    private static final String FLIP_SNAPSHOT_FILE_TEMPLATE = "user_%d_flips.bin";
+    // the cursor is taken from our clock rather than the server's so leave a generous margin for clock skew
+    private static final int SYNC_CURSOR_MARGIN_SECS = 60 * 60;
+    // flips deleted server side are never sent as changes, so this long after the last full download do another one
+    private static final int FULL_SYNC_INTERVAL_SECS = 30 * 24 * 60 * 60;
 
     public static final Comparator<FlipV2> FLIP_STATUS_TIME_COMPARATOR =
             Comparator.comparing(FlipV2::isClosed, Comparator.reverseOrder())
@@ -38,35 +67,48 @@ public class FlipManager {
     private final ApiRequestHandler api;
     private final ScheduledExecutorService executorService;
     private final OkHttpClient okHttpClient;
+    private final LoginResponseManager loginResponseManager;
 
     @Setter
     private Runnable flipsChangedCallback = () -> {};
 
-    // state
-    private String intervalDisplayName;
-    private int intervalStartTime;
-    private Stats intervalStats = new Stats();
+    // the interval the stats panel shows, kept apart from the flips so changing it never waits on a merge
+    private final AtomicReference<Interval> interval = new AtomicReference<>(new Interval(null, 0));
+    // display names picked for the interval that no flips have been seen for yet, still offered as options
+    private final Set<String> intervalOnlyDisplayNames = ConcurrentHashMap.newKeySet();
 
+    // state written under the instance lock, only ever read by writers
     final Map<String, Integer> displayNameToAccountId = new HashMap<>();
     final Map<Integer, Map<Integer, FlipV2>> lastOpenFlipByItemId = new HashMap<>();
-    final Map<UUID, Integer> existingCloseTimes = new HashMap<>();
+    final Map<Integer, Map<Integer, ItemStats>> accountIdToItemTotals = new HashMap<>();
+    // the items of each account whose totals or last open flip have changed since the last publish
+    private final Map<Integer, Set<Integer>> changedItemIds = new HashMap<>();
+    // the start of the earliest week changed since the last publish, the running totals before it are reused
+    private int firstChangedWeekStart = Integer.MAX_VALUE;
+    final UUIDIntMap existingCloseTimes = new UUIDIntMap();
     final List<WeekAggregate> weeks = new ArrayList<>(365*5);
+    FlipColumns.StringTable strings = new FlipColumns.StringTable();
+
+    // the latest published state, what all the public getters read
+    private volatile View view = new View();
 
     private int resetSeq = 0;
     public volatile boolean flipsLoaded;
 
-    public synchronized String getIntervalDisplayName() {
-        return intervalDisplayName;
+    public String getIntervalDisplayName() {
+        return interval.get().displayName;
     }
 
-    public synchronized List<String> getDisplayNameOptions() {
-        return displayNameToAccountId.keySet().stream().sorted().collect(Collectors.toList());
+    public List<String> getDisplayNameOptions() {
+        return Stream.concat(view.displayNameToAccountId.keySet().stream(), intervalOnlyDisplayNames.stream())
+                .distinct().sorted().collect(Collectors.toList());
     }
 
-    public synchronized long estimateTransactionProfit(String displayName, Transaction t) {
-        Integer accountId = displayNameToAccountId.get(displayName);
-        if (accountId != null && lastOpenFlipByItemId.containsKey(accountId)) {
-            FlipV2 flip = lastOpenFlipByItemId.get(accountId).get(t.getItemId());
+    public long estimateTransactionProfit(String displayName, Transaction t) {
+        View v = view;
+        Integer accountId = v.displayNameToAccountId.get(displayName);
+        if (accountId != null && v.lastOpenFlipByItemId.containsKey(accountId)) {
+            FlipV2 flip = v.lastOpenFlipByItemId.get(accountId).get(t.getItemId());
             if(flip != null) {
                 return flip.calculateProfit(t);
             }
@@ -74,10 +116,11 @@ public class FlipManager {
         return 0;
     }
 
-    public synchronized FlipV2 getLastFlipByItemId(String displayName, int itemId) {
-        Integer accountId = displayNameToAccountId.get(displayName);
-        if (accountId != null && lastOpenFlipByItemId.containsKey(accountId)) {
-            Map<Integer, FlipV2> flips = lastOpenFlipByItemId.get(accountId);
+    public FlipV2 getLastFlipByItemId(String displayName, int itemId) {
+        View v = view;
+        Integer accountId = v.displayNameToAccountId.get(displayName);
+        if (accountId != null && v.lastOpenFlipByItemId.containsKey(accountId)) {
+            Map<Integer, FlipV2> flips = v.lastOpenFlipByItemId.get(accountId);
             FlipV2 flip = flips.get(itemId);
             if (flip != null) {
                 return flip;
@@ -93,98 +136,89 @@ public class FlipManager {
         }
         flips.sort(FLIP_STATUS_TIME_COMPARATOR);
         flips.forEach(this::mergeFlip_);
+        publish();
         flipsChangedCallback.run();
     }
 
-    public synchronized Stats getIntervalStats() {
-        return intervalStats.copy();
+    public Stats getIntervalStats() {
+        View v = view;
+        Interval i = interval.get();
+        return v.statsAfter(i.startTime, v.accountIdFor(i.displayName));
     }
 
-    public synchronized Stats calculateStats(int startTime, String displayName) {
-        if(displayName == null) {
-            return calculateStatsAllAccounts(startTime);
-        } else {
-            return calculateStatsForAccount(startTime, displayNameToAccountId.getOrDefault(displayName, -1));
-        }
+    public Stats calculateStats(int startTime, String displayName) {
+        View v = view;
+        return v.statsAfter(startTime, v.accountIdFor(displayName));
+    }
+
+    /**
+     * The per item stats of the flips closed after startTime, for one account or all of them when displayName is
+     * null. The list is in no particular order.
+     */
+    public List<ItemStats> calculateItemStats(int startTime, String displayName) {
+        View v = view;
+        return v.itemStatsAfter(startTime, v.accountIdFor(displayName));
     }
 
-    public synchronized void setIntervalDisplayName(String displayName) {
-        if (Objects.equals(displayName, intervalDisplayName)) {
+    public List<ItemStats> getIntervalItemStats() {
+        View v = view;
+        Interval i = interval.get();
+        return v.itemStatsAfter(i.startTime, v.accountIdFor(i.displayName));
+    }
+
+    /**
+     * Like {@link #setIntervalStartTime} this doesn't take the instance lock, the interval is applied to the flips
+     * when they're read, so the EDT can change it while a large history is being merged.
+     */
+    public void setIntervalDisplayName(String displayName) {
+        Interval previous = interval.getAndUpdate(i -> new Interval(displayName, i.startTime));
+        if (Objects.equals(displayName, previous.displayName)) {
             return;
         }
-        if (displayName != null && !displayNameToAccountId.containsKey(displayName)) {
-            displayNameToAccountId.put(displayName, -1);
+        if (displayName != null) {
+            intervalOnlyDisplayNames.add(displayName);
         }
-        intervalDisplayName = displayName;
-        recalculateIntervalStats();
+        intervalChanged();
     }
 
-    public synchronized void setIntervalStartTime(int startTime) {
+    public void setIntervalStartTime(int startTime) {
         log.debug("time interval start set to: {}", Instant.ofEpochSecond(startTime));
-        if (startTime == intervalStartTime) {
+        Interval previous = interval.getAndUpdate(i -> new Interval(i.displayName, startTime));
+        if (startTime == previous.startTime) {
             return;
         }
-        intervalStartTime = startTime;
-        recalculateIntervalStats();
+        intervalChanged();
     }
 
-    private void recalculateIntervalStats() {
-        if(intervalDisplayName == null) {
-            intervalStats = calculateStatsAllAccounts(intervalStartTime);
-        } else {
-            intervalStats = calculateStatsForAccount(intervalStartTime, displayNameToAccountId.getOrDefault(intervalDisplayName, -1));
+    private void intervalChanged() {
+        if (log.isDebugEnabled()) {
+            Stats intervalStats = getIntervalStats();
+            log.debug("interval flips updated to {}, interval profit updated to {}", intervalStats.flipsMade, intervalStats.profit);
         }
-        log.debug("interval flips updated to {}, interval profit updated to {}", intervalStats.flipsMade, intervalStats.profit);
         flipsChangedCallback.run();
     }
 
-    private Stats calculateStatsAllAccounts(int startTime) {
-        Stats stats = new Stats();
-        WeekAggregate w = getOrInitWeek(startTime);
-        for (FlipV2 f : w.flipsAfter(startTime, false)) {
-            stats.addFlip(f);
-        }
-        for(int i=w.pos+1; i < weeks.size(); i++) {
-            stats.add(weeks.get(i).allStats);
-        }
-        return stats;
-    }
-
-    private Stats calculateStatsForAccount(int startTime, int accountId) {
-        Stats stats = new Stats();
-        WeekAggregate w = getOrInitWeek(startTime);
-        for (FlipV2 f : w.flipsAfterForAccount(startTime, accountId)) {
-            stats.addFlip(f);
-        }
-        for(int i=w.pos+1; i < weeks.size(); i++) {
-            stats.add(weeks.get(i).accountIdToStats.get(accountId));
-        }
-        return stats;
-    }
-
-    public synchronized List<FlipV2> getPageFlips(int page, int pageSize) {
-        Integer accountId = intervalDisplayName == null ? null : displayNameToAccountId.getOrDefault(intervalDisplayName, -1);
+    public List<FlipV2> getPageFlips(int page, int pageSize) {
+        View v = view;
+        Interval interval = this.interval.get();
+        Integer accountId = v.accountIdFor(interval.displayName);
         if (Objects.equals(accountId,-1)) {
             return new ArrayList<>();
         }
 
+        int intervalStartTime = interval.startTime;
+        List<WeekAggregate> weeks = v.weeks;
         int toSkip = (page -1) * pageSize;
-        WeekAggregate intervalWeek = getOrInitWeek(intervalStartTime);
+        int intervalWeek = weekIndex(weeks, intervalStartTime);
         List<FlipV2> resultFlips = new ArrayList<>(pageSize);
-        for(int i=weeks.size()-1; i >= intervalWeek.pos; i--) {
+        for(int i=weeks.size()-1; i >= intervalWeek; i--) {
             if (weeks.get(i).weekEnd <= intervalStartTime || resultFlips.size() == pageSize) {
                 break;
             }
             WeekAggregate w = weeks.get(i);
-            List<FlipV2> weekFlips = accountId == null ? w.flipsAfter(intervalStartTime, true) : w.flipsAfterForAccount(intervalStartTime, accountId);
-            int n = weekFlips.size();
+            int n = w.countAfter(intervalStartTime, accountId);
             if (n > toSkip) {
-                // note: weekFlips are ascending order but we return pages of descending order
-                int end = n - toSkip;
-                int start = Math.max(0, end - (pageSize - resultFlips.size()));
-                for(int ii=end-1; ii >= start; ii--) {
-                    resultFlips.add(weekFlips.get(ii));
-                }
+                w.collectDescending(intervalStartTime, accountId, toSkip, pageSize - resultFlips.size(), resultFlips);
                 toSkip = 0;
             } else {
                 toSkip -= n;
@@ -202,66 +236,192 @@ public class FlipManager {
         // refactor the API call to be async style but until then just run in okHttpClient's executor
         okHttpClient.dispatcher().executorService().submit(() -> {
             try {
-                long s = System.nanoTime();
-                Map<String, Integer> names = api.loadUserDisplayNames();
-                synchronized (this) {
-                    if (seq != resetSeq) {
-                        return;
+                syncFlips(seq);
+            } catch (Exception e) {
+                if (this.resetSeq == seq) {
+                    log.warn("failed to load historical flips from server {} try again in 10s", e.getMessage(), e);
+                    executorService.schedule(() -> this.loadFlips(seq), 10, TimeUnit.SECONDS);
+                }
+            }
+        });
+    }
+
+    void syncFlips(int seq) throws HttpResponseException {
+        long s = System.nanoTime();
+        Map<String, Integer> names = api.loadUserDisplayNames();
+        synchronized (this) {
+            if (seq != resetSeq) {
+                return;
+            }
+            displayNameToAccountId.putAll(names);
+        }
+        log.debug("loading account names took {}ms", (System.nanoTime() - s) / 1000_000);
+
+        int syncStartTime = (int) Instant.now().getEpochSecond();
+        File snapshotFile = snapshotFile();
+        int cursor = 0;
+        int lastFullSync = syncStartTime;
+        if (snapshotFile != null) {
+            s = System.nanoTime();
+            FlipSnapshot snapshot = FlipSnapshot.load(snapshotFile);
+            if (snapshot != null && syncStartTime - snapshot.lastFullSync < FULL_SYNC_INTERVAL_SECS) {
+                // merged a chunk at a time, in the order mergeFlips would sort them into, so the lock is released
+                // (and progress published) regularly rather than held for the whole history
+                snapshot.flips.sort(FLIP_STATUS_TIME_COMPARATOR);
+                for (int i = 0; i < snapshot.flips.size(); i += FLIP_LOAD_CHUNK_SIZE) {
+                    List<FlipV2> chunk = new ArrayList<>(snapshot.flips.subList(i, Math.min(i + FLIP_LOAD_CHUNK_SIZE, snapshot.flips.size())));
+                    synchronized (this) {
+                        if (seq != resetSeq) {
+                            return;
+                        }
+                        mergeFlips(chunk, null);
                     }
-                    displayNameToAccountId.putAll(names);
                 }
-                log.debug("loading account names took {}ms", (System.nanoTime() - s) / 1000_000);
-                s = System.nanoTime();
-                List<FlipV2> flips = api.LoadFlips();
-                log.debug("loading {} flips took {}ms", flips.size(), (System.nanoTime() - s) / 1000_000);
-                s = System.nanoTime();
+                cursor = snapshot.cursor;
+                lastFullSync = snapshot.lastFullSync;
+                log.debug("loading {} flips from snapshot took {}ms", snapshot.flips.size(), (System.nanoTime() - s) / 1000_000);
+            }
+        }
+
+        s = System.nanoTime();
+        // closed flips are merged chunk by chunk as they stream in so stats and pages fill in progressively.
+        // Open flips are held back until the end since mergeFlip_ relies on them being merged after the
+        // closed flips to leave the correct entries in lastOpenFlipByItemId
+        List<FlipV2> openFlips = new ArrayList<>();
+        int n = api.LoadFlips(cursor, FLIP_LOAD_CHUNK_SIZE, (chunk) -> {
+            List<FlipV2> closedFlips = new ArrayList<>(chunk.size());
+            for (FlipV2 f : chunk) {
+                (f.isClosed() ? closedFlips : openFlips).add(f);
+            }
+            synchronized (this) {
+                if (seq == resetSeq) {
+                    mergeFlips(closedFlips, null);
+                }
+            }
+        });
+        synchronized (this) {
+            if (seq != resetSeq) {
+                return;
+            }
+            mergeFlips(openFlips, null);
+            flipsLoaded = true;
+        }
+        log.debug("loading and merging {} flips changed since {} took {}ms", n, cursor, (System.nanoTime() - s) / 1000_000);
+        flipsChangedCallback.run();
+
+        if (snapshotFile != null) {
+            s = System.nanoTime();
+            try {
+                View v;
+                int flipCount;
                 synchronized (this) {
                     if (seq != resetSeq) {
                         return;
                     }
-                    mergeFlips(flips, null);
-                    log.debug("merging flips to took {}ms", (System.nanoTime() - s) / 1000_000);
-                    flipsLoaded = true;
-                }
-                flipsChangedCallback.run();
-            } catch (Exception e) {
-                if (this.resetSeq == seq) {
-                    log.warn("failed to load historical flips from server {} try again in 10s", e.getMessage(), e);
-                    executorService.schedule(() -> this.loadFlips(seq), 10, TimeUnit.SECONDS);
+                    v = view;
+                    flipCount = existingCloseTimes.size();
                 }
+                // the published weeks never change so they can be written out without holding the lock
+                FlipSnapshot.store(snapshotFile, syncStartTime - SYNC_CURSOR_MARGIN_SECS, lastFullSync, flipCount, (c) -> forEachFlip(v.weeks, c));
+                log.debug("storing flip snapshot took {}ms", (System.nanoTime() - s) / 1000_000);
+            } catch (IOException e) {
+                log.warn("error storing flip snapshot {}", snapshotFile, e);
             }
-        });
+        }
     }
 
+    private File snapshotFile() {
+        LoginResponse loginResponse = loginResponseManager.getLoginResponse();
+        if (loginResponse == null || Persistance.directory == null) {
+            return null;
+        }
+        return new File(Persistance.directory, String.format(FLIP_SNAPSHOT_FILE_TEMPLATE, loginResponse.getUserId()));
+    }
+
+    private static void forEachFlip(List<WeekAggregate> weeks, Consumer<FlipV2> consumer) {
+        for (WeekAggregate w : weeks) {
+            for (FlipColumns c : w.accountIdToFlips.values()) {
+                for (int i = 0; i < c.size; i++) {
+                    consumer.accept(c.get(i));
+                }
+            }
+        }
+    }
 
     public synchronized void reset() {
-        intervalDisplayName = null;
-        intervalStartTime = 0;
-        intervalStats = new Stats();
+        interval.set(new Interval(null, 0));
+        intervalOnlyDisplayNames.clear();
         displayNameToAccountId.clear();
         lastOpenFlipByItemId.clear();
+        accountIdToItemTotals.clear();
+        changedItemIds.clear();
+        firstChangedWeekStart = Integer.MAX_VALUE;
         existingCloseTimes.clear();
         weeks.clear();
+        // readers may still be reading the old table through the previous view
+        strings = new FlipColumns.StringTable();
         flipsLoaded = false;
         resetSeq += 1;
+        view = new View();
     }
 
-    private void mergeFlip_(FlipV2 flip) {
-        Integer existingCloseTime = existingCloseTimes.get(flip.getId());
-        Integer intervalAccountId = intervalDisplayName == null ? null : displayNameToAccountId.getOrDefault(intervalDisplayName, -1);
-
-        if(existingCloseTime != null) {
-            WeekAggregate wa = getOrInitWeek(existingCloseTime);
-            FlipV2 removed = wa.removeFlip(flip.getId(), existingCloseTime, flip.getAccountId());
-            if(removed.getClosedTime() >= intervalStartTime && (intervalAccountId == null || removed.getAccountId() == intervalAccountId)) {
-                intervalStats.subtractFlip(removed);
+    /**
+     * Publishes the current state to readers. The week buckets are marked as published so the next writer to touch
+     * one copies it first. Only the accounts and items changed since the last publish are copied into the new view,
+     * everything else is shared with the previous one, as are the running totals of the weeks before the first one
+     * changed.
+     */
+    private void publish() {
+        for (WeekAggregate w : weeks) {
+            if (!w.published) {
+                w.published = true;
+                for (FlipColumns c : w.accountIdToFlips.values()) {
+                    c.published = true;
+                }
             }
         }
-        WeekAggregate wa = getOrInitWeek(flip.getClosedTime());
-        wa.addFlip(flip);
-        if(flip.getClosedTime() >= intervalStartTime && (intervalAccountId == null || flip.getAccountId() == intervalAccountId)) {
-            intervalStats.addFlip(flip);
+        View previous = view;
+        Map<Integer, Map<Integer, FlipV2>> lastOpen = previous.lastOpenFlipByItemId;
+        Map<Integer, Map<Integer, ItemStats>> itemTotals = previous.accountIdToItemTotals;
+        if (!changedItemIds.isEmpty()) {
+            lastOpen = new HashMap<>(lastOpen);
+            itemTotals = new HashMap<>(itemTotals);
+            for (Map.Entry<Integer, Set<Integer>> e : changedItemIds.entrySet()) {
+                int accountId = e.getKey();
+                lastOpen.put(accountId, new HashMap<>(lastOpenFlipByItemId.get(accountId)));
+                Map<Integer, ItemStats> current = accountIdToItemTotals.get(accountId);
+                Map<Integer, ItemStats> items = new HashMap<>(itemTotals.getOrDefault(accountId, Collections.emptyMap()));
+                for (int itemId : e.getValue()) {
+                    ItemStats s = current.get(itemId);
+                    if (s == null) {
+                        items.remove(itemId);
+                    } else {
+                        items.put(itemId, s.copy());
+                    }
+                }
+                itemTotals.put(accountId, items);
+            }
+            changedItemIds.clear();
+        }
+        int firstChangedWeek = firstChangedWeekStart == Integer.MAX_VALUE ? weeks.size() : weekIndex(weeks, firstChangedWeekStart);
+        firstChangedWeekStart = Integer.MAX_VALUE;
+        view = new View(new ArrayList<>(weeks), new HashMap<>(displayNameToAccountId), lastOpen, itemTotals, previous, firstChangedWeek);
+    }
+
+    private void mergeFlip_(FlipV2 flip) {
+        int existingCloseTime = existingCloseTimes.get(flip.getId());
+        Map<Integer, ItemStats> itemTotals = accountIdToItemTotals.computeIfAbsent(flip.getAccountId(), (k) -> new HashMap<>());
+        Set<Integer> changedItems = changedItemIds.computeIfAbsent(flip.getAccountId(), (k) -> new HashSet<>());
+        if(existingCloseTime != UUIDIntMap.MISSING) {
+            FlipV2 removed = getOrInitWeek(existingCloseTime).removeFlip(flip.getId(), existingCloseTime, flip.getAccountId());
+            if (removed != null) {
+                subtractItemFlip(itemTotals, removed);
+                changedItems.add(removed.getItemId());
+            }
         }
+        getOrInitWeek(flip.getClosedTime()).addFlip(flip);
+        addItemFlip(itemTotals, flip);
+        changedItems.add(flip.getItemId());
 
         if(!flip.isClosed()) {
             lastOpenFlipByItemId.computeIfAbsent(flip.getAccountId(), (k) -> new HashMap<>()).put(flip.getItemId(), flip);
@@ -275,70 +435,356 @@ public class FlipManager {
     private WeekAggregate getOrInitWeek(int closeTime) {
         int ws = closeTime - (closeTime % WEEK_SECS);
         int i = bisect(weeks.size(), (a) ->  Integer.compare(weeks.get(a).weekStart, ws));
+        firstChangedWeekStart = Math.min(firstChangedWeekStart, ws);
         if (i >= 0){
             WeekAggregate w = weeks.get(i);
-            w.pos = i;
+            if (w.published) {
+                w = w.copy();
+                weeks.set(i, w);
+            }
             return w;
         }
         WeekAggregate wf = new WeekAggregate();
         wf.weekStart = ws;
         wf.weekEnd = ws + WEEK_SECS;
-        wf.pos = -i-1;
-        weeks.add(wf.pos, wf);
+        weeks.add(-i-1, wf);
         return wf;
     }
 
+    private static void addItemFlip(Map<Integer, ItemStats> items, FlipV2 flip) {
+        ItemStats s = items.computeIfAbsent(flip.getItemId(), (k) -> new ItemStats(k, flip.getItemName()));
+        s.itemName = flip.getItemName();
+        s.addFlip(flip);
+    }
+
+    private static void subtractItemFlip(Map<Integer, ItemStats> items, FlipV2 flip) {
+        ItemStats s = items.get(flip.getItemId());
+        if (s != null) {
+            s.subtractFlip(flip);
+            if (s.flipsMade == 0) {
+                items.remove(flip.getItemId());
+            }
+        }
+    }
+
+    private static Map<Integer, ItemStats> copyItemStats(Map<Integer, ItemStats> items) {
+        Map<Integer, ItemStats> copy = new HashMap<>(items.size());
+        items.forEach((itemId, s) -> copy.put(itemId, s.copy()));
+        return copy;
+    }
+
+    /**
+     * Adds the item stats of one account, or all of them when accountId is null, to out.
+     */
+    private static void mergeItemStats(Map<Integer, Map<Integer, ItemStats>> accountIdToItemStats, Integer accountId, Map<Integer, ItemStats> out) {
+        accountIdToItemStats.forEach((a, items) -> {
+            if (accountId == null || accountId.equals(a)) {
+                for (ItemStats s : items.values()) {
+                    ItemStats o = out.get(s.itemId);
+                    if (o == null) {
+                        out.put(s.itemId, s.copy());
+                    } else {
+                        o.add(s);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the index of the week containing time, or of the first week after it if there isn't one.
+     */
+    private static int weekIndex(List<WeekAggregate> weeks, int time) {
+        int ws = time - (time % WEEK_SECS);
+        int i = bisect(weeks.size(), (a) ->  Integer.compare(weeks.get(a).weekStart, ws));
+        return i >= 0 ? i : -i-1;
+    }
+
+    /**
+     * The account(s) and start time the stats panel shows.
+     */
+    private static class Interval {
+        final String displayName;
+        final int startTime;
+
+        Interval(String displayName, int startTime) {
+            this.displayName = displayName;
+            this.startTime = startTime;
+        }
+    }
+
+    /**
+     * An immutable version of the state for readers, see {@link #publish()}.
+     */
+    private static class View {
+        final List<WeekAggregate> weeks;
+        final Map<String, Integer> displayNameToAccountId;
+        final Map<Integer, Map<Integer, FlipV2>> lastOpenFlipByItemId;
+        final Map<Integer, Map<Integer, ItemStats>> accountIdToItemTotals;
+
+        // the totals of the weeks before each index, one longer than weeks so the last entry is the total of them all.
+        // The entries are shared between views and never modified
+        private final Stats[] allStatsBefore;
+        private final Map<Integer, Stats[]> accountIdToStatsBefore = new HashMap<>();
+
+        View() {
+            this.weeks = Collections.emptyList();
+            this.displayNameToAccountId = Collections.emptyMap();
+            this.lastOpenFlipByItemId = Collections.emptyMap();
+            this.accountIdToItemTotals = Collections.emptyMap();
+            this.allStatsBefore = new Stats[]{new Stats()};
+        }
+
+        /**
+         * Only the running totals from firstChangedWeek on are recalculated, the weeks before it are the same as in
+         * previous so its totals for them are reused.
+         */
+        View(List<WeekAggregate> weeks, Map<String, Integer> displayNameToAccountId, Map<Integer, Map<Integer, FlipV2>> lastOpenFlipByItemId,
+             Map<Integer, Map<Integer, ItemStats>> accountIdToItemTotals, View previous, int firstChangedWeek) {
+            this.weeks = weeks;
+            this.displayNameToAccountId = displayNameToAccountId;
+            this.lastOpenFlipByItemId = lastOpenFlipByItemId;
+            this.accountIdToItemTotals = accountIdToItemTotals;
+
+            int n = weeks.size();
+            allStatsBefore = runningTotals(previous.allStatsBefore, firstChangedWeek, null);
+            previous.accountIdToStatsBefore.forEach((accountId, before) ->
+                    accountIdToStatsBefore.put(accountId, runningTotals(before, firstChangedWeek, accountId)));
+            for (int i = firstChangedWeek; i < n; i++) {
+                for (Integer accountId : weeks.get(i).accountIdToStats.keySet()) {
+                    if (!accountIdToStatsBefore.containsKey(accountId)) {
+                        Stats[] before = new Stats[firstChangedWeek + 1];
+                        Arrays.fill(before, new Stats());
+                        accountIdToStatsBefore.put(accountId, runningTotals(before, firstChangedWeek, accountId));
+                    }
+                }
+            }
+        }
+
+        private Stats[] runningTotals(Stats[] previous, int firstChangedWeek, Integer accountId) {
+            int n = weeks.size();
+            if (firstChangedWeek == n && previous.length == n + 1) {
+                return previous;
+            }
+            Stats[] before = Arrays.copyOf(previous, n + 1);
+            for (int i = firstChangedWeek; i < n; i++) {
+                WeekAggregate w = weeks.get(i);
+                Stats s = accountId == null ? w.allStats : w.accountIdToStats.get(accountId);
+                if (s == null) {
+                    before[i + 1] = before[i];
+                } else {
+                    before[i + 1] = before[i].copy();
+                    before[i + 1].add(s);
+                }
+            }
+            return before;
+        }
+
+        Integer accountIdFor(String displayName) {
+            return displayName == null ? null : displayNameToAccountId.getOrDefault(displayName, -1);
+        }
+
+        /**
+         * The stats of the flips closed after time, for one account or all of them when accountId is null. Only the
+         * week containing time is looked into, every later week comes from the running totals.
+         */
+        Stats statsAfter(int time, Integer accountId) {
+            Stats stats = new Stats();
+            Stats[] before = accountId == null ? allStatsBefore : accountIdToStatsBefore.get(accountId);
+            if (before == null) {
+                return stats;
+            }
+            int i = weekIndex(weeks, time);
+            if (i < weeks.size()) {
+                weeks.get(i).addStatsAfter(time, accountId, stats);
+                i++;
+            }
+            stats.add(before[weeks.size()]);
+            stats.subtract(before[i]);
+            return stats;
+        }
+
+        List<ItemStats> itemStatsAfter(int time, Integer accountId) {
+            Map<Integer, ItemStats> items = new HashMap<>();
+            int i = weekIndex(weeks, time);
+            if (i < weeks.size() - i) {
+                // fewer weeks before time than after it, so take the flips up to time off the totals
+                Map<Integer, ItemStats> before = new HashMap<>();
+                for (int j = 0; j < i; j++) {
+                    mergeItemStats(weeks.get(j).accountIdToItemStats, accountId, before);
+                }
+                weeks.get(i).addItemStatsBetween(Integer.MIN_VALUE, time, accountId, before);
+                mergeItemStats(accountIdToItemTotals, accountId, items);
+                before.forEach((itemId, s) -> items.get(itemId).subtract(s));
+                items.values().removeIf(s -> s.flipsMade == 0);
+            } else {
+                if (i < weeks.size()) {
+                    weeks.get(i).addItemStatsBetween(time, Integer.MAX_VALUE, accountId, items);
+                }
+                for (int j = i + 1; j < weeks.size(); j++) {
+                    mergeItemStats(weeks.get(j).accountIdToItemStats, accountId, items);
+                }
+            }
+            return new ArrayList<>(items.values());
+        }
+    }
+
     class WeekAggregate {
 
-        int pos; // note: only correct when returned by getOrInitWeek
+        // set once the week is visible to readers, after which writers must work on a copy
+        boolean published;
         int weekStart;
         int weekEnd;
 
         Stats allStats = new Stats();
         Map<Integer, Stats> accountIdToStats = new HashMap<>(20);
-        Map<Integer, List<FlipV2>> accountIdToFlips = new HashMap<>(20);
+        Map<Integer, FlipColumns> accountIdToFlips = new HashMap<>(20);
+        Map<Integer, Map<Integer, ItemStats>> accountIdToItemStats = new HashMap<>(20);
+        // the accounts whose stats this week has its own copy of, the others are still shared with the week it was
+        // copied from
+        private final Set<Integer> ownedAccountIds = new HashSet<>();
+
+        /**
+         * Shares each account's stats and (published) flip columns with this week, they're only copied once the
+         * account is written to.
+         */
+        WeekAggregate copy() {
+            WeekAggregate w = new WeekAggregate();
+            w.weekStart = weekStart;
+            w.weekEnd = weekEnd;
+            w.allStats = allStats.copy();
+            w.accountIdToStats.putAll(accountIdToStats);
+            w.accountIdToFlips.putAll(accountIdToFlips);
+            w.accountIdToItemStats.putAll(accountIdToItemStats);
+            return w;
+        }
+
+        private void ownAccount(int accountId) {
+            if (ownedAccountIds.add(accountId)) {
+                Stats stats = accountIdToStats.get(accountId);
+                if (stats != null) {
+                    accountIdToStats.put(accountId, stats.copy());
+                }
+                Map<Integer, ItemStats> items = accountIdToItemStats.get(accountId);
+                if (items != null) {
+                    accountIdToItemStats.put(accountId, copyItemStats(items));
+                }
+            }
+        }
 
         void addFlip(FlipV2 flip) {
             int accountId = flip.getAccountId();
+            ownAccount(accountId);
             allStats.addFlip(flip);
             accountIdToStats.computeIfAbsent(accountId, (k) -> new Stats()).addFlip(flip);
-            List<FlipV2> flips = accountIdToFlips.computeIfAbsent(accountId, (k) -> new ArrayList<>());
-            int i = bisect(flips.size(), closedTimeCmp(flips, flip.getId(), flip.getClosedTime()));
-            flips.add(-i -1, flip);
+            addItemFlip(accountIdToItemStats.computeIfAbsent(accountId, (k) -> new HashMap<>()), flip);
+            writableColumns(accountId).insert(flip);
         }
 
         FlipV2 removeFlip(UUID id, int closeTime, int accountId) {
-            List<FlipV2> flips = accountIdToFlips.computeIfAbsent(accountId, (k) -> new ArrayList<>());
-            int i = bisect(flips.size(), closedTimeCmp(flips, id, closeTime));
-            FlipV2 flip = flips.get(i);
-            allStats.subtractFlip(flip);
-            flips.remove(i);
-            accountIdToStats.get(accountId).subtractFlip(flip);
+            FlipV2 flip = accountIdToFlips.containsKey(accountId) ? writableColumns(accountId).remove(id, closeTime) : null;
+            if (flip != null) {
+                ownAccount(accountId);
+                allStats.subtractFlip(flip);
+                accountIdToStats.get(accountId).subtractFlip(flip);
+                subtractItemFlip(accountIdToItemStats.get(accountId), flip);
+            }
             return flip;
         }
 
-        public List<FlipV2> flipsAfterForAccount(int time, int accountId) {
+        int countAfter(int time, Integer accountId) {
             if (weekEnd <= time) {
-                return Collections.emptyList();
+                return 0;
             }
-            List<FlipV2> flips = accountIdToFlips.computeIfAbsent(accountId, (k) -> new ArrayList<>());
-            if (time <= weekStart) {
-                return flips;
+            if (time < weekStart) {
+                Stats s = accountId == null ? allStats : accountIdToStats.get(accountId);
+                return s == null ? 0 : s.flipsMade;
             }
-            int cut = -bisect(flips.size(), closedTimeCmp(flips, FlipV2.MAX_UUID, time)) - 1;
-            return flips.subList(cut, flips.size());
+            int n = 0;
+            for (FlipColumns c : columnsFor(accountId)) {
+                n += c.size - c.indexAfter(time);
+            }
+            return n;
         }
 
-        public List<FlipV2> flipsAfter(int time, boolean requireSorted) {
+        void addStatsAfter(int time, Integer accountId, Stats stats) {
             if (weekEnd <= time) {
-                return Collections.emptyList();
+                return;
+            }
+            for (FlipColumns c : columnsFor(accountId)) {
+                c.addStats(stats, c.indexAfter(time), c.size);
+            }
+        }
+
+        /**
+         * Adds the item stats of the flips closed after from and at or before to.
+         */
+        void addItemStatsBetween(int from, int to, Integer accountId, Map<Integer, ItemStats> out) {
+            for (FlipColumns c : columnsFor(accountId)) {
+                c.addItemStats(out, c.indexAfter(from), c.indexAfter(to));
+            }
+        }
+
+        /**
+         * Adds up to limit flips closed after time to out, newest first, after skipping the newest skip flips. When
+         * combining accounts the per account columns are k-way merged so only the returned rows are materialised.
+         */
+        void collectDescending(int time, Integer accountId, int skip, int limit, List<FlipV2> out) {
+            if (weekEnd <= time || limit <= 0) {
+                return;
+            }
+            List<FlipColumns> cols = columnsFor(accountId);
+            int k = cols.size();
+            int[] cursor = new int[k];
+            int[] cut = new int[k];
+            for (int j = 0; j < k; j++) {
+                cursor[j] = cols.get(j).size - 1;
+                cut[j] = cols.get(j).indexAfter(time);
+            }
+            if (k == 1) {
+                // single account, no merging required so jump straight past the skipped rows
+                cursor[0] -= skip;
+                skip = 0;
+            }
+            int added = 0;
+            while (added < limit) {
+                int best = -1;
+                for (int j = 0; j < k; j++) {
+                    if (cursor[j] >= cut[j] && (best == -1 || cols.get(j).compareRows(cursor[j], cols.get(best), cursor[best]) > 0)) {
+                        best = j;
+                    }
+                }
+                if (best == -1) {
+                    return;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    out.add(cols.get(best).get(cursor[best]));
+                    added++;
+                }
+                cursor[best]--;
             }
-            List<FlipV2> combinedFlips = new ArrayList<>(allStats.flipsMade);
-            accountIdToFlips.keySet().forEach(i -> combinedFlips.addAll(flipsAfterForAccount(time, i)));
-            if (requireSorted) {
-                combinedFlips.sort(Comparator.comparing(FlipV2::getClosedTime).thenComparing(FlipV2::getId));
+        }
+
+        private FlipColumns writableColumns(int accountId) {
+            FlipColumns c = accountIdToFlips.get(accountId);
+            if (c == null) {
+                c = new FlipColumns(accountId, strings);
+                accountIdToFlips.put(accountId, c);
+            } else if (c.published) {
+                c = c.copy();
+                accountIdToFlips.put(accountId, c);
             }
-            return combinedFlips;
+            return c;
+        }
+
+        private List<FlipColumns> columnsFor(Integer accountId) {
+            if (accountId == null) {
+                return new ArrayList<>(accountIdToFlips.values());
+            }
+            FlipColumns c = accountIdToFlips.get(accountId);
+            return c == null ? Collections.emptyList() : Collections.singletonList(c);
         }
 
         @Override
@@ -347,15 +793,7 @@ public class FlipManager {
         }
     }
 
-    private Function<Integer, Integer> closedTimeCmp(List<FlipV2> flips, UUID id, int time) {
-        return (a) -> {
-            // sorts time ascending with id as tie-breaker
-            int c = Integer.compare(flips.get(a).getClosedTime(), time);
-            return c != 0 ? c : id.compareTo(flips.get(a).getId());
-        };
-    }
-
-    private int bisect(int size, Function<Integer, Integer> cmpFunc) {
+    private static int bisect(int size, Function<Integer, Integer> cmpFunc) {
         int high = size -1;
         int low = 0;
         while (low <= high) {
@@ -0,0 +1,164 @@
+package com.flippingcopilot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary on disk snapshot of a user's flip history. Alongside the flips we store the sync cursor, which is the time
+ * from which the server needs to send us changed flips for the snapshot to be brought up to date, and the time of the
+ * last full download the snapshot descends from, which bounds how long flips deleted server side can linger. The file
+ * ends with a CRC32 of its contents so a partially written or corrupted snapshot is detected and discarded rather than
+ * loaded.
+ */
+@Slf4j
+@AllArgsConstructor
+class FlipSnapshot {
+
+    private static final int MAGIC = 0x464C4950;
+    private static final int VERSION = 2;
+
+    final int cursor;
+    final int lastFullSync;
+    final List<FlipV2> flips;
+
+    static FlipSnapshot load(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.info("ignoring flip snapshot {} with unknown format", file);
+                return null;
+            }
+            int cursor = in.readInt();
+            int lastFullSync = in.readInt();
+            List<FlipV2> flips = new ArrayList<>(Math.max(0, Math.min(in.readInt(), 1 << 20)));
+            List<String> strings = new ArrayList<>();
+            while (in.readBoolean()) {
+                flips.add(readFlip(in, strings));
+            }
+            long expectedCrc = crc.getValue();
+            if ((int) expectedCrc != in.readInt()) {
+                log.warn("flip snapshot {} failed checksum, ignoring it", file);
+                return null;
+            }
+            return new FlipSnapshot(cursor, lastFullSync, flips);
+        } catch (IOException e) {
+            log.warn("error loading flip snapshot {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file which is then moved over the existing snapshot, so a crash part way
+     * through never leaves a truncated snapshot in place.
+     */
+    static void store(File file, int cursor, int lastFullSync, int sizeHint, Consumer<Consumer<FlipV2>> flipSource) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(cursor);
+            out.writeInt(lastFullSync);
+            out.writeInt(sizeHint);
+            Map<String, Integer> strings = new HashMap<>();
+            try {
+                flipSource.accept((f) -> {
+                    try {
+                        out.writeBoolean(true);
+                        writeFlip(out, f, strings);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeBoolean(false);
+            out.writeInt((int) crc.getValue());
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFlip(DataOutputStream out, FlipV2 f, Map<String, Integer> strings) throws IOException {
+        out.writeLong(f.getId().getMostSignificantBits());
+        out.writeLong(f.getId().getLeastSignificantBits());
+        out.writeInt(f.getAccountId());
+        out.writeInt(f.getItemId());
+        writeString(out, f.getItemName(), strings);
+        out.writeInt(f.getOpenedTime());
+        out.writeInt(f.getOpenedQuantity());
+        out.writeLong(f.getSpent());
+        out.writeInt(f.getClosedTime());
+        out.writeInt(f.getClosedQuantity());
+        out.writeLong(f.getReceivedPostTax());
+        out.writeLong(f.getProfit());
+        out.writeLong(f.getTaxPaid());
+        out.writeBoolean(f.isClosed());
+        writeString(out, f.getAccountDisplayName(), strings);
+    }
+
+    private static FlipV2 readFlip(DataInputStream in, List<String> strings) throws IOException {
+        FlipV2 f = new FlipV2();
+        f.setId(new UUID(in.readLong(), in.readLong()));
+        f.setAccountId(in.readInt());
+        f.setItemId(in.readInt());
+        f.setItemName(readString(in, strings));
+        f.setOpenedTime(in.readInt());
+        f.setOpenedQuantity(in.readInt());
+        f.setSpent(in.readLong());
+        f.setClosedTime(in.readInt());
+        f.setClosedQuantity(in.readInt());
+        f.setReceivedPostTax(in.readLong());
+        f.setProfit(in.readLong());
+        f.setTaxPaid(in.readLong());
+        f.setClosed(in.readBoolean());
+        f.setAccountDisplayName(readString(in, strings));
+        return f;
+    }
+
+    // strings are written once, the first time they are seen, after which only their index is written
+    private static void writeString(DataOutputStream out, String s, Map<String, Integer> strings) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        Integer i = strings.get(s);
+        if (i != null) {
+            out.writeInt(i);
+            return;
+        }
+        out.writeInt(strings.size());
+        out.writeUTF(s);
+        strings.put(s, strings.size());
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int i = in.readInt();
+        if (i == -1) {
+            return null;
+        }
+        if (i < 0 || i > strings.size()) {
+            throw new IOException("invalid string index " + i);
+        }
+        if (i == strings.size()) {
+            strings.add(in.readUTF());
+        }
+        return strings.get(i);
+    }
+}
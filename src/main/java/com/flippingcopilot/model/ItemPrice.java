@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 @Getter
 @AllArgsConstructor
@@ -30,25 +31,43 @@ public class ItemPrice {
             return null;
         }
         for (int i = 0; i < mapSize; i++) {
-            String key = (String) MsgPackUtil.decodePrimitive(b);
-            switch (key) {
-                case "sp":
-                    ip.sellPrice = (int) (long)MsgPackUtil.decodePrimitive(b);
+            int key = MsgPackUtil.readKey(b, Key.SYMBOLS);
+            if (key < 0) {
+                // discard value for unrecognised key
+                MsgPackUtil.skip(b);
+                continue;
+            }
+            switch (Key.VALUES[key]) {
+                case SELL_PRICE:
+                    ip.sellPrice = MsgPackUtil.readInt(b);
                     break;
-                case "bp":
-                    ip.buyPrice = (int) (long) MsgPackUtil.decodePrimitive(b);
+                case BUY_PRICE:
+                    ip.buyPrice = MsgPackUtil.readInt(b);
                     break;
-                case "m":
-                    ip.message = (String) MsgPackUtil.decodePrimitive(b);
+                case MESSAGE:
+                    ip.message = MsgPackUtil.readString(b);
                     break;
-                case "gd":
+                case GRAPH_DATA:
                     ip.graphData = Data.fromMsgPack(b);
                     break;
-                default:
-                    // discard value for unrecognised key
-                    MsgPackUtil.decodePrimitive(b);
             }
         }
         return ip;
     }
+
+    private enum Key {
+        SELL_PRICE("sp"),
+        BUY_PRICE("bp"),
+        MESSAGE("m"),
+        GRAPH_DATA("gd");
+
+        private static final Key[] VALUES = values();
+        private static final byte[][] SYMBOLS = MsgPackUtil.symbols(Arrays.stream(VALUES).map(k -> k.symbol).toArray(String[]::new));
+
+        private final String symbol;
+
+        Key(String symbol) {
+            this.symbol = symbol;
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package com.flippingcopilot.model;
+
+import lombok.EqualsAndHashCode;
+
+/**
+ * The stats of the flips of one item, along with how long they were held for in total.
+ */
+@EqualsAndHashCode(callSuper = true)
+public class ItemStats extends Stats {
+
+    public final int itemId;
+    public String itemName;
+    public long holdSeconds;
+
+    public ItemStats(int itemId, String itemName) {
+        this.itemId = itemId;
+        this.itemName = itemName;
+    }
+
+    public long calculateAverageHoldSeconds() {
+        return flipsMade == 0 ? 0 : holdSeconds / flipsMade;
+    }
+
+    @Override
+    public ItemStats copy() {
+        ItemStats s = new ItemStats(itemId, itemName);
+        s.add(this);
+        return s;
+    }
+
+    public void add(ItemStats s) {
+        super.add(s);
+        holdSeconds += s.holdSeconds;
+    }
+
+    public void subtract(ItemStats s) {
+        profit -= s.profit;
+        gross -= s.gross;
+        taxPaid -= s.taxPaid;
+        flipsMade -= s.flipsMade;
+        holdSeconds -= s.holdSeconds;
+    }
+
+    public void addFlip(long flipProfit, long flipSpent, long flipTaxPaid, int openedTime, int closedTime) {
+        addFlip(flipProfit, flipSpent, flipTaxPaid);
+        holdSeconds += holdSeconds(openedTime, closedTime);
+    }
+
+    @Override
+    public void addFlip(FlipV2 f) {
+        addFlip(f.getProfit(), f.getSpent(), f.getTaxPaid(), f.getOpenedTime(), f.getClosedTime());
+    }
+
+    @Override
+    public void subtractFlip(FlipV2 f) {
+        super.subtractFlip(f);
+        holdSeconds -= holdSeconds(f.getOpenedTime(), f.getClosedTime());
+    }
+
+    private static long holdSeconds(int openedTime, int closedTime) {
+        return Math.max(0, closedTime - openedTime);
+    }
+}
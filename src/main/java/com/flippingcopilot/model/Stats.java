@@ -34,10 +34,23 @@ public class Stats {
         }
     }
 
+    public void subtract(Stats s) {
+        if(s != null) {
+            profit -= s.profit;
+            gross -= s.gross;
+            taxPaid -= s.taxPaid;
+            flipsMade -= s.flipsMade;
+        }
+    }
+
     public void addFlip(FlipV2 f) {
-        profit += f.getProfit();
-        gross += f.getSpent();
-        taxPaid += f.getTaxPaid();
+        addFlip(f.getProfit(), f.getSpent(), f.getTaxPaid());
+    }
+
+    public void addFlip(long flipProfit, long flipSpent, long flipTaxPaid) {
+        profit += flipProfit;
+        gross += flipSpent;
+        taxPaid += flipTaxPaid;
         flipsMade += 1;
     }
 
@@ -7,6 +7,7 @@ import lombok.*;
 
 import java.nio.ByteBuffer;
 import java.text.NumberFormat;
+import java.util.Arrays;
 
 @Getter
 @AllArgsConstructor
@@ -70,43 +71,66 @@ public class Suggestion {
         }
 
         for (int i = 0; i < mapSize; i++) {
-            String key = (String) MsgPackUtil.decodePrimitive(b);
-            switch (key) {
-                case "t":
-                    s.type = (String) MsgPackUtil.decodePrimitive(b);
+            int key = MsgPackUtil.readKey(b, Key.SYMBOLS);
+            if (key < 0) {
+                // discard value for unrecognised key
+                MsgPackUtil.skip(b);
+                continue;
+            }
+            switch (Key.VALUES[key]) {
+                case TYPE:
+                    s.type = MsgPackUtil.readString(b);
                     break;
-                case "b":
-                    s.boxId = (int) (long) MsgPackUtil.decodePrimitive(b);
+                case BOX_ID:
+                    s.boxId = MsgPackUtil.readInt(b);
                     break;
-                case "i":
-                    s.itemId = (int) (long) MsgPackUtil.decodePrimitive(b);
+                case ITEM_ID:
+                    s.itemId = MsgPackUtil.readInt(b);
                     break;
-                case "p":
-                    s.price = (int) (long) MsgPackUtil.decodePrimitive(b);
+                case PRICE:
+                    s.price = MsgPackUtil.readInt(b);
                     break;
-                case "q":
-                    s.quantity = (int) (long) MsgPackUtil.decodePrimitive(b);
+                case QUANTITY:
+                    s.quantity = MsgPackUtil.readInt(b);
                     break;
-                case "n":
-                    s.name = (String) MsgPackUtil.decodePrimitive(b);
+                case NAME:
+                    s.name = MsgPackUtil.readString(b);
                     break;
-                case "id":
-                    s.id = (int) (long) MsgPackUtil.decodePrimitive(b);
+                case COMMAND_ID:
+                    s.id = MsgPackUtil.readInt(b);
                     break;
-                case "m":
-                    s.message = (String) MsgPackUtil.decodePrimitive(b);
+                case MESSAGE:
+                    s.message = MsgPackUtil.readString(b);
                     break;
-                case "gd":
+                case GRAPH_DATA:
                     s.graphData = Data.fromMsgPack(b);
                     break;
-                default:
-                    // discard value for unrecognised key
-                    MsgPackUtil.decodePrimitive(b);
             }
         }
 
         return s;
     }
+
+    private enum Key {
+        TYPE("t"),
+        BOX_ID("b"),
+        ITEM_ID("i"),
+        PRICE("p"),
+        QUANTITY("q"),
+        NAME("n"),
+        COMMAND_ID("id"),
+        MESSAGE("m"),
+        GRAPH_DATA("gd");
+
+        private static final Key[] VALUES = values();
+        private static final byte[][] SYMBOLS = MsgPackUtil.symbols(Arrays.stream(VALUES).map(k -> k.symbol).toArray(String[]::new));
+
+        private final String symbol;
+
+        Key(String symbol) {
+            this.symbol = symbol;
+        }
+    }
 }
 
 
@@ -2,6 +2,7 @@ package com.flippingcopilot.model;
 
 import com.flippingcopilot.controller.ApiRequestHandler;
 import com.flippingcopilot.controller.Persistance;
+import com.flippingcopilot.controller.TransactionLog;
 import com.flippingcopilot.util.MutableReference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,19 +10,33 @@ import okhttp3.OkHttpClient;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 @Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class TransactionManger {
 
+    // fills often arrive in bursts (several slots completing on the same tick) so wait a short window before
+    // uploading to send them together
+    private static final long COALESCE_WINDOW_MS = 500;
+    static final int MAX_BATCH_SIZE = 100;
+    static final long BASE_RETRY_DELAY_MS = 2_000;
+    static final long MAX_RETRY_DELAY_MS = 5 * 60_000;
+    // each account may make at most RETRY_BUDGET retries in a burst, with one retry restored every
+    // RETRY_BUDGET_REFILL_MS, once exhausted retries wait for the budget to refill
+    static final int RETRY_BUDGET = 20;
+    static final long RETRY_BUDGET_REFILL_MS = 60_000;
+
     // dependencies
     private final FlipManager flipManager;
     private final ScheduledExecutorService executorService;
@@ -31,18 +46,22 @@ public class TransactionManger {
 
     // state
     private final ConcurrentMap<String, List<Transaction>> cachedUnAckedTransactions = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, AtomicBoolean> transactionSyncScheduled = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TransactionLog> transactionLogs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UploadState> uploadStates = new ConcurrentHashMap<>();
 
     public void syncUnAckedTransactions(String displayName) {
 
         long s = System.nanoTime();
+        UploadState state = getUploadState(displayName);
         List<Transaction> toSend;
         synchronized (this) {
-            toSend = new ArrayList<>(getUnAckedTransactions(displayName));
+            List<Transaction> unAckedTransactions = getUnAckedTransactions(displayName);
+            toSend = new ArrayList<>(unAckedTransactions.subList(0, Math.min(MAX_BATCH_SIZE, unAckedTransactions.size())));
             if(toSend.isEmpty()) {
-                transactionSyncScheduled.get(displayName).set(false);
+                state.scheduled.set(false);
                 return;
             }
+            state.inFlight = toSend.size();
         }
 
         Consumer<List<FlipV2>> onSuccess = (flips) -> {
@@ -50,25 +69,38 @@ public class TransactionManger {
                 log.debug("server updated flip for {} closed qty {}, profit {}", f.getItemName(), f.getClosedQuantity(), f.getProfit());
             }
             flipManager.mergeFlips(flips, displayName);
-            log.info("sending {} transactions took {}ms", toSend.size(), (System.nanoTime() - s) / 1000_000);
+            long latencyMs = (System.nanoTime() - s) / 1000_000;
+            log.info("sending {} transactions took {}ms", toSend.size(), latencyMs);
+            state.recordSuccess(toSend, latencyMs);
             synchronized (this) {
                 List<Transaction> unAckedTransactions  = getUnAckedTransactions(displayName);
-                transactionSyncScheduled.get(displayName).set(false);
+                state.inFlight = 0;
+                state.scheduled.set(false);
                 toSend.forEach(unAckedTransactions::remove);
                 if(!unAckedTransactions.isEmpty()) {
-                    scheduleSyncIn(0, displayName);
+                    scheduleSyncInMillis(0, displayName);
                 }
             }
+            TransactionLog transactionLog = getTransactionLog(displayName);
+            transactionLog.ack(toSend);
+            if (transactionLog.needsCompaction()) {
+                executorService.execute(transactionLog::compact);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("{} transaction upload metrics {}", displayName, getUploadMetrics(displayName));
+            }
         };
 
         Consumer<HttpResponseException> onFailure = (e) -> {
             synchronized (this) {
-                transactionSyncScheduled.get(displayName).set(false);
+                state.inFlight = 0;
+                state.scheduled.set(false);
             }
             String currentDisplayName = osrsLoginManager.getPlayerDisplayName();
             if (loginResponseManager.isLoggedIn() && (currentDisplayName == null || currentDisplayName.equals(displayName))) {
-                log.warn("failed to send transactions to copilot server {}", e.getMessage(), e);
-                scheduleSyncIn(10, displayName);
+                long delayMs = state.nextRetryDelayMs();
+                log.warn("failed to send transactions to copilot server {}, retrying in {}ms", e.getMessage(), delayMs, e);
+                scheduleSyncInMillis(delayMs, displayName);
             }
         };
         api.sendTransactionsAsync(toSend, displayName, onSuccess, onFailure);
@@ -78,31 +110,110 @@ public class TransactionManger {
         synchronized (this) {
             List<Transaction> unAckedTransactions = getUnAckedTransactions(displayName);
             unAckedTransactions.add(transaction);
-            Persistance.storeUnAckedTransactions(unAckedTransactions, displayName);
+            getTransactionLog(displayName).append(transaction);
         }
         MutableReference<Long> profit = new MutableReference<>(0L);
         if (OfferStatus.SELL.equals(transaction.getType())) {
             profit.setValue(flipManager.estimateTransactionProfit(displayName, transaction));
         }
         if (loginResponseManager.isLoggedIn()) {
-            scheduleSyncIn(0, displayName);
+            // if a sync is already scheduled (including a backed off retry) this is a no-op, the new
+            // transaction just joins the queue
+            scheduleSyncInMillis(COALESCE_WINDOW_MS, displayName);
         }
         return profit.getValue();
     }
 
     public List<Transaction> getUnAckedTransactions(String displayName) {
-        return cachedUnAckedTransactions.computeIfAbsent(displayName, (k) -> Persistance.loadUnAckedTransactions(displayName));
+        return cachedUnAckedTransactions.computeIfAbsent(displayName, (k) -> getTransactionLog(displayName).load());
+    }
+
+    public synchronized TransactionUploadMetrics getUploadMetrics(String displayName) {
+        List<Transaction> unAckedTransactions = getUnAckedTransactions(displayName);
+        long oldestAgeMs = unAckedTransactions.isEmpty() ? 0 : Instant.now().toEpochMilli() - unAckedTransactions.get(0).getTimestamp().toEpochMilli();
+        return getUploadState(displayName).metrics(unAckedTransactions.size(), oldestAgeMs);
+    }
+
+    private TransactionLog getTransactionLog(String displayName) {
+        return transactionLogs.computeIfAbsent(displayName, Persistance::openUnAckedTransactionLog);
     }
 
-    public synchronized void scheduleSyncIn(int seconds, String displayName) {
-        AtomicBoolean scheduled = transactionSyncScheduled.computeIfAbsent(displayName, k -> new AtomicBoolean(false));
-        if(scheduled.compareAndSet(false, true)) {
-            log.info("scheduling {} attempt to sync {} transactions in {}s", displayName, getUnAckedTransactions(displayName).size(), seconds);
+    UploadState getUploadState(String displayName) {
+        return uploadStates.computeIfAbsent(displayName, k -> new UploadState());
+    }
+
+    public void scheduleSyncIn(int seconds, String displayName) {
+        scheduleSyncInMillis(seconds * 1000L, displayName);
+    }
+
+    private synchronized void scheduleSyncInMillis(long millis, String displayName) {
+        UploadState state = getUploadState(displayName);
+        if(state.scheduled.compareAndSet(false, true)) {
+            log.info("scheduling {} attempt to sync {} transactions in {}ms", displayName, getUnAckedTransactions(displayName).size(), millis);
             executorService.schedule(() ->  {
                 this.syncUnAckedTransactions(displayName);
-            }, seconds, TimeUnit.SECONDS);
+            }, millis, TimeUnit.MILLISECONDS);
         } else {
             log.debug("skipping scheduling sync as already scheduled");
         }
     }
+
+    static class UploadState {
+
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+        volatile int inFlight;
+
+        private final LongSupplier clock;
+        private int consecutiveFailures;
+        private int retryBudget = RETRY_BUDGET;
+        private long retryBudgetUpdated;
+        private long lastRequestLatencyMs;
+        private long averageAckLatencyMs = -1;
+
+        UploadState() {
+            this(System::currentTimeMillis);
+        }
+
+        UploadState(LongSupplier clock) {
+            this.clock = clock;
+            retryBudgetUpdated = clock.getAsLong();
+        }
+
+        synchronized void recordSuccess(List<Transaction> acked, long requestLatencyMs) {
+            consecutiveFailures = 0;
+            lastRequestLatencyMs = requestLatencyMs;
+            long now = clock.getAsLong();
+            for (Transaction t : acked) {
+                long ackLatency = now - t.getTimestamp().toEpochMilli();
+                averageAckLatencyMs = averageAckLatencyMs < 0 ? ackLatency : (averageAckLatencyMs * 7 + ackLatency) / 8;
+            }
+        }
+
+        /**
+         * Exponential backoff with jitter, the delay is picked uniformly from the upper half of the backoff
+         * interval so that retries from many clients after an outage don't all land at once.
+         */
+        synchronized long nextRetryDelayMs() {
+            consecutiveFailures++;
+            long backoff = Math.min(MAX_RETRY_DELAY_MS, BASE_RETRY_DELAY_MS << Math.min(consecutiveFailures - 1, 16));
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+            long now = clock.getAsLong();
+            int refilled = (int) ((now - retryBudgetUpdated) / RETRY_BUDGET_REFILL_MS);
+            if (refilled > 0) {
+                retryBudget = Math.min(RETRY_BUDGET, retryBudget + refilled);
+                retryBudgetUpdated += refilled * RETRY_BUDGET_REFILL_MS;
+            }
+            if (retryBudget > 0) {
+                retryBudget--;
+                return delay;
+            }
+            return Math.max(delay, retryBudgetUpdated + RETRY_BUDGET_REFILL_MS - now);
+        }
+
+        synchronized TransactionUploadMetrics metrics(int queueDepth, long oldestUnAckedAgeMs) {
+            return new TransactionUploadMetrics(queueDepth, inFlight, consecutiveFailures, oldestUnAckedAgeMs,
+                    lastRequestLatencyMs, Math.max(0, averageAckLatencyMs));
+        }
+    }
 }
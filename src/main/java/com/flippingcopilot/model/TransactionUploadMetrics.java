@@ -0,0 +1,22 @@
+package com.flippingcopilot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class TransactionUploadMetrics {
+    // number of transactions waiting to be acked by the server
+    private final int queueDepth;
+    // number of transactions in the request currently in flight
+    private final int inFlight;
+    private final int consecutiveFailures;
+    // age of the oldest transaction waiting to be acked
+    private final long oldestUnAckedAgeMs;
+    // round trip time of the last successful upload request
+    private final long lastRequestLatencyMs;
+    // moving average of the time between a transaction happening and the server acking it
+    private final long averageAckLatencyMs;
+}
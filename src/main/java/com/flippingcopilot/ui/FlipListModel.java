@@ -0,0 +1,93 @@
+package com.flippingcopilot.ui;
+
+import com.flippingcopilot.model.FlipManager;
+import com.flippingcopilot.model.FlipV2;
+
+import javax.swing.AbstractListModel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The flips of the interval selected in the {@link FlipManager}, newest first. Rows are fetched a block at a time as
+ * the list asks for them and only the most recently used blocks are kept, so the whole interval can be scrolled
+ * through with a bounded number of FlipV2 objects in memory. Must only be used on the EDT.
+ */
+public class FlipListModel extends AbstractListModel<FlipV2> {
+
+    private static final int BLOCK_SIZE = 50;
+    private static final int MAX_BLOCKS = 8;
+
+    private final FlipManager flipManager;
+    private final Map<Integer, List<FlipV2>> blocks = new LinkedHashMap<Integer, List<FlipV2>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<FlipV2>> eldest) {
+            return size() > MAX_BLOCKS;
+        }
+    };
+    private int size;
+
+    public FlipListModel(FlipManager flipManager) {
+        this.flipManager = flipManager;
+    }
+
+    /**
+     * Brings the rows up to date, the interval now having the given number of flips. The blocks already fetched (which
+     * include every visible row) are fetched again and compared, and only the range of rows that differ is reported
+     * as changed, so a refresh that changed nothing on screen doesn't repaint the list.
+     */
+    public void update(int size) {
+        int oldSize = this.size;
+        this.size = size;
+        if (size < oldSize) {
+            fireIntervalRemoved(this, size, oldSize - 1);
+        } else if (size > oldSize) {
+            fireIntervalAdded(this, oldSize, size - 1);
+        }
+
+        Map<Integer, List<FlipV2>> previousBlocks = new HashMap<>(blocks);
+        blocks.clear();
+        int changedFrom = Integer.MAX_VALUE;
+        int changedTo = -1;
+        for (Map.Entry<Integer, List<FlipV2>> e : previousBlocks.entrySet()) {
+            int start = e.getKey() * BLOCK_SIZE;
+            if (start >= size) {
+                continue;
+            }
+            List<FlipV2> previous = e.getValue();
+            List<FlipV2> flips = flipManager.getPageFlips(e.getKey() + 1, BLOCK_SIZE);
+            blocks.put(e.getKey(), flips);
+            for (int i = 0; i < Math.max(previous.size(), flips.size()); i++) {
+                if (i >= previous.size() || i >= flips.size() || !previous.get(i).equals(flips.get(i))) {
+                    changedFrom = Math.min(changedFrom, start + i);
+                    changedTo = Math.max(changedTo, start + i);
+                }
+            }
+        }
+        changedTo = Math.min(changedTo, Math.min(size, oldSize) - 1);
+        if (changedFrom <= changedTo) {
+            fireContentsChanged(this, changedFrom, changedTo);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the flip at index, or null if the flips changed since the last update and there are fewer of them now.
+     */
+    @Override
+    public FlipV2 getElementAt(int index) {
+        int block = index / BLOCK_SIZE;
+        List<FlipV2> flips = blocks.get(block);
+        if (flips == null) {
+            flips = flipManager.getPageFlips(block + 1, BLOCK_SIZE);
+            blocks.put(block, flips);
+        }
+        int i = index % BLOCK_SIZE;
+        return i < flips.size() ? flips.get(i) : null;
+    }
+}
@@ -4,28 +4,38 @@ import com.flippingcopilot.controller.FlippingCopilotConfig;
 import com.flippingcopilot.model.FlipV2;
 import net.runelite.client.ui.ColorScheme;
 
+import javax.swing.BorderFactory;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.ListCellRenderer;
 import java.awt.BorderLayout;
 import java.awt.Color;
-import java.awt.Dimension;
+import java.awt.Component;
 import java.awt.FlowLayout;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 
-public class FlipPanel extends JPanel {
+/**
+ * Renders a row of the flips list. One instance stamps out every visible row so scrolling doesn't create components.
+ */
+public class FlipPanel extends JPanel implements ListCellRenderer<FlipV2> {
 
-    public FlipPanel(FlipV2 flip, FlippingCopilotConfig config) {
+    private final FlippingCopilotConfig config;
+    private final JLabel itemQuantity = new JLabel(" ");
+    private final JLabel itemNameLabel = new JLabel(" ");
+    private final JLabel profitLabel = new JLabel(" ");
+
+    public FlipPanel(FlippingCopilotConfig config) {
+        this.config = config;
         setLayout(new BorderLayout());
         setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        setBorder(BorderFactory.createEmptyBorder(1, 4, 1, 4));
 
-        JLabel itemQuantity = new JLabel(String.format("%d x ", flip.getClosedQuantity()));
         itemQuantity.setForeground(Color.WHITE);
 
-        JLabel itemNameLabel = new JLabel(UIUtilities.truncateString(flip.getItemName(), 20));
-
         // Create a sub-panel for the left side
         JPanel leftPanel = new JPanel();
         leftPanel.setLayout(new FlowLayout(FlowLayout.LEFT, 0, 0));
@@ -33,13 +43,25 @@ public class FlipPanel extends JPanel {
         leftPanel.add(itemQuantity);
         leftPanel.add(itemNameLabel);
 
-        JLabel profitLabel = new JLabel(UIUtilities.formatProfitWithoutGp(flip.getProfit()));
-        profitLabel.setForeground(UIUtilities.getProfitColor(flip.getProfit(), config));
-
         // Add the sub-panel to the LINE_START position
         add(leftPanel, BorderLayout.LINE_START);
         add(profitLabel, BorderLayout.LINE_END);
-        setMaximumSize(new Dimension(Integer.MAX_VALUE, getPreferredSize().height));
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends FlipV2> list, FlipV2 flip, int index, boolean isSelected, boolean cellHasFocus) {
+        if (flip == null) {
+            // the row is past the end of the flips after a change that the list hasn't caught up with yet
+            itemQuantity.setText(" ");
+            itemNameLabel.setText(" ");
+            profitLabel.setText(" ");
+            setToolTipText(null);
+            return this;
+        }
+        itemQuantity.setText(String.format("%d x ", flip.getClosedQuantity()));
+        itemNameLabel.setText(UIUtilities.truncateString(flip.getItemName(), 20));
+        profitLabel.setText(UIUtilities.formatProfitWithoutGp(flip.getProfit()));
+        profitLabel.setForeground(UIUtilities.getProfitColor(flip.getProfit(), config));
 
         String closeLabel = flip.getClosedQuantity() == flip.getOpenedQuantity() ? "Close time" : "Partial close time";
 
@@ -52,6 +74,7 @@ public class FlipPanel extends JPanel {
                 UIUtilities.formatProfit(flip.getTaxPaid()),
                 UIUtilities.formatProfit(flip.getProfit()));
         setToolTipText(tooltipText);
+        return this;
     }
 
     public static String formatEpoch(long epochSeconds) {
@@ -60,4 +83,4 @@ public class FlipPanel extends JPanel {
                 .withZone(ZoneId.systemDefault());
         return formatter.format(instant);
     }
-}
\ No newline at end of file
+}
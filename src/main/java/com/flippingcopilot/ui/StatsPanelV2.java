@@ -20,6 +20,7 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -47,6 +48,12 @@ public class StatsPanelV2 extends JPanel {
             "Session",
             "All"};
 
+    // refreshes requested within a frame of each other are applied together
+    private static final int REFRESH_FRAME_MILLIS = 1000 / 60;
+
+    private static final String FLIPS_CARD = "flips";
+    private static final String ITEMS_CARD = "items";
+
     private static final Pattern INTERVAL_PATTERN = Pattern.compile("^-?(\\d+)([hdwmy])[()\\w\\s]*");
 
     // dependencies
@@ -65,7 +72,11 @@ public class StatsPanelV2 extends JPanel {
     private final JButton sessionResetButton = new JButton("  Reset session ");
     private JPanel profitAndSubInfoPanel;
     private JPanel subInfoPanel;
-    private final JPanel flipsPanel = new JPanel();
+    private final FlipListModel flipListModel;
+    private final JList<FlipV2> flipList;
+    private final TopItemsPanel topItemsPanel;
+    private final JPanel flipsOrItemsPanel = new JPanel(new CardLayout());
+    private boolean showingItems = false;
     private final JLabel totalProfitVal = new JLabel("0 gp");
     private final JLabel roiVal = new JLabel("-0.00%");
     private final JLabel flipsMadeVal = new JLabel("0");
@@ -73,12 +84,23 @@ public class StatsPanelV2 extends JPanel {
     private final JLabel sessionTimeVal = new JLabel("00:00:00");
     private final JLabel hourlyProfitVal = new JLabel("0 gp/hr");
     private final JLabel avgCashVal = new JLabel("0 gp");
-    private final Paginator paginator;
 
     private IntervalTimeUnit selectedIntervalTimeUnit = IntervalTimeUnit.SESSION;
     private int selectedIntervalValue = -1;
     private volatile boolean lastValidState = false;
 
+    // what is currently displayed, so a refresh only touches what has changed
+    private Stats displayedStats = null;
+    private Color displayedProfitColor = null;
+    private Color displayedLossColor = null;
+
+    // pending refresh, requested from any thread and applied on the EDT by refreshTimer
+    private final Object pendingRefreshLock = new Object();
+    private boolean refreshScheduled = false;
+    private boolean pendingFlipsMaybeChanged = false;
+    private boolean pendingValidLoginState = false;
+    private final Timer refreshTimer = new Timer(REFRESH_FRAME_MILLIS, e -> applyPendingRefresh());
+
     @Inject
     public StatsPanelV2(LoginResponseManager loginResponseManager,
                         OsrsLoginManager osrsLoginManager,
@@ -95,20 +117,34 @@ public class StatsPanelV2 extends JPanel {
         this.flipManager = FlipManager;
         this.clientThread = clientThread;
         setLayout(new BorderLayout());
+        refreshTimer.setRepeats(false);
 
         setupTimeIntervalDropdown();
         setupProfitAndSubInfoPanel();
         setupSessionResetButton();
 
-        flipsPanel.setLayout(new BoxLayout(flipsPanel, BoxLayout.Y_AXIS));
-        flipsPanel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
-        flipsPanel.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
-
-        JScrollPane scrollPane = new JScrollPane(flipsPanel);
+        // only the visible rows are ever rendered or fetched from the flip manager, see FlipListModel
+        FlipPanel flipRenderer = new FlipPanel(config);
+        flipListModel = new FlipListModel(flipManager);
+        flipList = new JList<>(flipListModel);
+        flipList.setCellRenderer(flipRenderer);
+        flipList.setFixedCellHeight(flipRenderer.getPreferredSize().height);
+        // a small fixed width stops the list measuring every row, it's stretched to the viewport anyway
+        flipList.setFixedCellWidth(1);
+        flipList.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        flipList.setBorder(BorderFactory.createEmptyBorder(4, 0, 4, 0));
+        flipList.setFocusable(false);
+        ToolTipManager.sharedInstance().registerComponent(flipList);
+
+        JScrollPane scrollPane = new JScrollPane(flipList);
         scrollPane.setBackground(ColorScheme.DARKER_GRAY_COLOR);
         scrollPane.getVerticalScrollBar().setPreferredSize(new Dimension(2, 0));
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
 
+        topItemsPanel = new TopItemsPanel(config);
+        flipsOrItemsPanel.add(scrollPane, FLIPS_CARD);
+        flipsOrItemsPanel.add(topItemsPanel, ITEMS_CARD);
+
         // Create a main panel with vertical layout
         JPanel mainPanel = UIUtilities.newVerticalBoxLayoutJPanel();
         mainPanel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
@@ -139,16 +175,42 @@ public class StatsPanelV2 extends JPanel {
 
         mainPanel.add(intervalRsAccountDropdownWrapper);
         mainPanel.add(profitAndSubInfoPanel);
-        mainPanel.add(scrollPane);
+        mainPanel.add(buildFlipsOrItemsToggle());
+        mainPanel.add(flipsOrItemsPanel);
 
         add(mainPanel, BorderLayout.CENTER);
 
-        paginator = new Paginator(() -> refresh(true, lastValidState));
-        add(paginator, BorderLayout.SOUTH);
-
         flipManager.setFlipsChangedCallback(() -> refresh(true, loginResponseManager.isLoggedIn() && osrsLoginManager.isValidLoginState()));
     }
 
+    private JPanel buildFlipsOrItemsToggle() {
+        JToggleButton flipsButton = new JToggleButton("Flips", true);
+        JToggleButton itemsButton = new JToggleButton("Top items");
+        ButtonGroup group = new ButtonGroup();
+        JPanel togglePanel = new JPanel(new GridLayout(1, 2, 2, 0));
+        togglePanel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        togglePanel.setBorder(new EmptyBorder(2, 0, 2, 0));
+        for (JToggleButton button : Arrays.asList(flipsButton, itemsButton)) {
+            button.setFont(FontManager.getRunescapeSmallFont());
+            button.setFocusPainted(false);
+            group.add(button);
+            togglePanel.add(button);
+        }
+        flipsButton.addActionListener(e -> showFlipsOrItems(false));
+        itemsButton.addActionListener(e -> showFlipsOrItems(true));
+        togglePanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, togglePanel.getPreferredSize().height));
+        return togglePanel;
+    }
+
+    private void showFlipsOrItems(boolean items) {
+        if (items == showingItems) {
+            return;
+        }
+        showingItems = items;
+        ((CardLayout) flipsOrItemsPanel.getLayout()).show(flipsOrItemsPanel, items ? ITEMS_CARD : FLIPS_CARD);
+        refresh(true, lastValidState);
+    }
+
     private void setupSessionResetButton() {
         sessionResetButton.setBorder(BorderFactory.createEmptyBorder());
         sessionResetButton.addActionListener((l) -> {
@@ -365,17 +427,40 @@ public class StatsPanelV2 extends JPanel {
     // - FlipTrackerV2 initialisation (ScheduledExecutorService)
     // - session stats updated (ScheduledExecutorService)
     // - plugin config changed (Client thread)
-    // - page changed (Swing EDT thread)
+    // - flips/items view toggled (Swing EDT thread)
     //
+    // during heavy flipping these arrive in bursts, so rather than each one updating the panel they are merged and
+    // applied at most once per frame
 
     public void refresh(boolean flipsMaybeChanged, boolean validLoginState) {
-        if(!SwingUtilities.isEventDispatchThread()) {
-            // we always execute this in the Swing EDT thread
-            SwingUtilities.invokeLater(() -> refresh(flipsMaybeChanged, validLoginState));
-            return;
+        synchronized (pendingRefreshLock) {
+            pendingFlipsMaybeChanged |= flipsMaybeChanged;
+            pendingValidLoginState = validLoginState;
+            if (refreshScheduled) {
+                return;
+            }
+            refreshScheduled = true;
+        }
+        // the timer fires on the EDT
+        refreshTimer.start();
+    }
+
+    private void applyPendingRefresh() {
+        boolean flipsMaybeChanged;
+        boolean validLoginState;
+        synchronized (pendingRefreshLock) {
+            flipsMaybeChanged = pendingFlipsMaybeChanged;
+            validLoginState = pendingValidLoginState;
+            pendingFlipsMaybeChanged = false;
+            refreshScheduled = false;
         }
+        update(flipsMaybeChanged, validLoginState);
+    }
+
+    private void update(boolean flipsMaybeChanged, boolean validLoginState) {
         lastValidState = validLoginState;
         if (!validLoginState) {
+            displayedStats = null;
             totalProfitVal.setText("0 gp");
             roiVal.setText("-0.00%");
             flipsMadeVal.setText("0");
@@ -383,8 +468,8 @@ public class StatsPanelV2 extends JPanel {
             sessionTimeVal.setText("00:00:00");
             hourlyProfitVal.setText("0 gp/hr");
             avgCashVal.setText("0 gp");
-            flipsPanel.removeAll();
-            paginator.setTotalPages(1);
+            flipListModel.update(0);
+            topItemsPanel.setItems(Collections.emptyList());
             boolean v = IntervalTimeUnit.SESSION.equals(selectedIntervalTimeUnit);
             SESSION_STATS_INDS.forEach(i -> subInfoPanel.getComponent(i).setVisible(v));
             rsAccountDropdownModel.removeAllElements();
@@ -410,18 +495,33 @@ public class StatsPanelV2 extends JPanel {
 
         SessionData sd = sessionManager.getCachedSessionData();
         Stats stats = flipManager.getIntervalStats();
-        paginator.setTotalPages(1 + stats.flipsMade / 50);
         long s = System.nanoTime();
         if (flipsMaybeChanged) {
-            flipsPanel.removeAll();
-            flipManager.getPageFlips(paginator.getPageNumber(), 50).forEach(f -> flipsPanel.add(new FlipPanel(f, config)));
-            // labels displayed to the user
-            roiVal.setText(String.format("%.3f%%", stats.calculateRoi() * 100));
-            roiVal.setForeground(UIUtilities.getProfitColor(stats.profit, config));
-            flipsMadeVal.setText(String.format("%d", stats.flipsMade));
-            taxPaidVal.setText(UIUtilities.formatProfit(stats.taxPaid));
-            totalProfitVal.setText(UIUtilities.formatProfit(stats.profit));
-            totalProfitVal.setForeground(UIUtilities.getProfitColor(stats.profit, config));
+            // the flip rows and item table only repaint what differs from what they show, except when the profit
+            // colours changed which affects every row
+            boolean colorsChanged = !Objects.equals(config.profitAmountColor(), displayedProfitColor)
+                    || !Objects.equals(config.lossAmountColor(), displayedLossColor);
+            displayedProfitColor = config.profitAmountColor();
+            displayedLossColor = config.lossAmountColor();
+            if (showingItems) {
+                topItemsPanel.setItems(flipManager.getIntervalItemStats());
+            } else {
+                flipListModel.update(stats.flipsMade);
+            }
+            if (colorsChanged) {
+                flipList.repaint();
+                topItemsPanel.repaint();
+            }
+            if (colorsChanged || !stats.equals(displayedStats)) {
+                // labels displayed to the user
+                roiVal.setText(String.format("%.3f%%", stats.calculateRoi() * 100));
+                roiVal.setForeground(UIUtilities.getProfitColor(stats.profit, config));
+                flipsMadeVal.setText(String.format("%d", stats.flipsMade));
+                taxPaidVal.setText(UIUtilities.formatProfit(stats.taxPaid));
+                totalProfitVal.setText(UIUtilities.formatProfit(stats.profit));
+                totalProfitVal.setForeground(UIUtilities.getProfitColor(stats.profit, config));
+                displayedStats = stats;
+            }
             log.debug("populating flips took {}ms", (System.nanoTime() - s) / 1000_000);
         }
 
@@ -0,0 +1,183 @@
+package com.flippingcopilot.ui;
+
+import com.flippingcopilot.controller.FlippingCopilotConfig;
+import com.flippingcopilot.model.ItemStats;
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.FontManager;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableRowSorter;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A table of the per item stats of the selected interval, sortable by any column and most profitable first until
+ * another column header is clicked.
+ */
+public class TopItemsPanel extends JPanel {
+
+    private static final String[] COLUMNS = {"Item", "Profit", "ROI", "Flips", "Hold"};
+    private static final int PROFIT_COLUMN = 1;
+
+    private final ItemStatsTableModel model = new ItemStatsTableModel();
+
+    public TopItemsPanel(FlippingCopilotConfig config) {
+        setLayout(new BorderLayout());
+        setBackground(ColorScheme.DARKER_GRAY_COLOR);
+
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.setShowGrid(false);
+        table.setIntercellSpacing(new Dimension(0, 0));
+        table.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        table.setFont(FontManager.getRunescapeSmallFont());
+        table.setRowHeight(18);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getTableHeader().setFont(FontManager.getRunescapeSmallFont());
+
+        TableRowSorter<ItemStatsTableModel> sorter = new TableRowSorter<>(model);
+        sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(PROFIT_COLUMN, SortOrder.DESCENDING)));
+        // setItems only reports the rows that changed, which may need to move
+        sorter.setSortsOnUpdates(true);
+        table.setRowSorter(sorter);
+
+        DefaultTableCellRenderer renderer = new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                ItemStats s = model.items.get(table.convertRowIndexToModel(row));
+                Component c = super.getTableCellRendererComponent(table, format(s, column), isSelected, hasFocus, row, column);
+                setHorizontalAlignment(column == 0 ? SwingConstants.LEFT : SwingConstants.RIGHT);
+                if (column == 1 || column == 2) {
+                    c.setForeground(UIUtilities.getProfitColor(s.profit, config));
+                } else {
+                    c.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
+                }
+                setToolTipText(column == 0 ? s.itemName : null);
+                return c;
+            }
+        };
+        for (int i = 0; i < COLUMNS.length; i++) {
+            // set on every column since the numeric columns would otherwise get the default number renderer
+            table.getColumnModel().getColumn(i).setCellRenderer(renderer);
+            table.getColumnModel().getColumn(i).setPreferredWidth(i == 0 ? 80 : 40);
+        }
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        scrollPane.getVerticalScrollBar().setPreferredSize(new Dimension(2, 0));
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    /**
+     * Shows the items, repainting only the rows whose stats changed when the same items are shown in the same order.
+     */
+    public void setItems(List<ItemStats> items) {
+        List<ItemStats> previous = model.items;
+        model.items = new ArrayList<>(items);
+        if (previous.size() != items.size()) {
+            model.fireTableDataChanged();
+            return;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (previous.get(i).itemId != items.get(i).itemId) {
+                model.fireTableDataChanged();
+                return;
+            }
+        }
+        // a single event over the changed range, since the sorter re-sorts the whole table on every update event
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < items.size(); i++) {
+            if (!previous.get(i).equals(items.get(i))) {
+                if (first == -1) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        if (first != -1) {
+            model.fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private static String format(ItemStats s, int column) {
+        switch (column) {
+            case 0:
+                return s.itemName;
+            case 1:
+                return UIUtilities.formatProfitWithoutGp(s.profit);
+            case 2:
+                return String.format("%.1f%%", s.calculateRoi() * 100);
+            case 3:
+                return String.valueOf(s.flipsMade);
+            default:
+                return formatDuration(s.calculateAverageHoldSeconds());
+        }
+    }
+
+    private static String formatDuration(long seconds) {
+        if (seconds < 60 * 60) {
+            return (seconds / 60) + "m";
+        } else if (seconds < 24 * 60 * 60) {
+            return (seconds / 3600) + "h";
+        }
+        return (seconds / (24 * 60 * 60)) + "d";
+    }
+
+    private static class ItemStatsTableModel extends AbstractTableModel {
+
+        private List<ItemStats> items = new ArrayList<>();
+
+        @Override
+        public int getRowCount() {
+            return items.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0:
+                    return String.class;
+                case 1:
+                case 4:
+                    return Long.class;
+                case 2:
+                    return Float.class;
+                default:
+                    return Integer.class;
+            }
+        }
+
+        // the raw values, which the row sorter compares, the renderer formats them
+        @Override
+        public Object getValueAt(int row, int column) {
+            ItemStats s = items.get(row);
+            switch (column) {
+                case 0:
+                    return s.itemName;
+                case 1:
+                    return s.profit;
+                case 2:
+                    return s.calculateRoi();
+                case 3:
+                    return s.flipsMade;
+                default:
+                    return s.calculateAverageHoldSeconds();
+            }
+        }
+    }
+}
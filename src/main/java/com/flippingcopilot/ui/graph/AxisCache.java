@@ -0,0 +1,123 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.UIUtilities;
+import com.flippingcopilot.ui.graph.model.PriceAxis;
+import com.flippingcopilot.ui.graph.model.TimeAxis;
+
+import java.awt.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.function.IntFunction;
+
+/**
+ * Memoises the axis tick layouts for the current view along with the formatted tick labels and their measured
+ * widths. Repainting the same view reuses the layouts as they are. When the view moves, the new layout keeps the
+ * labels of any ticks that were already on screen, so panning only formats the ticks that scroll into view.
+ */
+public class AxisCache {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("d MMM");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final IntFunction<String> priceFormat;
+
+    private TimeAxis timeAxis;
+    private int timeMin, timeMax, timeOffset;
+    private Font timeFont;
+
+    private PriceAxis priceAxis;
+    private int priceMin, priceMax;
+    private Font priceFont;
+
+    public AxisCache() {
+        this(p -> UIUtilities.quantityToRSDecimalStack(p, true));
+    }
+
+    public AxisCache(IntFunction<String> priceFormat) {
+        this.priceFormat = priceFormat;
+    }
+
+    public TimeAxis timeAxis(PlotArea pa, int localTimeOffsetSeconds, FontMetrics metrics) {
+        if (timeAxis != null && pa.bounds.xMin == timeMin && pa.bounds.xMax == timeMax
+                && localTimeOffsetSeconds == timeOffset && metrics.getFont().equals(timeFont)) {
+            return timeAxis;
+        }
+        TimeAxis axis = AxisCalculator.calculateTimeAxis(pa, localTimeOffsetSeconds);
+        // labels from a different zone or font can't be reused
+        boolean reuse = timeAxis != null && localTimeOffsetSeconds == timeOffset && metrics.getFont().equals(timeFont);
+        ZoneId zone = ZoneId.systemDefault();
+
+        axis.dateLabels = new String[axis.dateOnlyTickTimes.length];
+        axis.dateLabelWidths = new int[axis.dateOnlyTickTimes.length];
+        for (int i = 0; i < axis.dateOnlyTickTimes.length; i++) {
+            int t = axis.dateOnlyTickTimes[i];
+            int j = reuse ? indexOf(timeAxis.dateOnlyTickTimes, t) : -1;
+            if (j != -1) {
+                axis.dateLabels[i] = timeAxis.dateLabels[j];
+                axis.dateLabelWidths[i] = timeAxis.dateLabelWidths[j];
+            } else {
+                axis.dateLabels[i] = DATE_FORMAT.format(Instant.ofEpochSecond(t).atZone(zone));
+                axis.dateLabelWidths[i] = metrics.stringWidth(axis.dateLabels[i]);
+            }
+        }
+        axis.timeLabels = new String[axis.timeOnlyTickTimes.length];
+        axis.timeLabelWidths = new int[axis.timeOnlyTickTimes.length];
+        for (int i = 0; i < axis.timeOnlyTickTimes.length; i++) {
+            int t = axis.timeOnlyTickTimes[i];
+            int j = reuse ? indexOf(timeAxis.timeOnlyTickTimes, t) : -1;
+            if (j != -1) {
+                axis.timeLabels[i] = timeAxis.timeLabels[j];
+                axis.timeLabelWidths[i] = timeAxis.timeLabelWidths[j];
+            } else {
+                axis.timeLabels[i] = TIME_FORMAT.format(Instant.ofEpochSecond(t).atZone(zone));
+                axis.timeLabelWidths[i] = metrics.stringWidth(axis.timeLabels[i]);
+            }
+        }
+
+        timeAxis = axis;
+        timeMin = pa.bounds.xMin;
+        timeMax = pa.bounds.xMax;
+        timeOffset = localTimeOffsetSeconds;
+        timeFont = metrics.getFont();
+        return axis;
+    }
+
+    public PriceAxis priceAxis(PlotArea pa, FontMetrics metrics) {
+        if (priceAxis != null && pa.bounds.yMin == priceMin && pa.bounds.yMax == priceMax && metrics.getFont().equals(priceFont)) {
+            return priceAxis;
+        }
+        PriceAxis axis = AxisCalculator.calculatePriceAxis(pa);
+        boolean reuse = priceAxis != null && metrics.getFont().equals(priceFont);
+
+        axis.tickLabels = new String[axis.tickPrices.length];
+        axis.tickLabelWidths = new int[axis.tickPrices.length];
+        for (int i = 0; i < axis.tickPrices.length; i++) {
+            int p = axis.tickPrices[i];
+            int j = reuse ? indexOf(priceAxis.tickPrices, p) : -1;
+            if (j != -1) {
+                axis.tickLabels[i] = priceAxis.tickLabels[j];
+                axis.tickLabelWidths[i] = priceAxis.tickLabelWidths[j];
+            } else {
+                axis.tickLabels[i] = priceFormat.apply(p);
+                axis.tickLabelWidths[i] = metrics.stringWidth(axis.tickLabels[i]);
+            }
+        }
+
+        priceAxis = axis;
+        priceMin = pa.bounds.yMin;
+        priceMax = pa.bounds.yMax;
+        priceFont = metrics.getFont();
+        return axis;
+    }
+
+    // there are only ever a few ticks so a scan is cheaper than a map
+    private static int indexOf(int[] a, int v) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == v) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
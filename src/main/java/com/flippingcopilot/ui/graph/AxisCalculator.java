@@ -8,9 +8,13 @@ import com.flippingcopilot.ui.graph.model.TimeAxis;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.Arrays;
 
 public class AxisCalculator {
 
+    private static final int[] FEW_DAYS_TICK_HOURS = {6, 12, 18};
+    private static final int[] MANY_DAYS_TICK_HOURS = {12};
+
     public static TimeAxis calculateTimeAxis(PlotArea pa, int localTimeOffsetSeconds) {
 
         int timeMin = pa.bounds.xMin;
@@ -21,40 +25,32 @@ public class AxisCalculator {
 
         int maxDay = ((timeMax + localTimeOffsetSeconds) / Constants.DAY_SECONDS) * Constants.DAY_SECONDS - localTimeOffsetSeconds;
         int minDay = ((timeMin + localTimeOffsetSeconds) / Constants.DAY_SECONDS) * Constants.DAY_SECONDS - localTimeOffsetSeconds;
-        int[] dayTicks = new int[]{};
-        while (maxDay > timeMin) {
-            dayTicks = append(dayTicks, maxDay);
-            maxDay -= daysStep * Constants.DAY_SECONDS;
+        int dayCount = 0;
+        for (int d = maxDay; d > timeMin; d -= daysStep * Constants.DAY_SECONDS) {
+            dayCount++;
+        }
+        int[] dayTicks = new int[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            dayTicks[i] = maxDay - i * daysStep * Constants.DAY_SECONDS;
         }
 
-        int[] timeTicks = new int[]{};
-        if (daysStep == 1) {
-            if (dayTicks.length < 5) {
-                // add 06:00, 12:00, 18:00
-                for (int d : preAppend(dayTicks, minDay)) {
-                    int tick06 = d + 6 * 60 * 60;     // 06:00
-                    int tick12 = d + 12 * 60 * 60;    // 12:00
-                    int tick18 = d + 18 * 60 * 60;    // 18:00
-
-                    if (tick06 < timeMax && tick06 > timeMin) {
-                        timeTicks = append(timeTicks, tick06);
-                    }
-                    if (tick12 < timeMax && tick12 > timeMin) {
-                        timeTicks = append(timeTicks, tick12);
-                    }
-                    if (tick18 < timeMax && tick18 > timeMin) {
-                        timeTicks = append(timeTicks, tick18);
-                    }
-                }
-            } else if (dayTicks.length < 10){
-                // add only 12:00
-                for (int d : preAppend(dayTicks, dayTicks[0] - Constants.DAY_SECONDS)) {
-                    int tick12 = d + 12 * 60 * 60;    // 12:00
-                    if (tick12 > timeMin && tick12 < timeMax) {
-                        timeTicks = append(timeTicks, tick12);
+        int[] timeTicks = new int[0];
+        if (daysStep == 1 && dayCount < 10) {
+            // add 06:00, 12:00, 18:00 when there are few days, otherwise only 12:00
+            int firstDay = dayCount < 5 ? minDay : dayTicks[0] - Constants.DAY_SECONDS;
+            int[] hours = dayCount < 5 ? FEW_DAYS_TICK_HOURS : MANY_DAYS_TICK_HOURS;
+            int[] buffer = new int[(dayCount + 1) * hours.length];
+            int n = 0;
+            for (int i = -1; i < dayCount; i++) {
+                int d = i == -1 ? firstDay : dayTicks[i];
+                for (int hour : hours) {
+                    int tick = d + hour * 60 * 60;
+                    if (tick > timeMin && tick < timeMax) {
+                        buffer[n++] = tick;
                     }
                 }
             }
+            timeTicks = Arrays.copyOf(buffer, n);
         }
 
         return new TimeAxis(
@@ -131,20 +127,6 @@ public class AxisCalculator {
     }
 
 
-    public static int[] append(int[] arr, int v) {
-        int[] result = new int[arr.length + 1];
-        System.arraycopy(arr, 0, result, 0, arr.length);
-        result[arr.length] = v;
-        return result;
-    }
-
-    public static int[] preAppend(int[] arr, int v) {
-        int[] result = new int[arr.length + 1];
-        result[0] = v;
-        System.arraycopy(arr, 0, result, 1, arr.length);
-        return result;
-    }
-
     public static int getLocalTimeOffsetSeconds() {
         ZoneOffset offset = ZoneId.systemDefault().getRules().getOffset(Instant.now());
         return offset.getTotalSeconds();
@@ -0,0 +1,73 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Series;
+
+/**
+ * Answers the lowest and highest price and the price sum of any index range of a series in O(log n), so the bounds
+ * of a time window can be found without scanning its points. The min and max are kept in an iterative segment tree
+ * (leaves at [n, 2n), each parent the min / max of its two children) with the IQR bounds folded in for predictions,
+ * and the sums as prefix sums.
+ */
+public class BoundsIndex {
+
+    private final int n;
+    private final int[] mins;
+    private final int[] maxs;
+    // prefixSums[i] is the sum of the prices before index i
+    private final long[] prefixSums;
+
+    public BoundsIndex(Series s) {
+        n = s.size;
+        mins = new int[2 * n];
+        maxs = new int[2 * n];
+        prefixSums = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            mins[n + i] = s.isPrediction() ? Math.min(s.prices[i], s.iqrLower[i]) : s.prices[i];
+            maxs[n + i] = s.isPrediction() ? Math.max(s.prices[i], s.iqrUpper[i]) : s.prices[i];
+            prefixSums[i + 1] = prefixSums[i] + s.prices[i];
+        }
+        for (int i = n - 1; i > 0; i--) {
+            mins[i] = Math.min(mins[2 * i], mins[2 * i + 1]);
+            maxs[i] = Math.max(maxs[2 * i], maxs[2 * i + 1]);
+        }
+    }
+
+    /**
+     * The lowest price of the points [from, to), Integer.MAX_VALUE if the range is empty.
+     */
+    public int min(int from, int to) {
+        int min = Integer.MAX_VALUE;
+        for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                min = Math.min(min, mins[l++]);
+            }
+            if ((r & 1) == 1) {
+                min = Math.min(min, mins[--r]);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * The highest price of the points [from, to), Integer.MIN_VALUE if the range is empty.
+     */
+    public int max(int from, int to) {
+        int max = Integer.MIN_VALUE;
+        for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                max = Math.max(max, maxs[l++]);
+            }
+            if ((r & 1) == 1) {
+                max = Math.max(max, maxs[--r]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * The sum of the prices of the points [from, to), not including the IQR bounds.
+     */
+    public long priceSum(int from, int to) {
+        return prefixSums[to] - prefixSums[from];
+    }
+}
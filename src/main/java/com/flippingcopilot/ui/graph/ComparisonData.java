@@ -0,0 +1,121 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Bounds;
+import com.flippingcopilot.ui.graph.model.Data;
+import com.flippingcopilot.ui.graph.model.Series;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The low price series of several items normalised so they can be compared on one graph. Each item's prices are
+ * expressed in basis points of its price at the start of the time all the items have data for (so UNCHANGED is no
+ * change) and are reduced to the lowest and highest point of each of at most MAX_BUCKETS time buckets, which bounds
+ * the memory per item however long its history is. The item's Data isn't kept.
+ */
+public class ComparisonData {
+
+    public static final int UNCHANGED = 10_000;
+    private static final int MAX_BUCKETS = 1000;
+
+    public final int[] itemIds;
+    public final String[] names;
+    public final Series[] series;
+    private final BoundsIndex[] boundsIndexes;
+
+    public ComparisonData(List<Data> items) {
+        List<Data> withData = new ArrayList<>();
+        List<Series> lows = new ArrayList<>();
+        for (Data d : items) {
+            Series s = Series.merge(true, d.low1hTimes, d.low1hPrices, d.low5mTimes, d.low5mPrices, d.lowLatestTimes, d.lowLatestPrices);
+            if (!s.isEmpty()) {
+                withData.add(d);
+                lows.add(s);
+            }
+        }
+
+        int start = Integer.MIN_VALUE;
+        int end = Integer.MIN_VALUE;
+        for (Series s : lows) {
+            start = Math.max(start, s.times[0]);
+            end = Math.max(end, s.times[s.size - 1]);
+        }
+        int bucketSeconds = Math.max(1, (end - start) / MAX_BUCKETS + 1);
+
+        itemIds = new int[lows.size()];
+        names = new String[lows.size()];
+        series = new Series[lows.size()];
+        boundsIndexes = new BoundsIndex[lows.size()];
+        for (int i = 0; i < lows.size(); i++) {
+            itemIds[i] = withData.get(i).itemId;
+            names[i] = withData.get(i).name;
+            series[i] = normalise(lows.get(i), start, bucketSeconds);
+            boundsIndexes[i] = new BoundsIndex(series[i]);
+        }
+    }
+
+    public boolean isEmpty() {
+        return series.length == 0;
+    }
+
+    /**
+     * Calculates the bounds of all the points with a time after fromTime, padded slightly so the lines aren't drawn
+     * on the edge of the plot area.
+     */
+    public Bounds calculateBounds(int fromTime) {
+        Bounds b = new Bounds(Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        for (int s = 0; s < series.length; s++) {
+            int from = series[s].firstIndexAfter(fromTime);
+            int to = series[s].size;
+            if (from >= to) {
+                continue;
+            }
+            b.xMin = Math.min(b.xMin, series[s].times[from]);
+            b.xMax = Math.max(b.xMax, series[s].times[to - 1]);
+            b.yMin = Math.min(b.yMin, boundsIndexes[s].min(from, to));
+            b.yMax = Math.max(b.yMax, boundsIndexes[s].max(from, to));
+        }
+        int padding = Math.max(10, (int) (((long) b.yMax - b.yMin) / 20));
+        b.yMin = Math.max(0, b.yMin - padding);
+        b.yMax += padding;
+        return b;
+    }
+
+    // the points from start on as basis points of the price at start, keeping the lowest and highest of each bucket
+    // along with the first and last point so the lines start at UNCHANGED and end at the latest price
+    private static Series normalise(Series s, int start, int bucketSeconds) {
+        int from = s.firstIndexAfter(start - 1);
+        int last = s.size - 1;
+        long base = Math.max(1, s.prices[from]);
+        int[] times = new int[Math.min(s.size - from, 2 * (MAX_BUCKETS + 1) + 2)];
+        int[] prices = new int[times.length];
+        int n = 0;
+        int i = from;
+        while (i < s.size) {
+            int bucketStart = i;
+            int bucket = (s.times[i] - start) / bucketSeconds;
+            int low = i, high = i;
+            for (i++; i < s.size && (s.times[i] - start) / bucketSeconds == bucket; i++) {
+                if (s.prices[i] < s.prices[low]) {
+                    low = i;
+                } else if (s.prices[i] > s.prices[high]) {
+                    high = i;
+                }
+            }
+            // the bucket's points to keep in time order, which the first and last point of the series can be among
+            int[] keep = {bucketStart == from ? from : -1, Math.min(low, high), Math.max(low, high), i - 1 == last ? last : -1};
+            int previous = -1;
+            for (int k : keep) {
+                if (k > previous) {
+                    times[n] = s.times[k];
+                    prices[n++] = (int) (UNCHANGED * (long) s.prices[k] / base);
+                    previous = k;
+                }
+            }
+        }
+        times = Arrays.copyOf(times, n);
+        prices = Arrays.copyOf(prices, n);
+        return Series.merge(true, times, prices, null, null, null, null);
+    }
+}
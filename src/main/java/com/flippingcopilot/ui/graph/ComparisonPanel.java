@@ -0,0 +1,160 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.manger.PriceGraphConfigManager;
+import com.flippingcopilot.ui.graph.model.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+
+/**
+ * Draws the normalised price series of several items on one graph with a shared time axis, the y-axis showing the
+ * change since the start of the graph. Zooming and panning work as on the single item graph, with the mouse wheel,
+ * dragging or the view buttons.
+ */
+public class ComparisonPanel extends JPanel {
+
+    private final PriceGraphConfigManager configManager;
+    private final ComparisonData data;
+    private final RenderV2 renderer = new RenderV2();
+    private final AxisCache axisCache = new AxisCache(ComparisonPanel::formatChange);
+    private final ZoomHandler zoomHandler = new ZoomHandler();
+    private final PlotArea pa = new PlotArea();
+    private final Color[] colors;
+    private final Timer animationTimer;
+
+    private Point mousePosition = new Point(0, 0);
+
+    public ComparisonPanel(ComparisonData data, PriceGraphConfigManager configManager) {
+        this.data = data;
+        this.configManager = configManager;
+        this.colors = new Color[data.series.length];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = Config.COMPARISON_COLORS[i % Config.COMPARISON_COLORS.length];
+        }
+        this.animationTimer = new Timer(ZoomHandler.ANIMATION_FRAME_MILLIS, e -> {
+            zoomHandler.stepAnimation(pa);
+            if (!zoomHandler.isAnimating()) {
+                ((Timer) e.getSource()).stop();
+            }
+            repaint();
+        });
+
+        setBackground(configManager.getConfig().backgroundColor);
+        setPreferredSize(new Dimension(500, 300));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        zoomHandler.maxViewBounds = data.calculateBounds(Integer.MIN_VALUE);
+        zoomHandler.homeViewBounds = data.calculateBounds(zoomHandler.maxViewBounds.xMax - 4 * Constants.DAY_SECONDS);
+        zoomHandler.weekViewBounds = data.calculateBounds(zoomHandler.maxViewBounds.xMax - 7 * Constants.DAY_SECONDS);
+        zoomHandler.monthViewBounds = data.calculateBounds(zoomHandler.maxViewBounds.xMax - 30 * Constants.DAY_SECONDS);
+        pa.bounds = zoomHandler.maxViewBounds.copy();
+        setupMouseListeners();
+    }
+
+    private static String formatChange(int basisPoints) {
+        return String.format("%+.1f%%", (basisPoints - ComparisonData.UNCHANGED) / 100.0);
+    }
+
+    private void setupMouseListeners() {
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                mousePosition = e.getPoint();
+                repaint();
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                mousePosition = e.getPoint();
+                Point plotPoint = pa.relativePoint(mousePosition);
+                if (!pa.pointInPlotArea(plotPoint)) {
+                    return;
+                }
+                if (zoomHandler.isOverHomeButton(plotPoint)) {
+                    zoomHandler.applyHomeView(pa);
+                } else if (zoomHandler.isOverMaxButton(plotPoint)) {
+                    zoomHandler.applyMaxView(pa);
+                } else if (zoomHandler.isOverZoomInButton(plotPoint)) {
+                    zoomHandler.applyZoomIn(pa);
+                } else if (zoomHandler.isOverZoomOutButton(plotPoint)) {
+                    zoomHandler.applyZoomOut(pa);
+                } else if (zoomHandler.isOverWeekButton(plotPoint)) {
+                    zoomHandler.applyWeekView(pa);
+                } else if (zoomHandler.isOverMonthButton(plotPoint)) {
+                    zoomHandler.applyMonthView(pa);
+                } else {
+                    zoomHandler.startPan(pa, plotPoint);
+                    setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
+                    return;
+                }
+                animationTimer.start();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                mousePosition = e.getPoint();
+                if (zoomHandler.isPanning()) {
+                    zoomHandler.applyPan(pa, pa.relativePoint(mousePosition));
+                    repaint();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                mousePosition = e.getPoint();
+                if (zoomHandler.isPanning()) {
+                    setCursor(Cursor.getDefaultCursor());
+                    zoomHandler.endPan();
+                    repaint();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                mousePosition = e.getPoint();
+                Point plotPoint = pa.relativePoint(mousePosition);
+                if (plotPoint.x < 0 || plotPoint.y < 0 || !pa.pointInPlotArea(plotPoint) || zoomHandler.isPanning()) {
+                    return;
+                }
+                zoomHandler.applyWheelZoom(pa, plotPoint, e.getPreciseWheelRotation());
+                repaint();
+            }
+        };
+
+        addMouseMotionListener(mouseAdapter);
+        addMouseListener(mouseAdapter);
+        addMouseWheelListener(mouseAdapter);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        pa.w = getWidth() - pa.leftPadding - pa.rightPadding;
+        pa.h = getHeight() - pa.topPadding - pa.bottomPadding;
+        if (pa.w <= 0 || pa.h <= 0) return;
+
+        Config config = configManager.getConfig();
+        setBackground(config.backgroundColor);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        Graphics2D plotAreaG2 = (Graphics2D) g2.create(pa.leftPadding, pa.topPadding, pa.w, pa.h);
+        renderer.drawComparisonLegend(g2, config, pa, data.names, colors);
+        plotAreaG2.setColor(config.plotAreaColor);
+        plotAreaG2.fillRect(0, 0, pa.w, pa.h);
+
+        FontMetrics labelMetrics = g2.getFontMetrics(g2.getFont().deriveFont(Config.FONT_SIZE));
+        TimeAxis xAxis = axisCache.timeAxis(pa, AxisCalculator.getLocalTimeOffsetSeconds(), labelMetrics);
+        PriceAxis yAxis = axisCache.priceAxis(pa, labelMetrics);
+        renderer.drawGrid(plotAreaG2, config, pa, xAxis, yAxis);
+        renderer.drawAxes(g2, config, pa, xAxis, yAxis);
+
+        for (int i = 0; i < data.series.length; i++) {
+            renderer.drawLines(plotAreaG2, pa, data.series[i], colors[i], Config.NORMAL_STROKE);
+        }
+        zoomHandler.drawButtons(plotAreaG2, pa, pa.relativePoint(mousePosition));
+        plotAreaG2.dispose();
+    }
+}
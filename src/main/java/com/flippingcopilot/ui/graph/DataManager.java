@@ -1,29 +1,26 @@
 package com.flippingcopilot.ui.graph;
 
 import com.flippingcopilot.ui.graph.model.Bounds;
-import com.flippingcopilot.ui.graph.model.Constants;
 import com.flippingcopilot.ui.graph.model.Data;
-import com.flippingcopilot.ui.graph.model.Datapoint;
+import com.flippingcopilot.ui.graph.model.Series;
 import com.flippingcopilot.util.GeTax;
 import lombok.Getter;
 
-import java.awt.*;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.function.Predicate;
 
 
 @Getter
 public class DataManager {
 
-    public final List<Datapoint> highDatapoints = new ArrayList<>();
-    public final List<Datapoint> lowDatapoints = new ArrayList<>();
-    public final List<Datapoint> predictionLowDatapoints = new ArrayList<>();
-    public final List<Datapoint> predictionHighDatapoints = new ArrayList<>();
+    public final Series highs;
+    public final Series lows;
+    public final Series predictionLows;
+    public final Series predictionHighs;
+    // all of the series, in the order hovering prefers them
+    public final Series[] series;
+    // range summaries of each of the series, for the bounds of a time window
+    private final BoundsIndex[] boundsIndexes;
 
     public final Data data;
     public double priceChange24H = 0;
@@ -38,32 +35,66 @@ public class DataManager {
 
 
     public DataManager(Data data) {
+        this(data, null);
+    }
+
+    private DataManager(Data data, DataManager previous) {
         this.data = data;
-        processDatapoints();
+        if (previous == null) {
+            this.lows = Series.merge(true, data.low1hTimes, data.low1hPrices, data.low5mTimes, data.low5mPrices, data.lowLatestTimes, data.lowLatestPrices);
+            this.highs = Series.merge(false, data.high1hTimes, data.high1hPrices, data.high5mTimes, data.high5mPrices, data.highLatestTimes, data.highLatestPrices);
+        } else {
+            this.lows = previous.lows.update(data.low1hTimes, data.low1hPrices, data.low5mTimes, data.low5mPrices, data.lowLatestTimes, data.lowLatestPrices);
+            this.highs = previous.highs.update(data.high1hTimes, data.high1hPrices, data.high5mTimes, data.high5mPrices, data.highLatestTimes, data.highLatestPrices);
+        }
+        this.predictionLows = Series.prediction(true, data.predictionTimes, data.predictionLowMeans, data.predictionLowIQRLower, data.predictionLowIQRUpper);
+        this.predictionHighs = Series.prediction(false, data.predictionTimes, data.predictionHighMeans, data.predictionHighIQRLower, data.predictionHighIQRUpper);
+        this.series = new Series[]{highs, lows, predictionLows, predictionHighs};
+        this.boundsIndexes = new BoundsIndex[series.length];
+        for (int s = 0; s < series.length; s++) {
+            boundsIndexes[s] = new BoundsIndex(series[s]);
+        }
         calculateStats();
     }
 
-    public Datapoint findClosestPoint(Point mousePos, int hoverRadius, PlotArea pa) {
-        if (mousePos == null) return null;
-
-        Datapoint closest = null;
-        double minDistance = hoverRadius;
+    /**
+     * Returns a DataManager for updated data of the same item, reusing the merged 1h and 5m points of this one
+     * when only the latest prices and predictions have changed.
+     */
+    public DataManager update(Data newData) {
+        return new DataManager(newData, this);
+    }
 
-        for(List<Datapoint> datapoints : Arrays.asList(highDatapoints, lowDatapoints, predictionLowDatapoints, predictionHighDatapoints)) {
-            for (Datapoint d : datapoints) {
-                Point hoverPosition = d.getHoverPosition(pa);
-                double distance = mousePos.distance(hoverPosition);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    closest = d;
-                }
+    /**
+     * Returns the time from which the points differ from those of the previous data, including the point before
+     * the first difference as the line to it changes too. Integer.MAX_VALUE if nothing has changed.
+     */
+    public int firstChangedTime(DataManager previous) {
+        int from = Integer.MAX_VALUE;
+        for (int s = 0; s < series.length; s++) {
+            int i = series[s].firstDifference(previous.series[s]);
+            if (i == 0) {
+                return Integer.MIN_VALUE;
+            } else if (i > 0) {
+                from = Math.min(from, series[s].times[i - 1]);
             }
         }
-        return closest;
+        return from;
     }
 
+    /**
+     * Calculates the bounds of all the points with a time after fromTime, padded slightly so points aren't drawn
+     * on the edge of the plot area.
+     */
+    public Bounds calculateBounds(int fromTime) {
+        return calculateBounds(fromTime, Integer.MAX_VALUE);
+    }
 
-    public Bounds calculateBounds(Predicate<Datapoint> p) {
+    /**
+     * Calculates the bounds of the points with a time after fromTime up to and including toTime, padded slightly so
+     * points aren't drawn on the edge of the plot area. Takes O(log n) per series.
+     */
+    public Bounds calculateBounds(int fromTime, int toTime) {
         Bounds b = new Bounds();
 
         b.xMin = Integer.MAX_VALUE;
@@ -71,34 +102,27 @@ public class DataManager {
         b.yMax =  Integer.MIN_VALUE;
         b.yMin = Integer.MAX_VALUE;
 
-        long yMean = 0;
+        long ySum = 0;
         long n = 0;
 
-        for(List<Datapoint> datapoints : Arrays.asList(highDatapoints, lowDatapoints, predictionLowDatapoints, predictionHighDatapoints)) {
-            for (Datapoint d : datapoints) {
-                if (p.test(d)) {
-                    yMean = (n * yMean + (long) d.price) / (n+1);
-                    n+=1;
-
-                    b.xMin = Math.min(b.xMin, d.time);
-                    b.xMax = Math.max(b.xMax, d.time);
-
-                    // Update price bounds
-                    b.yMin = Math.min(b.yMin, d.price);
-                    b.yMax = Math.max(b.yMax, d.price);
-
-                    // Check IQR bounds for prediction points
-                    if (d.type == Datapoint.Type.PREDICTION) {
-                        if (d.iqrLower != null) {
-                            b.yMin = Math.min(b.yMin, d.iqrLower);
-                        }
-                        if (d.iqrUpper != null) {
-                            b.yMax = Math.max(b.yMax, d.iqrUpper);
-                        }
-                    }
-                }
+        for (int s = 0; s < series.length; s++) {
+            Series se = series[s];
+            int from = se.firstIndexAfter(fromTime);
+            int to = se.firstIndexAfter(toTime);
+            if (from >= to) {
+                continue;
             }
+            ySum += boundsIndexes[s].priceSum(from, to);
+            n += to - from;
+
+            b.xMin = Math.min(b.xMin, se.times[from]);
+            b.xMax = Math.max(b.xMax, se.times[to - 1]);
+
+            // includes the IQR bounds of prediction points
+            b.yMin = Math.min(b.yMin, boundsIndexes[s].min(from, to));
+            b.yMax = Math.max(b.yMax, boundsIndexes[s].max(from, to));
         }
+        long yMean = n > 0 ? ySum / n : 0;
         int pricePadding = (int) (0.03 * yMean);
         if (pricePadding < 1) pricePadding = 1;
 
@@ -108,118 +132,29 @@ public class DataManager {
         return b;
     }
 
-    private void processDatapoints() {
-        highDatapoints.clear();
-        lowDatapoints.clear();
-        predictionHighDatapoints.clear();
-        predictionLowDatapoints.clear();
-        
-        // here we combine the hour / 5min / latest wiki price data points into a continuous dataset where hour points 
-        // transition into the 5min points that transition into the latest points. So we get increasingly finer granularity.
-        // We truncate the points correctly at the boundaries to ensure no overlap.
-
-        for (int i = 0; i < data.lowLatestTimes.length; i++) {
-            lowDatapoints.add(new Datapoint(data.lowLatestTimes[i], data.lowLatestPrices[i], true, Datapoint.Type.INSTA_SELL_BUY));
-        }
-        int fiveMinLowsCut;
-        if (!lowDatapoints.isEmpty()) {
-            fiveMinLowsCut = Constants.FIVE_MIN_SECONDS * (lowDatapoints.get(0).time / Constants.FIVE_MIN_SECONDS)  + Constants.FIVE_MIN_SECONDS;
-            lowDatapoints.removeIf((i) -> i.time < fiveMinLowsCut);
-        } else {
-            fiveMinLowsCut = Integer.MAX_VALUE;
-        }
-        for (int i = data.low5mTimes.length-1; i >= 0; i--) {
-            if (data.low5mTimes[i] < fiveMinLowsCut) {
-                lowDatapoints.add(0, new Datapoint(data.low5mTimes[i], data.low5mPrices[i], true, Datapoint.Type.FIVE_MIN_AVERAGE));
-            }
-        }
-        int oneHourLowsCut;
-        if (!lowDatapoints.isEmpty()) {
-            oneHourLowsCut = Constants.HOUR_SECONDS * (lowDatapoints.get(0).time / Constants.HOUR_SECONDS)  + Constants.HOUR_SECONDS;
-            lowDatapoints.removeIf((i) -> i.time < oneHourLowsCut);
-        } else {
-            oneHourLowsCut = Integer.MAX_VALUE;
-        }
-        for (int i = data.low1hTimes.length-1; i >= 0; i--) {
-            if (data.low1hTimes[i] < oneHourLowsCut) {
-                lowDatapoints.add(0, new Datapoint(data.low1hTimes[i], data.low1hPrices[i], true, Datapoint.Type.HOUR_AVERAGE));
-            }
-        }
-
-        for (int i = 0; i < data.highLatestTimes.length; i++) {
-            highDatapoints.add(new Datapoint(data.highLatestTimes[i], data.highLatestPrices[i], false, Datapoint.Type.INSTA_SELL_BUY));
-        }
-        int fiveMinHighsCut;
-        if (!highDatapoints.isEmpty()) {
-            fiveMinHighsCut = Constants.FIVE_MIN_SECONDS * (highDatapoints.get(0).time / Constants.FIVE_MIN_SECONDS)  + Constants.FIVE_MIN_SECONDS;
-            highDatapoints.removeIf((i) -> i.time < fiveMinHighsCut);
-        } else {
-            fiveMinHighsCut = Integer.MAX_VALUE;
-        }
-        for (int i = data.high5mTimes.length-1; i >= 0; i--) {
-            if (data.high5mTimes[i] < fiveMinHighsCut) {
-                highDatapoints.add(0, new Datapoint(data.high5mTimes[i], data.high5mPrices[i], false, Datapoint.Type.FIVE_MIN_AVERAGE));
-            }
-        }
-        int oneHourHighsCut;
-        if (!highDatapoints.isEmpty()) {
-            oneHourHighsCut = Constants.HOUR_SECONDS * (highDatapoints.get(0).time / Constants.HOUR_SECONDS)  + Constants.HOUR_SECONDS;
-            highDatapoints.removeIf((i) -> i.time < oneHourHighsCut);
-        } else {
-            oneHourHighsCut = Integer.MAX_VALUE;
-        }
-        for (int i = data.high1hTimes.length-1; i >= 0; i--) {
-            if (data.high1hTimes[i] < oneHourHighsCut) {
-                highDatapoints.add(0, new Datapoint(data.high1hTimes[i], data.high1hPrices[i], false, Datapoint.Type.HOUR_AVERAGE));
-            }
-        }
-        
-        // add the prediction data points
-        for (int i = 0; i < data.predictionTimes.length; i++) {
-            predictionLowDatapoints.add(new Datapoint(
-                    data.predictionTimes[i],
-                    data.predictionLowMeans[i],
-                    data.predictionLowIQRLower[i],
-                    data.predictionLowIQRUpper[i],
-                    true
-            ));
-            predictionHighDatapoints.add(new Datapoint(
-                    data.predictionTimes[i],
-                    data.predictionHighMeans[i],
-                    data.predictionHighIQRLower[i],
-                    data.predictionHighIQRUpper[i],
-                    false
-            ));
-        }
-    }
-
     private void calculateStats() {
         int cut24h = (int) Instant.now().minus(Duration.ofDays(1)).getEpochSecond();
         int cutWeek = (int) Instant.now().minus(Duration.ofDays(7)).getEpochSecond();
-        if (!lowDatapoints.isEmpty() && !highDatapoints.isEmpty()){
-            double priceCurrent = (lowDatapoints.get(lowDatapoints.size()-1).price *0.5 + highDatapoints.get(highDatapoints.size()-1).price *0.5);
-            double lowPrice24hAgo = lowDatapoints.stream().filter(i-> i.time > cut24h).findFirst().map(i -> (double) i.price).orElse(priceCurrent);
-            double highPrice24hAgo = highDatapoints.stream().filter(i-> i.time > cut24h).findFirst().map(i -> (double) i.price).orElse(priceCurrent);
-            double price24hAgo = lowPrice24hAgo*0.5 + highPrice24hAgo*0.5;
+        if (!lows.isEmpty() && !highs.isEmpty()){
+            double priceCurrent = (lows.prices[lows.size-1] *0.5 + highs.prices[highs.size-1] *0.5);
+            double price24hAgo = priceAfter(lows, cut24h, priceCurrent)*0.5 + priceAfter(highs, cut24h, priceCurrent)*0.5;
             if (price24hAgo > 0 ) {
                 this.priceChange24H = (priceCurrent - price24hAgo) / price24hAgo;
             }
-            double lowPriceWeekAgo = lowDatapoints.stream().filter(i-> i.time > cutWeek).findFirst().map(i -> (double) i.price).orElse(priceCurrent);
-            double highPriceWeekAgo = highDatapoints.stream().filter(i-> i.time > cutWeek).findFirst().map(i -> (double) i.price).orElse(priceCurrent);
-            double priceWeekAgo = lowPriceWeekAgo*0.5 + highPriceWeekAgo*0.5;
+            double priceWeekAgo = priceAfter(lows, cutWeek, priceCurrent)*0.5 + priceAfter(highs, cutWeek, priceCurrent)*0.5;
             if (priceWeekAgo > 0 ) {
                 this.priceChangeWeek = (priceCurrent - priceWeekAgo) / priceWeekAgo;
             }
         }
 
-        if(!highDatapoints.isEmpty()) {
-            lastHighTime = highDatapoints.get(highDatapoints.size()-1).time;
-            lastHighPrice = highDatapoints.get(highDatapoints.size()-1).price;
+        if(!highs.isEmpty()) {
+            lastHighTime = highs.times[highs.size-1];
+            lastHighPrice = highs.prices[highs.size-1];
         }
 
-        if(!lowDatapoints.isEmpty()) {
-            lastLowTime = lowDatapoints.get(lowDatapoints.size()-1).time;
-            lastLowPrice = lowDatapoints.get(lowDatapoints.size()-1).price;
+        if(!lows.isEmpty()) {
+            lastLowTime = lows.times[lows.size-1];
+            lastLowPrice = lows.prices[lows.size-1];
         }
 
         margin = data.sellPrice - data.buyPrice;
@@ -227,21 +162,9 @@ public class DataManager {
         profit = margin - tax;
     }
 
-    public List<Datapoint> sellPriceDataPoint() {
-        return Collections.singletonList(new Datapoint(
-                (int) Instant.now().getEpochSecond(),
-                (int) data.sellPrice,
-                false,
-                Datapoint.Type.PREDICTION
-        ));
-    }
-
-    public List<Datapoint> buyPriceDataPoint() {
-        return Collections.singletonList(new Datapoint(
-                (int) Instant.now().getEpochSecond(),
-                (int) data.buyPrice,
-                true,
-                Datapoint.Type.PREDICTION
-        ));
+    // the price of the first point after the time, or the fallback if there isn't one
+    private static double priceAfter(Series s, int time, double fallback) {
+        int i = s.firstIndexAfter(time);
+        return i < s.size ? s.prices[i] : fallback;
     }
-}
\ No newline at end of file
+}
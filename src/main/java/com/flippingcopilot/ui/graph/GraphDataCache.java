@@ -0,0 +1,151 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Data;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Singleton;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least recently used cache of item graph data, so switching back and forth between a few items doesn't download
+ * the same months of history every time. The cache is bounded by the estimated size of the price arrays it holds
+ * rather than the number of items.
+ * Each tier of the data goes stale at its own rate: the latest prices are only fresh for a couple of minutes while
+ * the 1h history stays usable for hours. An entry is fresh while all of its tiers are, and stale but still worth
+ * showing while the 1h tier is, in which case the caller should show it and fetch a refreshed copy.
+ */
+@Slf4j
+@Singleton
+public class GraphDataCache {
+
+    static final long DEFAULT_BUDGET_BYTES = 16 * 1024 * 1024;
+    static final long LATEST_TTL_MS = 2 * 60 * 1000;
+    static final long FIVE_MIN_TTL_MS = 10 * 60 * 1000;
+    static final long HOUR_TTL_MS = 2 * 60 * 60 * 1000;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public GraphDataCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    GraphDataCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public enum Freshness {
+        FRESH,
+        STALE,
+        MISSING
+    }
+
+    public synchronized void put(Data data) {
+        put(data, System.currentTimeMillis());
+    }
+
+    synchronized void put(Data data, long now) {
+        if (data == null || data.itemId <= 0 || data.isPartial() || (data.getLoadingErrorMessage() != null && !data.getLoadingErrorMessage().isEmpty())) {
+            return;
+        }
+        remove(data.itemId);
+        long bytes = estimateBytes(data);
+        if (bytes > budgetBytes) {
+            return;
+        }
+        entries.put(data.itemId, new Entry(data, now, bytes, ttl(data)));
+        totalBytes += bytes;
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > budgetBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.bytes;
+            log.debug("evicted graph data for item {} from the cache", eldest.data.itemId);
+        }
+    }
+
+    /**
+     * Returns the cached data for the item if the 1h tier is still fresh, otherwise null.
+     */
+    public synchronized Data get(int itemId) {
+        return get(itemId, System.currentTimeMillis());
+    }
+
+    synchronized Data get(int itemId, long now) {
+        Entry e = entries.get(itemId);
+        if (e == null) {
+            return null;
+        }
+        if (now - e.fetchedAt >= HOUR_TTL_MS) {
+            remove(itemId);
+            return null;
+        }
+        return e.data;
+    }
+
+    public synchronized Freshness freshness(int itemId) {
+        return freshness(itemId, System.currentTimeMillis());
+    }
+
+    synchronized Freshness freshness(int itemId, long now) {
+        Entry e = entries.get(itemId);
+        if (e == null || now - e.fetchedAt >= HOUR_TTL_MS) {
+            return Freshness.MISSING;
+        }
+        return now - e.fetchedAt < e.ttl ? Freshness.FRESH : Freshness.STALE;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void remove(int itemId) {
+        Entry e = entries.remove(itemId);
+        if (e != null) {
+            totalBytes -= e.bytes;
+        }
+    }
+
+    // the data is fresh for as long as its most short-lived tier
+    private static long ttl(Data d) {
+        if (length(d.lowLatestTimes) > 0 || length(d.highLatestTimes) > 0) {
+            return LATEST_TTL_MS;
+        } else if (length(d.low5mTimes) > 0 || length(d.high5mTimes) > 0) {
+            return FIVE_MIN_TTL_MS;
+        }
+        return HOUR_TTL_MS;
+    }
+
+    static long estimateBytes(Data d) {
+        int[][] arrays = {
+                d.low1hTimes, d.low1hPrices, d.high1hTimes, d.high1hPrices,
+                d.low5mTimes, d.low5mPrices, d.high5mTimes, d.high5mPrices,
+                d.lowLatestTimes, d.lowLatestPrices, d.highLatestTimes, d.highLatestPrices,
+                d.predictionTimes, d.predictionLowMeans, d.predictionLowIQRUpper, d.predictionLowIQRLower,
+                d.predictionHighMeans, d.predictionHighIQRUpper, d.predictionHighIQRLower
+        };
+        // rough allowance for the Data object, its name and the cache entry
+        long bytes = 256;
+        for (int[] a : arrays) {
+            if (a != null) {
+                bytes += 16 + 4L * a.length;
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(int[] a) {
+        return a == null ? 0 : a.length;
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        final Data data;
+        final long fetchedAt;
+        final long bytes;
+        final long ttl;
+    }
+}
@@ -0,0 +1,123 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.controller.ApiRequestHandler;
+import com.flippingcopilot.model.*;
+import com.flippingcopilot.ui.graph.model.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ItemID;
+import okhttp3.Call;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.*;
+
+/**
+ * Warms the graph data cache for the items the user is likely to open a graph for next, the items in their GE
+ * slots and inventory. Prefetching is kept low priority: it only runs on idle ticks while no suggestion request is
+ * in flight, starts at most one request per run with a small cap on concurrent requests, and any prefetches still
+ * in flight are cancelled as soon as a suggestion is requested.
+ */
+@Slf4j
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class GraphDataPrefetcher {
+
+    private static final int MAX_CONCURRENT_PREFETCHES = 2;
+    private static final int TICKS_BETWEEN_RUNS = 5;
+    // don't retry an item whose prefetch failed (e.g. an untradeable inventory item) for a while
+    private static final long RETRY_COOLDOWN_MS = 10 * 60 * 1000;
+
+    // dependencies
+    private final ApiRequestHandler apiRequestHandler;
+    private final GraphDataCache graphDataCache;
+    private final AccountStatusManager accountStatusManager;
+    private final SuggestionManager suggestionManager;
+    private final LoginResponseManager loginResponseManager;
+    private final OsrsLoginManager osrsLoginManager;
+
+    // state
+    private final Map<Integer, Call> inFlight = new HashMap<>();
+    private final Map<Integer, Long> lastAttempt = new HashMap<>();
+    private int ticksUntilNextRun;
+
+    public synchronized void onGameTick() {
+        if (suggestionManager.isSuggestionRequestInProgress() || suggestionManager.isGraphDataReadingInProgress()) {
+            cancelAll();
+            return;
+        }
+        if (--ticksUntilNextRun > 0 || inFlight.size() >= MAX_CONCURRENT_PREFETCHES) {
+            return;
+        }
+        ticksUntilNextRun = TICKS_BETWEEN_RUNS;
+        if (!loginResponseManager.isLoggedIn() || !osrsLoginManager.isValidLoginState()) {
+            return;
+        }
+        AccountStatus accountStatus = accountStatusManager.getAccountStatus();
+        if (accountStatus == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastAttempt.values().removeIf(t -> now - t > RETRY_COOLDOWN_MS);
+        for (int itemId : candidateItems(accountStatus)) {
+            if (!inFlight.containsKey(itemId)
+                    && !lastAttempt.containsKey(itemId)
+                    && graphDataCache.freshness(itemId) == GraphDataCache.Freshness.MISSING) {
+                prefetch(itemId, now);
+                return;
+            }
+        }
+    }
+
+    public synchronized void cancelAll() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        log.debug("cancelling {} graph data prefetches", inFlight.size());
+        for (Map.Entry<Integer, Call> e : inFlight.entrySet()) {
+            e.getValue().cancel();
+            // it was interrupted rather than failing so it can be tried again straight away
+            lastAttempt.remove(e.getKey());
+        }
+        inFlight.clear();
+    }
+
+    private void prefetch(int itemId, long now) {
+        log.debug("prefetching graph data for item {}", itemId);
+        lastAttempt.put(itemId, now);
+        Call[] call = new Call[1];
+        call[0] = apiRequestHandler.asyncGetItemPriceWithGraphData(itemId, osrsLoginManager.getPlayerDisplayName(), (ItemPrice i) -> {
+            synchronized (this) {
+                if (inFlight.get(itemId) != call[0]) {
+                    // cancelled
+                    return;
+                }
+                inFlight.remove(itemId);
+            }
+            Data d = i.getGraphData();
+            if (d != null && (i.getMessage() == null || i.getMessage().isEmpty())) {
+                if (d.itemId == 0) {
+                    d.itemId = itemId;
+                }
+                graphDataCache.put(d);
+            }
+        }, true);
+        inFlight.put(itemId, call[0]);
+    }
+
+    // active offers first as those are the graphs most likely to be checked
+    private static Collection<Integer> candidateItems(AccountStatus accountStatus) {
+        Set<Integer> items = new LinkedHashSet<>();
+        for (Offer o : accountStatus.getOffers()) {
+            if (o.getStatus() != OfferStatus.EMPTY && o.getItemId() > 0) {
+                items.add(o.getItemId());
+            }
+        }
+        for (RSItem i : accountStatus.getInventory()) {
+            if (i.getId() > 0 && i.getId() != ItemID.COINS_995 && i.getId() != ItemID.PLATINUM_TOKEN) {
+                items.add(i.getId());
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,37 @@
+package com.flippingcopilot.ui.graph;
+
+import javax.inject.Singleton;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The thread graph models are prepared on. Merging and normalising the series of a large payload takes long enough
+ * that doing it on the plugin's shared executor would hold up the session ticks, transaction uploads and flip loading
+ * queued behind it, so the graphs get a daemon thread of their own which exits when it has been idle for a while.
+ */
+@Singleton
+public class GraphModelWorker {
+
+    private static final long IDLE_TIMEOUT_SECS = 30;
+
+    private final ThreadPoolExecutor executor;
+
+    public GraphModelWorker() {
+        executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), (r) -> {
+            Thread t = new Thread(r, "flipping-copilot-graph-model");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the task behind any already submitted. Tasks run one at a time so a task for a request that has since
+     * been superseded should check for that when it starts and return straight away.
+     */
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+}
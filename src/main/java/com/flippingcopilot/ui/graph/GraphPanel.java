@@ -6,6 +6,8 @@ import com.flippingcopilot.ui.graph.model.*;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.time.Instant;
 
 public class GraphPanel extends JPanel {
     public final String itemName;
@@ -14,14 +16,38 @@ public class GraphPanel extends JPanel {
     private final PriceGraphConfigManager configManager;
     public DataManager dataManager;
     private final RenderV2 renderer;
+    private final AxisCache axisCache = new AxisCache();
     public final ZoomHandler zoomHandler;
     private final DatapointTooltip tooltip;
     public final PlotArea pa;
 
     // For point hovering
     private Point mousePosition = new Point(0,0);
+    private final HoverIndex hoverIndex = new HoverIndex();
+    private int hoveredRef = -1;
     private Datapoint hoveredPoint = null;
 
+    // after a wheel zoom the view is treated as moving for this long, so a burst of wheel events doesn't redraw
+    // the layers for each one
+    private static final int WHEEL_SETTLE_MILLIS = 150;
+
+    // steps zoom animations, stops itself once the target view is reached
+    private final Timer animationTimer;
+    // fires once the wheel has been still for WHEEL_SETTLE_MILLIS
+    private final Timer wheelSettleTimer;
+
+    // cached image of the legend, axes and series and what it was drawn for
+    private BufferedImage layers;
+    private int layersWidth;
+    private int layersHeight;
+    private double layersScale;
+    private Bounds layersBounds;
+    private DataManager layersDataManager;
+    private int layersConfigHash;
+    private int layersNow;
+    // the x from which the layers are out of date after a data update
+    private int layersDirtyFromX = Integer.MAX_VALUE;
+
     public GraphPanel(DataManager dm, PriceGraphConfigManager configManager) {
         this.itemName = dm.data.name;
 
@@ -31,6 +57,9 @@ public class GraphPanel extends JPanel {
         this.renderer = new RenderV2();
         this.zoomHandler = new ZoomHandler();
         this.tooltip = new DatapointTooltip();
+        this.animationTimer = new Timer(ZoomHandler.ANIMATION_FRAME_MILLIS, e -> onAnimationFrame());
+        this.wheelSettleTimer = new Timer(WHEEL_SETTLE_MILLIS, e -> repaint());
+        this.wheelSettleTimer.setRepeats(false);
 
         // Set up panel
         setBackground(configManager.getConfig().backgroundColor);
@@ -38,21 +67,78 @@ public class GraphPanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         this.pa = new PlotArea();
-        zoomHandler.maxViewBounds = dataManager.calculateBounds((p) -> true);
-        zoomHandler.homeViewBounds = dataManager.calculateBounds((p) -> p.time > zoomHandler.maxViewBounds.xMax - 4 * Constants.DAY_SECONDS);
-        zoomHandler.weekViewBounds = dataManager.calculateBounds((p) -> p.time > zoomHandler.maxViewBounds.xMax - 7 * Constants.DAY_SECONDS);
-        zoomHandler.monthViewBounds = dataManager.calculateBounds((p) -> p.time > zoomHandler.maxViewBounds.xMax - 30 * Constants.DAY_SECONDS);
+        calculateViewBounds();
         pa.bounds = zoomHandler.homeViewBounds.copy();
         setupMouseListeners();
     }
 
+    /**
+     * Swaps in new data for the same item, e.g. as more of the graph data loads. If the view hasn't been moved
+     * from the home view it follows the new home view, otherwise it is left where it is and only the part of the
+     * cached layers from where the data changed is redrawn.
+     */
+    public void setDataManager(DataManager dm) {
+        boolean atHomeView = zoomHandler.targetBounds(pa).equals(zoomHandler.homeViewBounds);
+        DataManager previous = dataManager;
+        dataManager = dm;
+        clearHoveredPoint();
+        calculateViewBounds();
+        if (atHomeView) {
+            zoomHandler.cancelAnimation();
+            pa.bounds = zoomHandler.homeViewBounds.copy();
+        }
+        if (layers != null && layersDataManager == previous && pa.bounds.equals(layersBounds)) {
+            // the buy/sell markers are drawn at the current time
+            int from = Math.min(dm.firstChangedTime(previous), layersNow);
+            int x = from <= pa.bounds.xMin ? 0 : pa.leftPadding + pa.timeToX(from) - 2 * Config.BASE_POINT_SIZE;
+            layersDirtyFromX = Math.max(0, Math.min(layersDirtyFromX, x));
+            layersDataManager = dm;
+        }
+        repaint();
+    }
+
+    private void calculateViewBounds() {
+        zoomHandler.maxViewBounds = dataManager.calculateBounds(Integer.MIN_VALUE);
+        zoomHandler.homeViewBounds = dataManager.calculateBounds(zoomHandler.maxViewBounds.xMax - 4 * Constants.DAY_SECONDS);
+        zoomHandler.weekViewBounds = dataManager.calculateBounds(zoomHandler.maxViewBounds.xMax - 7 * Constants.DAY_SECONDS);
+        zoomHandler.monthViewBounds = dataManager.calculateBounds(zoomHandler.maxViewBounds.xMax - 30 * Constants.DAY_SECONDS);
+    }
+
+    private void clearHoveredPoint() {
+        hoveredRef = -1;
+        hoveredPoint = null;
+    }
+
+    private void startAnimation() {
+        clearHoveredPoint();
+        animationTimer.start();
+        repaint();
+    }
+
+    private void onAnimationFrame() {
+        zoomHandler.stepAnimation(pa);
+        if (!zoomHandler.isAnimating()) {
+            animationTimer.stop();
+        }
+        repaint();
+    }
 
     private void setupMouseListeners() {
         MouseAdapter mouseAdapter = new MouseAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
                 mousePosition = e.getPoint();
-                hoveredPoint = dataManager.findClosestPoint(pa.relativePoint(e.getPoint()), Config.HOVER_RADIUS, pa);
+                if (zoomHandler.isAnimating()) {
+                    // the points are moving, hovering resumes once the view settles
+                    repaint();
+                    return;
+                }
+                hoverIndex.update(dataManager, pa, Config.HOVER_RADIUS);
+                int ref = hoverIndex.find(e.getX() - pa.leftPadding, e.getY() - pa.topPadding);
+                if (ref != hoveredRef) {
+                    hoveredRef = ref;
+                    hoveredPoint = ref == -1 ? null : hoverIndex.datapoint(ref);
+                }
                 repaint();
             }
 
@@ -66,37 +152,47 @@ public class GraphPanel extends JPanel {
 
                 if (zoomHandler.isOverHomeButton(plotPoint)) {
                     zoomHandler.applyHomeView(pa);
-                    repaint();
+                    startAnimation();
                     return;
                 }
                 if (zoomHandler.isOverMaxButton(plotPoint)) {
                     zoomHandler.applyMaxView(pa);
-                    repaint();
+                    startAnimation();
                     return;
                 }
                 if (zoomHandler.isOverZoomInButton(plotPoint)) {
                     zoomHandler.applyZoomIn(pa);
-                    repaint();
+                    startAnimation();
                     return;
                 }
                 if (zoomHandler.isOverZoomOutButton(plotPoint)) {
                     zoomHandler.applyZoomOut(pa);
-                    repaint();
+                    startAnimation();
                     return;
                 }
                 if (zoomHandler.isOverWeekButton(plotPoint)) {
                     zoomHandler.applyWeekView(pa);
-                    repaint();
+                    startAnimation();
                     return;
                 }
                 if (zoomHandler.isOverMonthButton(plotPoint)) {
                     zoomHandler.applyMonthView(pa);
+                    startAnimation();
+                    return;
+                }
+
+                // the left button selects an area to zoom to, the other buttons or shift drag pan
+                if (!SwingUtilities.isLeftMouseButton(e) || e.isShiftDown()) {
+                    zoomHandler.startPan(pa, plotPoint);
+                    clearHoveredPoint();
+                    setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
                     repaint();
                     return;
                 }
 
+                zoomHandler.cancelAnimation();
                 zoomHandler.startSelection(plotPoint);
-                hoveredPoint = null;
+                clearHoveredPoint();
                 setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR));
                 repaint();
             }
@@ -104,7 +200,10 @@ public class GraphPanel extends JPanel {
             @Override
             public void mouseDragged(MouseEvent e) {
                 mousePosition = e.getPoint();
-                if (zoomHandler.isSelecting()) {
+                if (zoomHandler.isPanning()) {
+                    zoomHandler.applyPan(pa, pa.relativePoint(mousePosition));
+                    repaint();
+                } else if (zoomHandler.isSelecting()) {
                     zoomHandler.setSelectionEnd(pa.relativePoint(mousePosition));
                     repaint();
                 }
@@ -113,24 +212,42 @@ public class GraphPanel extends JPanel {
             @Override
             public void mouseReleased(MouseEvent e) {
                 mousePosition = e.getPoint();
-                if (zoomHandler.isSelecting()) {
+                if (zoomHandler.isPanning()) {
+                    setCursor(Cursor.getDefaultCursor());
+                    zoomHandler.endPan();
+                    repaint();
+                } else if (zoomHandler.isSelecting()) {
                     setCursor(Cursor.getDefaultCursor());
                     zoomHandler.setSelectionEnd(pa.relativePoint(mousePosition));
                     zoomHandler.applySelection(pa);
-                    repaint();
+                    startAnimation();
                 }
             }
 
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                mousePosition = e.getPoint();
+                Point plotPoint = pa.relativePoint(mousePosition);
+                if (plotPoint.x < 0 || plotPoint.y < 0 || !pa.pointInPlotArea(plotPoint) || zoomHandler.isPanning()) {
+                    return;
+                }
+                zoomHandler.applyWheelZoom(pa, plotPoint, e.getPreciseWheelRotation());
+                wheelSettleTimer.restart();
+                clearHoveredPoint();
+                repaint();
+            }
+
             @Override
             public void mouseExited(MouseEvent e) {
                 mousePosition = e.getPoint();
-                hoveredPoint = null;
+                clearHoveredPoint();
                 repaint();
             }
         };
 
         addMouseMotionListener(mouseAdapter);
         addMouseListener(mouseAdapter);
+        addMouseWheelListener(mouseAdapter);
     }
 
 
@@ -147,9 +264,114 @@ public class GraphPanel extends JPanel {
         Config config = configManager.getConfig();
         setBackground(config.backgroundColor);
         Graphics2D g2 = (Graphics2D) g;
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        setRenderingHints(g2);
+
+        // everything but the hover and selection overlays only changes with the view, data or config, so is drawn
+        // once into an image that mouse move repaints just copy
+        double scale = g2.getTransform().getScaleX();
+        boolean moving = zoomHandler.isAnimating() || zoomHandler.isPanning() || wheelSettleTimer.isRunning();
+        if (moving && layersReusable(config, scale)) {
+            // while the view is moving the layers drawn for where it started are stretched to where it is now
+            // rather than redrawn every frame, they are redrawn once the view settles
+            drawMovedLayers(g2, config);
+        } else {
+            if (!layersValid(config, scale)) {
+                drawLayers(g2.getFont(), config, data, scale, 0);
+            } else if (layersDirtyFromX < getWidth()) {
+                drawLayers(g2.getFont(), config, data, scale, layersDirtyFromX);
+            }
+            g2.drawImage(layers, 0, 0, getWidth(), getHeight(), null);
+        }
+
+        Graphics2D plotAreaG2 = (Graphics2D) g2.create(pa.leftPadding, pa.topPadding, pa.w, pa.h);
+        zoomHandler.drawButtons(plotAreaG2, pa, pa.relativePoint(mousePosition));
+        zoomHandler.drawSelectionRectangle(plotAreaG2);
+
+        // Draw tooltip for hovered point
+        if (hoveredPoint != null) {
+            tooltip.draw(plotAreaG2, config, pa, hoveredPoint);
+        }
+        plotAreaG2.dispose();
+    }
+
+    private boolean layersValid(Config config, double scale) {
+        return layersReusable(config, scale) && pa.bounds.equals(layersBounds);
+    }
+
+    // whether the layers show the current data and config at the current size, if not for the current view
+    private boolean layersReusable(Config config, double scale) {
+        return layers != null
+                && layersWidth == getWidth() && layersHeight == getHeight() && layersScale == scale
+                && layersDataManager == dataManager
+                && layersDirtyFromX == Integer.MAX_VALUE
+                && layersConfigHash == config.hashCode();
+    }
+
+    /**
+     * Draws the plot area of the layers, which were drawn for layersBounds, scaled and translated to where that part
+     * of the graph sits in the current view. The legend doesn't depend on the view so is copied as is and the axes
+     * are drawn for the current view, they only take a few lines and the memoised labels.
+     */
+    private void drawMovedLayers(Graphics2D g2, Config config) {
+        Graphics2D legendG2 = (Graphics2D) g2.create();
+        legendG2.setColor(config.backgroundColor);
+        legendG2.fillRect(0, 0, getWidth(), getHeight());
+        legendG2.clipRect(0, 0, getWidth(), pa.topPadding);
+        legendG2.drawImage(layers, 0, 0, getWidth(), getHeight(), null);
+        legendG2.dispose();
+
+        Bounds from = layersBounds;
+        Bounds to = pa.bounds;
+        double x1 = pa.leftPadding + (double) pa.w * (from.xMin - to.xMin) / to.xDelta();
+        double x2 = pa.leftPadding + (double) pa.w * (from.xMax - to.xMin) / to.xDelta();
+        double y1 = pa.topPadding + (double) pa.h * (to.yMax - from.yMax) / to.yDelta();
+        double y2 = pa.topPadding + (double) pa.h * (to.yMax - from.yMin) / to.yDelta();
+        // the first column of the plot area has the y-axis drawn over it, leave it out so it doesn't move too
+        x1 += (x2 - x1) / pa.w;
+        Graphics2D plotAreaG2 = (Graphics2D) g2.create();
+        plotAreaG2.clipRect(pa.leftPadding, pa.topPadding, pa.w, pa.h);
+        plotAreaG2.setColor(config.plotAreaColor);
+        plotAreaG2.fillRect(pa.leftPadding, pa.topPadding, pa.w, pa.h);
+        plotAreaG2.drawImage(layers,
+                (int) Math.round(x1), (int) Math.round(y1), (int) Math.round(x2), (int) Math.round(y2),
+                (int) Math.round((pa.leftPadding + 1) * layersScale), (int) Math.round(pa.topPadding * layersScale),
+                (int) Math.round((pa.leftPadding + pa.w) * layersScale), (int) Math.round((pa.topPadding + pa.h) * layersScale),
+                null);
+        plotAreaG2.dispose();
+
+        FontMetrics labelMetrics = g2.getFontMetrics(g2.getFont().deriveFont(Config.FONT_SIZE));
+        TimeAxis xAxis = axisCache.timeAxis(pa, AxisCalculator.getLocalTimeOffsetSeconds(), labelMetrics);
+        PriceAxis yAxis = axisCache.priceAxis(pa, labelMetrics);
+        Graphics2D axesG2 = (Graphics2D) g2.create();
+        renderer.drawAxes(axesG2, config, pa, xAxis, yAxis);
+        axesG2.dispose();
+    }
+
+    // redraws the layers from fromX to the right edge of the panel
+    private void drawLayers(Font font, Config config, Data data, double scale, int fromX) {
+        int w = Math.max(1, (int) Math.ceil(getWidth() * scale));
+        int h = Math.max(1, (int) Math.ceil(getHeight() * scale));
+        if (fromX == 0 && (layers == null || layers.getWidth() != w || layers.getHeight() != h)) {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            layers = gc != null ? gc.createCompatibleImage(w, h) : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        }
+        layersWidth = getWidth();
+        layersHeight = getHeight();
+        layersScale = scale;
+        layersBounds = pa.bounds.copy();
+        layersDataManager = dataManager;
+        layersConfigHash = config.hashCode();
+        layersDirtyFromX = Integer.MAX_VALUE;
+        int now = (int) Instant.now().getEpochSecond();
+        layersNow = now;
+
+        Graphics2D g2 = layers.createGraphics();
+        g2.scale(scale, scale);
+        g2.clipRect(fromX, 0, getWidth() - fromX, getHeight());
+        g2.setFont(font);
+        setRenderingHints(g2);
+        g2.setColor(config.backgroundColor);
+        g2.fillRect(0, 0, getWidth(), getHeight());
 
         Graphics2D plotAreaG2 = (Graphics2D) g2.create(pa.leftPadding, pa.topPadding, pa.w, pa.h);
 
@@ -160,33 +382,35 @@ public class GraphPanel extends JPanel {
         plotAreaG2.setColor(config.plotAreaColor);
         plotAreaG2.fillRect(0,0, pa.w, pa.h);
 
-        TimeAxis xAxis = AxisCalculator.calculateTimeAxis(pa, AxisCalculator.getLocalTimeOffsetSeconds());
-        PriceAxis yAxis = AxisCalculator.calculatePriceAxis(pa);
+        FontMetrics labelMetrics = g2.getFontMetrics(g2.getFont().deriveFont(Config.FONT_SIZE));
+        TimeAxis xAxis = axisCache.timeAxis(pa, AxisCalculator.getLocalTimeOffsetSeconds(), labelMetrics);
+        PriceAxis yAxis = axisCache.priceAxis(pa, labelMetrics);
         renderer.drawGrid(plotAreaG2, config, pa, xAxis, yAxis);
         renderer.drawAxes(g2, config, pa, xAxis, yAxis);
 
 
         int pointSize = dynamicPointSize(Config.BASE_POINT_SIZE, pa);
-        renderer.drawPoints(plotAreaG2, pa, dataManager.lowDatapoints, config.lowColor, pointSize);
-        renderer.drawPoints(plotAreaG2, pa, dataManager.highDatapoints, config.highColor, pointSize);
+        renderer.drawPoints(plotAreaG2, pa, dataManager.lows, config.lowColor, pointSize);
+        renderer.drawPoints(plotAreaG2, pa, dataManager.highs, config.highColor, pointSize);
         if (config.connectPoints) {
-            renderer.drawLines(plotAreaG2, pa, dataManager.lowDatapoints, config.lowColor, Config.NORMAL_STROKE);
-            renderer.drawLines(plotAreaG2, pa, dataManager.highDatapoints, config.highColor, Config.NORMAL_STROKE);
+            renderer.drawLines(plotAreaG2, pa, dataManager.lows, config.lowColor, Config.NORMAL_STROKE);
+            renderer.drawLines(plotAreaG2, pa, dataManager.highs, config.highColor, Config.NORMAL_STROKE);
         }
-        renderer.drawStartPoints(plotAreaG2, pa, dataManager.buyPriceDataPoint(), Color.WHITE, pointSize);
-        renderer.drawStartPoints(plotAreaG2, pa, dataManager.sellPriceDataPoint(), Color.WHITE, pointSize);
+        renderer.drawStartPoint(plotAreaG2, pa, now, (int) data.buyPrice, Color.WHITE, pointSize);
+        renderer.drawStartPoint(plotAreaG2, pa, now, (int) data.sellPrice, Color.WHITE, pointSize);
 
-        renderer.drawLines(plotAreaG2, pa, dataManager.predictionLowDatapoints, config.lowColor, Config.DOTTED_STROKE);
-        renderer.drawLines(plotAreaG2, pa, dataManager.predictionHighDatapoints, config.highColor, Config.DOTTED_STROKE);
+        renderer.drawLines(plotAreaG2, pa, dataManager.predictionLows, config.lowColor, Config.DOTTED_STROKE);
+        renderer.drawLines(plotAreaG2, pa, dataManager.predictionHighs, config.highColor, Config.DOTTED_STROKE);
         renderer.drawPredictionIQR(plotAreaG2, config, pa, data.predictionTimes, data.predictionLowIQRLower, data.predictionLowIQRUpper, true);
         renderer.drawPredictionIQR(plotAreaG2, config, pa, data.predictionTimes, data.predictionHighIQRLower, data.predictionHighIQRUpper, false);
-        zoomHandler.drawButtons(plotAreaG2, pa, pa.relativePoint(mousePosition));
-        zoomHandler.drawSelectionRectangle(plotAreaG2);
+        plotAreaG2.dispose();
+        g2.dispose();
+    }
 
-        // Draw tooltip for hovered point
-        if (hoveredPoint != null) {
-            tooltip.draw(plotAreaG2, config, pa, hoveredPoint);
-        }
+    private static void setRenderingHints(Graphics2D g2) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
     }
 
     private int dynamicPointSize(int baseSize, PlotArea pa) {
@@ -0,0 +1,164 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Constants;
+import com.flippingcopilot.ui.graph.model.Datapoint;
+import com.flippingcopilot.ui.graph.model.Series;
+
+import java.util.Arrays;
+
+/**
+ * Grid over the hover positions of the points in the current view, with cells the size of the hover radius, so the
+ * closest point to the mouse is found by checking the 3x3 cells around it rather than every point of every series.
+ * The grid is only rebuilt when the data, the view bounds or the plot area size change and it reuses its arrays, so
+ * a lookup allocates nothing.
+ * Points are referred to by an int ref holding the index of the series in DataManager.series and the index of the
+ * point in that series.
+ */
+public class HoverIndex {
+
+    private static final int SERIES_SHIFT = 26;
+    private static final int INDEX_MASK = (1 << SERIES_SHIFT) - 1;
+
+    // what the grid was built for
+    private DataManager dataManager;
+    private int xMin, xMax, yMin, yMax, w, h, radius;
+
+    private int cols;
+    private int rows;
+    // the points of cell c are [cellStart[c], cellStart[c+1]) of the xs, ys and refs arrays
+    private int[] cellStart = new int[1];
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+    private int[] refs = new int[0];
+    private int n;
+
+    // the points in series order while the grid is being built
+    private int[] unsortedXs = new int[0];
+    private int[] unsortedYs = new int[0];
+    private int[] unsortedRefs = new int[0];
+    private int[] cells = new int[0];
+    private int[] next = new int[0];
+
+    /**
+     * Rebuilds the grid if the data or the view has changed since it was last built.
+     */
+    public void update(DataManager dm, PlotArea pa, int hoverRadius) {
+        if (dm == dataManager && pa.w == w && pa.h == h && hoverRadius == radius
+                && pa.bounds.xMin == xMin && pa.bounds.xMax == xMax && pa.bounds.yMin == yMin && pa.bounds.yMax == yMax) {
+            return;
+        }
+        dataManager = dm;
+        w = pa.w;
+        h = pa.h;
+        radius = hoverRadius;
+        xMin = pa.bounds.xMin;
+        xMax = pa.bounds.xMax;
+        yMin = pa.bounds.yMin;
+        yMax = pa.bounds.yMax;
+        build(pa);
+    }
+
+    /**
+     * Returns the ref of the closest point within the hover radius of the plot area position, or -1 if there is none.
+     * Ties go to the point that comes first in series order.
+     */
+    public int find(int x, int y) {
+        if (n == 0) {
+            return -1;
+        }
+        int cx = Math.floorDiv(x + radius, radius);
+        int cy = Math.floorDiv(y + radius, radius);
+        int best = -1;
+        long bestDistance = (long) radius * radius;
+        for (int row = Math.max(0, cy - 1); row <= Math.min(rows - 1, cy + 1); row++) {
+            for (int col = Math.max(0, cx - 1); col <= Math.min(cols - 1, cx + 1); col++) {
+                int c = row * cols + col;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    long dx = xs[k] - x;
+                    long dy = ys[k] - y;
+                    long d = dx * dx + dy * dy;
+                    if (d < bestDistance || (d == bestDistance && best != -1 && refs[k] < best)) {
+                        bestDistance = d;
+                        best = refs[k];
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    public Datapoint datapoint(int ref) {
+        return dataManager.series[ref >>> SERIES_SHIFT].datapoint(ref & INDEX_MASK);
+    }
+
+    private void build(PlotArea pa) {
+        n = 0;
+        if (w <= 0 || h <= 0 || radius <= 0 || pa.bounds.xDelta() <= 0 || pa.bounds.yDelta() <= 0) {
+            cols = rows = 0;
+            return;
+        }
+        cols = (w + 2 * radius) / radius + 1;
+        rows = (h + 2 * radius) / radius + 1;
+
+        // binary search to the points that could be within the hover radius of the plot area, averages are hovered
+        // up to half an hour after their time
+        int radiusTime = (int) ((long) radius * pa.bounds.xDelta() / w) + 1;
+        for (int s = 0; s < dataManager.series.length; s++) {
+            Series series = dataManager.series[s];
+            for (int i = series.firstIndexAfter(xMin - Constants.HOUR_SECONDS - radiusTime - 1); i < series.size; i++) {
+                if (series.times[i] > xMax + radiusTime) {
+                    break;
+                }
+                int x = Datapoint.hoverX(pa, series.times[i], series.type(i));
+                int y = pa.priceToY(series.prices[i]);
+                if (x < -radius || x > w + radius || y < -radius || y > h + radius) {
+                    continue;
+                }
+                ensureCapacity(n + 1);
+                unsortedXs[n] = x;
+                unsortedYs[n] = y;
+                unsortedRefs[n] = (s << SERIES_SHIFT) | i;
+                cells[n] = ((y + radius) / radius) * cols + (x + radius) / radius;
+                n++;
+            }
+        }
+        sortByCell();
+    }
+
+    // counting sort of the points into cell order, keeping the series order within each cell
+    private void sortByCell() {
+        int nCells = cols * rows;
+        if (cellStart.length < nCells + 1) {
+            cellStart = new int[nCells + 1];
+            next = new int[nCells];
+        } else {
+            Arrays.fill(cellStart, 0, nCells + 1, 0);
+        }
+        for (int k = 0; k < n; k++) {
+            cellStart[cells[k] + 1]++;
+        }
+        for (int c = 0; c < nCells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        System.arraycopy(cellStart, 0, next, 0, nCells);
+        for (int k = 0; k < n; k++) {
+            int j = next[cells[k]]++;
+            xs[j] = unsortedXs[k];
+            ys[j] = unsortedYs[k];
+            refs[j] = unsortedRefs[k];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newLength = Math.max(capacity, 2 * xs.length);
+            xs = new int[newLength];
+            ys = new int[newLength];
+            refs = new int[newLength];
+            unsortedXs = Arrays.copyOf(unsortedXs, newLength);
+            unsortedYs = Arrays.copyOf(unsortedYs, newLength);
+            unsortedRefs = Arrays.copyOf(unsortedRefs, newLength);
+            cells = Arrays.copyOf(cells, newLength);
+        }
+    }
+}
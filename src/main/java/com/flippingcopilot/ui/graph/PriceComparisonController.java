@@ -0,0 +1,204 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.controller.ApiRequestHandler;
+import com.flippingcopilot.manger.PriceGraphConfigManager;
+import com.flippingcopilot.model.ItemPrice;
+import com.flippingcopilot.model.OsrsLoginManager;
+import com.flippingcopilot.ui.Spinner;
+import com.flippingcopilot.ui.graph.model.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.ui.ColorScheme;
+import okhttp3.Call;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the price history of several items on one graph. The graph data of all the items is requested at once
+ * rather than one after another, with fresh cached data used as is, and the graph is shown once every request has
+ * completed. Items that fail to load are left out.
+ */
+@Slf4j
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class PriceComparisonController {
+
+    public static final int MAX_ITEMS = 8;
+
+    // dependencies
+    private final PriceGraphConfigManager configManager;
+    private final ApiRequestHandler apiRequestHandler;
+    private final OsrsLoginManager osrsLoginManager;
+    private final GraphDataCache graphDataCache;
+    private final GraphModelWorker graphModelWorker;
+
+    // state, only accessed on the EDT
+    private JDialog currentDialog = null;
+    private final List<Call> inFlight = new ArrayList<>();
+    // incremented for each comparison so responses for a previous one are ignored, also read by the graph model
+    // worker so it can skip preparing a comparison that has been superseded
+    private volatile int generation = 0;
+    private Data[] loaded;
+    private int remaining;
+
+    private Point lastDialogPosition = null;
+    private Dimension lastDialogSize = null;
+
+    /**
+     * Loads and shows a comparison of the items, at most MAX_ITEMS of them. Must be called on the client thread.
+     */
+    public void loadAndShowComparison(List<Integer> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(itemIds.subList(0, Math.min(itemIds.size(), MAX_ITEMS)));
+        String displayName = osrsLoginManager.getPlayerDisplayName();
+        SwingUtilities.invokeLater(() -> startComparison(ids, displayName));
+    }
+
+    private void startComparison(List<Integer> itemIds, String displayName) {
+        cancelInFlight();
+        int gen = ++generation;
+        loaded = new Data[itemIds.size()];
+        remaining = itemIds.size();
+        showDialog();
+        showMessage("Loading price data for " + itemIds.size() + " items...", true);
+
+        for (int i = 0; i < itemIds.size(); i++) {
+            int index = i;
+            int itemId = itemIds.get(i);
+            if (graphDataCache.freshness(itemId) == GraphDataCache.Freshness.FRESH) {
+                log.debug("serving comparison graph data for item {} from the cache", itemId);
+                onItemLoaded(gen, index, graphDataCache.get(itemId));
+                continue;
+            }
+            inFlight.add(apiRequestHandler.asyncGetItemPriceWithGraphData(itemId, displayName, (ItemPrice ip) -> {
+                Data d = ip.getGraphData();
+                if (d == null || (ip.getMessage() != null && !ip.getMessage().isEmpty())) {
+                    log.debug("failed to load graph data for compared item {}: {}", itemId, ip.getMessage());
+                    d = null;
+                } else {
+                    if (d.itemId == 0) {
+                        d.itemId = itemId;
+                    }
+                    graphDataCache.put(d);
+                }
+                Data data = d;
+                SwingUtilities.invokeLater(() -> onItemLoaded(gen, index, data));
+            }, true));
+        }
+    }
+
+    private void onItemLoaded(int gen, int index, Data data) {
+        if (gen != generation) {
+            return;
+        }
+        loaded[index] = data;
+        if (--remaining > 0) {
+            return;
+        }
+        inFlight.clear();
+        List<Data> items = Arrays.stream(loaded).filter(Objects::nonNull).collect(Collectors.toList());
+        loaded = null;
+        // normalising the series happens off the EDT, the dialog only swaps in the finished graph
+        graphModelWorker.submit(() -> {
+            if (gen != generation) {
+                return;
+            }
+            try {
+                ComparisonData comparison = new ComparisonData(items);
+                SwingUtilities.invokeLater(() -> showComparison(gen, comparison));
+            } catch (Exception e) {
+                log.error("error preparing price comparison", e);
+            }
+        });
+    }
+
+    private void showComparison(int gen, ComparisonData comparison) {
+        if (gen != generation || currentDialog == null) {
+            return;
+        }
+        if (comparison.isEmpty()) {
+            showMessage("Price data couldn't be loaded for any of the items", false);
+            return;
+        }
+        currentDialog.setContentPane(new ComparisonPanel(comparison, configManager));
+        currentDialog.revalidate();
+        currentDialog.repaint();
+    }
+
+    private void cancelInFlight() {
+        for (Call call : inFlight) {
+            call.cancel();
+        }
+        inFlight.clear();
+    }
+
+    private void showDialog() {
+        if (currentDialog != null) {
+            return;
+        }
+        JDialog dialog = new JDialog();
+        dialog.setTitle("Price comparison");
+        dialog.setResizable(true);
+        dialog.setMinimumSize(new Dimension(500, 250));
+        dialog.setModalityType(Dialog.ModalityType.MODELESS);
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        if (lastDialogSize != null && lastDialogPosition != null) {
+            dialog.setSize(lastDialogSize);
+            dialog.setLocation(lastDialogPosition);
+        } else {
+            Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+            dialog.setSize(screenSize.width * 3 / 4, screenSize.height * 3 / 4);
+            dialog.setLocationRelativeTo(null);
+        }
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                lastDialogPosition = dialog.getLocation();
+                lastDialogSize = dialog.getSize();
+                if (currentDialog == dialog) {
+                    // nothing is waiting for the rest of the items any more
+                    cancelInFlight();
+                    generation++;
+                    loaded = null;
+                    currentDialog = null;
+                }
+            }
+        });
+        currentDialog = dialog;
+        dialog.setVisible(true);
+    }
+
+    private void showMessage(String message, boolean loading) {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.insets = new Insets(10, 10, 10, 10);
+        if (loading) {
+            Spinner spinner = new Spinner();
+            spinner.show();
+            panel.add(spinner, gbc);
+            gbc.gridy = 1;
+        }
+        JLabel label = new JLabel(message);
+        label.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
+        label.setFont(label.getFont().deriveFont(Font.BOLD, 14f));
+        panel.add(label, gbc);
+        currentDialog.setContentPane(panel);
+        currentDialog.revalidate();
+        currentDialog.repaint();
+    }
+}
@@ -6,7 +6,6 @@ import com.flippingcopilot.manger.PriceGraphConfigManager;
 import com.flippingcopilot.model.ItemPrice;
 import com.flippingcopilot.model.OsrsLoginManager;
 import com.flippingcopilot.ui.Spinner;
-import com.flippingcopilot.ui.graph.model.Constants;
 import com.flippingcopilot.ui.graph.model.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +22,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.util.Objects;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
@@ -41,13 +42,20 @@ public class PriceGraphController {
     private final ApiRequestHandler apiRequestHandler;
     private final OsrsLoginManager osrsLoginManager;
     private final ItemManager itemManager;
+    private final GraphDataCache graphDataCache;
+    private final GraphModelWorker graphModelWorker;
 
     // state
     private GraphPanel graphPanel;
+    private StatsPanel statsPanel;
     private JDialog currentDialog = null;
     private JPanel mainPanel = null;
     private View currentView = null;
     private boolean currentIsSuggestedItem = false;
+    // the graph model being prepared off the EDT and the request it is for, only the latest request is shown.
+    // The request is read by the worker so a build that has been superseded can skip its work
+    private Future<?> pendingModel = null;
+    private volatile Object pendingModelRequest = null;
 
     private Point lastDialogPosition = null;
     private Dimension lastDialogSize = null;
@@ -60,10 +68,16 @@ public class PriceGraphController {
 
 
     private void clear() {
+        cancelPendingModel();
         currentDialog = null;
         mainPanel = null;
         currentView = null;
         graphPanel = null;
+        statsPanel = null;
+    }
+
+    private Data currentData() {
+        return currentIsSuggestedItem ? suggestedItemGraphData : userItemGraphData;
     }
 
     // Custom setters to handle data updates
@@ -74,6 +88,7 @@ public class PriceGraphController {
                 return;
             }
             this.suggestedItemGraphData = data;
+            graphDataCache.put(data);
             if (currentDialog != null && currentIsSuggestedItem) {
                 updateUIAfterDataChange(data);
             }
@@ -95,6 +110,10 @@ public class PriceGraphController {
         if (currentDialog != null && mainPanel != null) {
             if (data != null && data.getLoadingErrorMessage() != null && !data.getLoadingErrorMessage().isEmpty()) {
                 showErrorView(data.getLoadingErrorMessage());
+            } else if (data != null && View.SETTINGS.equals(currentView) && graphPanel != null && Objects.equals(graphPanel.itemName, data.name)) {
+                // more of the graph data for the same item loaded while in the settings, it is picked up when
+                // going back to the graph
+                log.debug("graph data updated while showing settings");
             } else if (data != null) {
                 showGraphView(data.name, data);
             }
@@ -104,13 +123,31 @@ public class PriceGraphController {
     }
 
     public void loadAndAndShowPriceGraph(int itemId) {
-        Consumer<ItemPrice> consumer = (ItemPrice i) -> {
-            Data d = firstNonNull(i.getGraphData(), new Data());
-            d.loadingErrorMessage = i.getMessage();
-            setUserItemGraphData(d);
-        };
         ItemComposition item = itemManager.getItemComposition(itemId);
-        apiRequestHandler.asyncGetItemPriceWithGraphData(itemId, osrsLoginManager.getPlayerDisplayName(), consumer, true);
+        Data cached = graphDataCache.get(itemId);
+        GraphDataCache.Freshness freshness = graphDataCache.freshness(itemId);
+        if (cached != null) {
+            // show what we have straight away, if it is stale the refreshed data replaces it when it arrives
+            setUserItemGraphData(cached);
+        }
+        if (freshness != GraphDataCache.Freshness.FRESH) {
+            Consumer<ItemPrice> consumer = (ItemPrice i) -> {
+                Data d = firstNonNull(i.getGraphData(), new Data());
+                d.loadingErrorMessage = i.getMessage();
+                if (d.itemId == 0) {
+                    d.itemId = itemId;
+                }
+                if (cached != null && d.loadingErrorMessage != null && !d.loadingErrorMessage.isEmpty()) {
+                    log.debug("keeping stale graph data for item {} after failing to refresh it: {}", itemId, d.loadingErrorMessage);
+                    return;
+                }
+                graphDataCache.put(d);
+                setUserItemGraphData(d);
+            };
+            apiRequestHandler.asyncGetItemPriceWithGraphData(itemId, osrsLoginManager.getPlayerDisplayName(), consumer, true);
+        } else {
+            log.debug("serving price graph data for item {} from the cache", itemId);
+        }
         showPriceGraph(item.getName(), false);
     }
 
@@ -146,13 +183,15 @@ public class PriceGraphController {
             mainPanel = new JPanel(new BorderLayout());
             mainPanel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
 
-            Data currentData = isSuggestedItem ? suggestedItemGraphData : userItemGraphData;
+            Data currentData = currentData();
 
             if (currentData == null) {
                 showLoadingView(itemName);
             } else if (currentData.getLoadingErrorMessage() != null && !currentData.getLoadingErrorMessage().isEmpty()) {
                 showErrorView(currentData.getLoadingErrorMessage());
             } else {
+                // the spinner shows until the graph model is ready
+                showLoadingView(itemName);
                 showGraphView(itemName, currentData);
             }
 
@@ -210,6 +249,7 @@ public class PriceGraphController {
     }
 
     private void showLoadingView(String itemName) {
+        cancelPendingModel();
         currentView = View.LOADING;
         mainPanel.removeAll();
 
@@ -240,6 +280,7 @@ public class PriceGraphController {
     }
 
     private void showErrorView(String errorMessage) {
+        cancelPendingModel();
         currentView = View.ERROR;
         mainPanel.removeAll();
 
@@ -290,20 +331,61 @@ public class PriceGraphController {
         mainPanel.repaint();
     }
 
+    /**
+     * Prepares the graph model for the data on the graph model worker, merging the series and calculating the bounds
+     * and stats off the EDT, then shows it. Any model still being prepared for an earlier request is cancelled.
+     */
     private void showGraphView(String itemName, Data data) {
         if (mainPanel == null) {
             log.error("Cannot show graph view, main panel or data is null");
             return;
         }
-        if(graphPanel != null && graphPanel.itemName.equals(itemName) && View.GRAPH.equals(currentView)) {
-            // if it's the same item just update the data and repaint
-            DataManager dm = new DataManager(data);
-            graphPanel.dataManager = dm;
-            graphPanel.zoomHandler.maxViewBounds = dm.calculateBounds((p) -> true);
-            graphPanel.zoomHandler.homeViewBounds = dm.calculateBounds((p) -> p.time > graphPanel.zoomHandler.maxViewBounds.xMax - 4 * Constants.DAY_SECONDS);
-            graphPanel.zoomHandler.weekViewBounds = dm.calculateBounds((p) -> p.time > graphPanel.zoomHandler.maxViewBounds.xMax - 7 * Constants.DAY_SECONDS);
-            graphPanel.zoomHandler.monthViewBounds = dm.calculateBounds((p) -> p.time > graphPanel.zoomHandler.maxViewBounds.xMax - 30 * Constants.DAY_SECONDS);
-            graphPanel.repaint();
+        cancelPendingModel();
+        // if it's the same item the new data is applied to the open graph, keeping its zoom
+        DataManager previous = graphPanel != null && Objects.equals(graphPanel.itemName, itemName) && View.GRAPH.equals(currentView)
+                ? graphPanel.dataManager : null;
+        Object request = new Object();
+        pendingModelRequest = request;
+        pendingModel = graphModelWorker.submit(() -> {
+            if (pendingModelRequest != request) {
+                // switched to another item (or view) while this was queued
+                return;
+            }
+            try {
+                DataManager dm = previous != null ? previous.update(data) : new DataManager(data);
+                if (pendingModelRequest != request) {
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (pendingModelRequest != request) {
+                        log.debug("discarding stale graph model for item {}", itemName);
+                        return;
+                    }
+                    pendingModel = null;
+                    pendingModelRequest = null;
+                    showGraphView(itemName, data, dm, previous);
+                });
+            } catch (Exception e) {
+                log.error("error preparing price graph model for item {}", itemName, e);
+            }
+        });
+    }
+
+    private void cancelPendingModel() {
+        if (pendingModel != null) {
+            pendingModel.cancel(false);
+        }
+        pendingModel = null;
+        pendingModelRequest = null;
+    }
+
+    private void showGraphView(String itemName, Data data, DataManager dm, DataManager previous) {
+        if (mainPanel == null) {
+            return;
+        }
+        if (previous != null && graphPanel != null && graphPanel.dataManager == previous && View.GRAPH.equals(currentView)) {
+            graphPanel.setDataManager(dm);
+            statsPanel.setDataManager(dm);
             return;
         }
 
@@ -311,7 +393,6 @@ public class PriceGraphController {
         // Clear the main panel
         setItemIcon(data.itemId);
         mainPanel.removeAll();
-        DataManager dm = new DataManager(data);
         graphPanel = new GraphPanel(dm, configManager);
 
         // Create settings button with gear icon
@@ -322,7 +403,7 @@ public class PriceGraphController {
             gearIcon = ImageUtil.resizeImage(gearIcon, 20, 20);
             BufferedImage recoloredIcon = ImageUtil.recolorImage(gearIcon, ColorScheme.LIGHT_GRAY_COLOR);
             JLabel settingsButton = ConfigPanel.buildButton(recoloredIcon, "Settings", () -> {
-                showSettingsView(itemName, data);
+                showSettingsView(itemName, firstNonNull(currentData(), data));
             });
             statsHeaderPanel.add(settingsButton, BorderLayout.EAST);
             statsHeaderPanel.setBackground(configManager.getConfig().backgroundColor);
@@ -331,13 +412,13 @@ public class PriceGraphController {
             // Fallback to text button if icon loading fails
             JButton settingsButton = new JButton("Settings");
             settingsButton.addActionListener(e1 -> {
-                showSettingsView(itemName, data);
+                showSettingsView(itemName, firstNonNull(currentData(), data));
             });
             statsHeaderPanel.add(settingsButton, BorderLayout.EAST);
         }
 
         // Create the stats panel
-        StatsPanel statsPanel = new StatsPanel(dm, configManager, copilotConfig);
+        statsPanel = new StatsPanel(dm, configManager, copilotConfig);
         statsPanel.setBackground(configManager.getConfig().backgroundColor);
 
         // Create a panel to contain both the item icon and stats panel
@@ -394,6 +475,7 @@ public class PriceGraphController {
             log.error("Cannot show settings view, main panel is null");
             return;
         }
+        cancelPendingModel();
         currentView = View.SETTINGS;
 
         mainPanel.removeAll();
@@ -407,7 +489,7 @@ public class PriceGraphController {
             gearIcon = ImageUtil.resizeImage(gearIcon, 20, 20);
             BufferedImage recoloredIcon = ImageUtil.recolorImage(gearIcon, ColorScheme.LIGHT_GRAY_COLOR);
             JLabel backButton = ConfigPanel.buildButton(recoloredIcon, "Back to Graph", () -> {
-                showGraphView(itemName, data);
+                showGraphView(itemName, firstNonNull(currentData(), data));
             });
             topPanel.setBackground(configManager.getConfig().backgroundColor);
             topPanel.add(backButton, BorderLayout.EAST);
@@ -415,7 +497,7 @@ public class PriceGraphController {
             log.error("Error creating back button", e);
         }
 
-        ConfigPanel configPanel = new ConfigPanel(configManager, () -> showGraphView(itemName, data));
+        ConfigPanel configPanel = new ConfigPanel(configManager, () -> showGraphView(itemName, firstNonNull(currentData(), data)));
 
         mainPanel.add(topPanel, BorderLayout.NORTH);
         mainPanel.add(configPanel, BorderLayout.CENTER);
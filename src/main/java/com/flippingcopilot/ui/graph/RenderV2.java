@@ -4,10 +4,11 @@ import com.flippingcopilot.ui.graph.model.*;
 
 import java.awt.*;
 import java.awt.geom.Path2D;
-import java.util.List;
 
 public class RenderV2 {
 
+    private final SeriesDecimator decimator = new SeriesDecimator();
+
     public void drawGrid(Graphics2D plotAreaG2,Config config,  PlotArea pa, TimeAxis xAxis, PriceAxis yAxis) {
         plotAreaG2.setColor(config.gridColor);
         plotAreaG2.setStroke(Config.GRID_STROKE);
@@ -50,27 +51,20 @@ public class RenderV2 {
         g2.setColor(config.textColor);
         FontMetrics metrics = g2.getFontMetrics();
 
-        java.text.SimpleDateFormat dateFormat = new java.text.SimpleDateFormat("d MMM");
-        java.text.SimpleDateFormat timeFormat = new java.text.SimpleDateFormat("HH:mm");
-
         // Draw date labels (longer ticks)
-        for (int time : xAxis.dateOnlyTickTimes) {
-            int x = pa.timeToX(time);
+        for (int i = 0; i < xAxis.dateOnlyTickTimes.length; i++) {
+            int x = pa.timeToX(xAxis.dateOnlyTickTimes[i]);
             g2.drawLine(pa.leftPadding + x, pa.topPadding + pa.h, pa.leftPadding + x, pa.topPadding + pa.h + Config.TICK_SIZE * 2);
-            String label = dateFormat.format(new java.util.Date(time * 1000L));
-            int labelWidth = metrics.stringWidth(label);
-            g2.drawString(label, pa.leftPadding + x - labelWidth / 2, pa.topPadding + pa.h + Config.TICK_SIZE * 2 + 9 + metrics.getHeight());
+            g2.drawString(xAxis.dateLabels[i], pa.leftPadding + x - xAxis.dateLabelWidths[i] / 2, pa.topPadding + pa.h + Config.TICK_SIZE * 2 + 9 + metrics.getHeight());
         }
 
         // Draw time labels (shorter ticks)
-        for (int time : xAxis.timeOnlyTickTimes) {
-            int x = pa.timeToX(time);
+        for (int i = 0; i < xAxis.timeOnlyTickTimes.length; i++) {
+            int x = pa.timeToX(xAxis.timeOnlyTickTimes[i]);
 
             g2.drawLine(pa.leftPadding +x, pa.topPadding + pa.h, pa.leftPadding +x, pa.topPadding +  pa.h + Config.TICK_SIZE);
 
-            String label = timeFormat.format(new java.util.Date(time * 1000L));
-            int labelWidth = metrics.stringWidth(label);
-            g2.drawString(label, pa.leftPadding + x - labelWidth / 2, pa.topPadding +  pa.h + Config.TICK_SIZE + metrics.getHeight());
+            g2.drawString(xAxis.timeLabels[i], pa.leftPadding + x - xAxis.timeLabelWidths[i] / 2, pa.topPadding +  pa.h + Config.TICK_SIZE + metrics.getHeight());
         }
     }
 
@@ -78,21 +72,19 @@ public class RenderV2 {
         g2.setFont(g2.getFont().deriveFont(Config.FONT_SIZE));
         g2.setColor(config.textColor);
         FontMetrics metrics = g2.getFontMetrics();
-        for (int price : yAxis.tickPrices) {
-            int y = pa.priceToY(price);
+        for (int i = 0; i < yAxis.tickPrices.length; i++) {
+            int y = pa.priceToY(yAxis.tickPrices[i]);
             g2.drawLine(pa.leftPadding - Config.TICK_SIZE,pa.topPadding + y, pa.leftPadding, pa.topPadding+ y);
 
-            // Format and draw the price label
-            String label = com.flippingcopilot.ui.UIUtilities.quantityToRSDecimalStack(price, true);
-            g2.drawString(label,
-                    pa.leftPadding - metrics.stringWidth(label) - Config.LABEL_PADDING,
+            g2.drawString(yAxis.tickLabels[i],
+                    pa.leftPadding - yAxis.tickLabelWidths[i] - Config.LABEL_PADDING,
                     pa.topPadding + y + metrics.getHeight() / 3);
         }
     }
 
 
     public void drawPredictionIQR(Graphics2D plotAreaG2, Config config, PlotArea pa, int[] times, int[] lowerPrices, int[] upperPrices, boolean isLow) {
-        if (times.length < 2) return;
+        if (times == null || times.length < 2) return;
 
         // Set appropriate color
         plotAreaG2.setColor(isLow ? config.lowShadeColor : config.highShadeColor);
@@ -136,10 +128,10 @@ public class RenderV2 {
 
     public void drawLines(Graphics2D plotAreaG2,
                           PlotArea pa,
-                          List<Datapoint> datapoints,
+                          Series series,
                           Color color,
                           Stroke stroke) {
-        if (datapoints.isEmpty()) return;
+        if (series.isEmpty()) return;
 
         // Set the specified stroke and color
         plotAreaG2.setStroke(stroke);
@@ -147,33 +139,30 @@ public class RenderV2 {
 
         // Create a clip rectangle matching the plot area bounds
         java.awt.Shape originalClip = plotAreaG2.getClip();
-        plotAreaG2.setClip(0, 0, pa.w, pa.h);
-
-        // Create path for line segments
-        java.awt.geom.Path2D.Float path = new java.awt.geom.Path2D.Float();
-
-        // Start the path at the first point
-        int x = pa.timeToX(datapoints.get(0).time);
-        int y = pa.priceToY(datapoints.get(0).price);
-        path.moveTo(x, y);
-
-        for (Datapoint d : datapoints.subList(1, datapoints.size())) {
-            x = pa.timeToX(d.time);
-            y = pa.priceToY(d.price);
-            path.lineTo(x, y);
+        plotAreaG2.clipRect(0, 0, pa.w, pa.h);
+
+        // Create path for line segments through the points that can be seen at this zoom level
+        SeriesDecimator.Decimated d = decimator.lines(series, pa);
+        java.awt.geom.Path2D.Float path = new java.awt.geom.Path2D.Float(Path2D.WIND_NON_ZERO, d.size);
+        path.moveTo(d.xs[0], d.ys[0]);
+        for (int i = 1; i < d.size; i++) {
+            path.lineTo(d.xs[i], d.ys[i]);
         }
 
         plotAreaG2.draw(path);
         plotAreaG2.setClip(originalClip);
     }
 
-    public void drawStartPoints(Graphics2D plotAreaG2,
-                                PlotArea pa,
-                                List<Datapoint> startPoints,
-                                Color color,
-                                int size
+    public void drawStartPoint(Graphics2D plotAreaG2,
+                               PlotArea pa,
+                               int time,
+                               int price,
+                               Color color,
+                               int size
     ) {
-        if (startPoints.isEmpty()) return;
+        if (time < pa.bounds.xMin || time > pa.bounds.xMax) {
+            return;
+        }
 
         // Save original color
         Color originalColor = plotAreaG2.getColor();
@@ -183,44 +172,37 @@ public class RenderV2 {
 
         // Create a clip rectangle matching the plot area bounds
         java.awt.Shape originalClip = plotAreaG2.getClip();
-        plotAreaG2.setClip(0, 0, pa.w, pa.h);
-
-        // Draw each start point as a filled oval
-        for (Datapoint d : startPoints) {
-            if (d.time < pa.bounds.xMin || d.time > pa.bounds.xMax) {
-                continue;
-            }
+        plotAreaG2.clipRect(0, 0, pa.w, pa.h);
 
-            // Get current point coordinates
-            int x = pa.timeToX(d.time);
-            int y = pa.priceToY(d.price);
+        // Get current point coordinates
+        int x = pa.timeToX(time);
+        int y = pa.priceToY(price);
 
-            // Draw an asterisk (*) at the point
-            // Save the original stroke
-            Stroke originalStroke = plotAreaG2.getStroke();
+        // Draw an asterisk (*) at the point
+        // Save the original stroke
+        Stroke originalStroke = plotAreaG2.getStroke();
 
-            // Set stroke based on size
-            float strokeWidth = Math.max(1, size / 5);
-            plotAreaG2.setStroke(new BasicStroke(strokeWidth));
+        // Set stroke based on size
+        float strokeWidth = Math.max(1, size / 5);
+        plotAreaG2.setStroke(new BasicStroke(strokeWidth));
 
-            // Draw the lines of the asterisk (*)
-            int halfSize = size / 2;
+        // Draw the lines of the asterisk (*)
+        int halfSize = size / 2;
 
-            // Horizontal line
-            plotAreaG2.drawLine(x - halfSize, y, x + halfSize, y);
+        // Horizontal line
+        plotAreaG2.drawLine(x - halfSize, y, x + halfSize, y);
 
-            // Vertical line
-            plotAreaG2.drawLine(x, y - halfSize, x, y + halfSize);
+        // Vertical line
+        plotAreaG2.drawLine(x, y - halfSize, x, y + halfSize);
 
-            // Diagonal line from top-left to bottom-right
-            plotAreaG2.drawLine(x - halfSize, y - halfSize, x + halfSize, y + halfSize);
+        // Diagonal line from top-left to bottom-right
+        plotAreaG2.drawLine(x - halfSize, y - halfSize, x + halfSize, y + halfSize);
 
-            // Diagonal line from top-right to bottom-left
-            plotAreaG2.drawLine(x + halfSize, y - halfSize, x - halfSize, y + halfSize);
+        // Diagonal line from top-right to bottom-left
+        plotAreaG2.drawLine(x + halfSize, y - halfSize, x - halfSize, y + halfSize);
 
-            // Restore the original stroke
-            plotAreaG2.setStroke(originalStroke);
-        }
+        // Restore the original stroke
+        plotAreaG2.setStroke(originalStroke);
 
         // Restore original clip and color
         plotAreaG2.setClip(originalClip);
@@ -229,11 +211,11 @@ public class RenderV2 {
 
     public void drawPoints(Graphics2D plotAreaG2,
                             PlotArea pa,
-                            List<Datapoint> datapoints,
+                            Series series,
                             Color color,
                             int size
     ) {
-        if (datapoints.isEmpty()) return;
+        if (series.isEmpty()) return;
 
         // Save original color
         Color originalColor = plotAreaG2.getColor();
@@ -243,30 +225,21 @@ public class RenderV2 {
 
         // Create a clip rectangle matching the plot area bounds
         java.awt.Shape originalClip = plotAreaG2.getClip();
-        plotAreaG2.setClip(0, 0, pa.w, pa.h);
-
-        // Draw each point as a filled oval
-        for (Datapoint d : datapoints) {
-            if (d.time < pa.bounds.xMin || d.time > pa.bounds.xMax) {
-                continue;
-            }
-
-            // Get current point coordinates
-            int x = pa.timeToX(d.time);
-            int y = pa.priceToY(d.price);
-
-            // Calculate the top-left corner for the oval (centered on x,y)
-            int ovalX = x - size / 2;
-            int ovalY = y - size / 2;
-
-            if (d.type == Datapoint.Type.PREDICTION || d.type == Datapoint.Type.INSTA_SELL_BUY) {
-                // filled oval for latest price points
-                plotAreaG2.fillOval(ovalX, ovalY, size, size);
+        plotAreaG2.clipRect(0, 0, pa.w, pa.h);
+
+        // filled ovals for latest price and prediction points, rectangles for the 5m/1h averages
+        int hourWidth = pa.timeDeltaToXDelta(Constants.HOUR_SECONDS);
+        int fiveMinWidth = pa.timeDeltaToXDelta(Constants.FIVE_MIN_SECONDS);
+        SeriesDecimator.Decimated d = decimator.points(series, pa, size);
+        for (int i = 0; i < d.size; i++) {
+            int x = d.xs[i];
+            int y = d.ys[i];
+            if (d.types[i] == Datapoint.Type.HOUR_AVERAGE) {
+                plotAreaG2.fillRect(x, y, hourWidth + size, size);
+            } else if (d.types[i] == Datapoint.Type.FIVE_MIN_AVERAGE) {
+                plotAreaG2.fillRect(x, y, fiveMinWidth + size, size);
             } else {
-                // rectangle for 5m/1h averages
-                int timeDelta = d.type == Datapoint.Type.FIVE_MIN_AVERAGE ? Constants.FIVE_MIN_SECONDS : Constants.HOUR_SECONDS;
-                int w = pa.timeDeltaToXDelta(timeDelta);
-                plotAreaG2.fillRect(x, y, w + size, size);
+                plotAreaG2.fillOval(x - size / 2, y - size / 2, size, size);
             }
         }
 
@@ -275,6 +248,32 @@ public class RenderV2 {
         plotAreaG2.setColor(originalColor);
     }
 
+    /**
+     * Draws a centred row of line samples and labels above the plot area, one for each item of a comparison graph.
+     */
+    public void drawComparisonLegend(Graphics2D g2, Config config, PlotArea pa, String[] labels, Color[] colors) {
+        g2.setFont(g2.getFont().deriveFont(Font.PLAIN, Config.FONT_SIZE));
+        FontMetrics metrics = g2.getFontMetrics();
+        int legendY = pa.topPadding / 2;
+        int lineLength = 20;
+        int itemHeight = 15;
+        int itemPadding = 30;
+
+        int totalWidth = itemPadding * Math.max(0, labels.length - 1);
+        for (String label : labels) {
+            totalWidth += lineLength + 5 + metrics.stringWidth(label);
+        }
+        int currentX = pa.leftPadding + pa.w / 2 - totalWidth / 2;
+        g2.setStroke(Config.NORMAL_STROKE);
+        for (int i = 0; i < labels.length; i++) {
+            g2.setColor(colors[i]);
+            g2.drawLine(currentX, legendY + itemHeight/2, currentX + lineLength, legendY + itemHeight/2);
+            g2.setColor(config.textColor);
+            g2.drawString(labels[i], currentX + lineLength + 5, legendY + itemHeight/2 + 4);
+            currentX += lineLength + 5 + metrics.stringWidth(labels[i]) + itemPadding;
+        }
+    }
+
     public void drawLegend(Graphics2D g2, Config config, PlotArea pa) {
         int xMid = pa.leftPadding + pa.w / 2;
         g2.setFont(g2.getFont().deriveFont(Font.PLAIN, Config.FONT_SIZE));
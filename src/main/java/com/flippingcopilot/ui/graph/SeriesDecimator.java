@@ -0,0 +1,142 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Datapoint;
+import com.flippingcopilot.ui.graph.model.Series;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Reduces a series to what can be seen at the current zoom level before it is drawn. Zoomed out there are many
+ * points per pixel column. For lines only the first, last, highest and lowest point of each column are kept (in series
+ * order), the segments within a column are all vertical so this draws the same extent, and the segments joining one
+ * column to the next are unchanged. For points only one point of each tier is kept per pixel, as the others would
+ * be drawn exactly on top of it, along with dropping the points too far above or below the view to be seen.
+ * The result is in plot area pixels and is cached per series until the view bounds or plot area size change.
+ */
+public class SeriesDecimator {
+
+    private final Map<Series, Decimated> lines = new WeakHashMap<>();
+    private final Map<Series, Decimated> points = new WeakHashMap<>();
+
+    public static class Decimated {
+        public int[] xs = new int[0];
+        public int[] ys = new int[0];
+        public Datapoint.Type[] types = new Datapoint.Type[0];
+        public int size;
+
+        // the view (and point size) it was decimated for
+        private int xMin, xMax, yMin, yMax, w, h, pointSize;
+        private boolean built;
+
+        private boolean isFor(PlotArea pa, int pointSize) {
+            return built && pa.w == w && pa.h == h && pa.bounds.xMin == xMin && pa.bounds.xMax == xMax
+                    && pa.bounds.yMin == yMin && pa.bounds.yMax == yMax && this.pointSize == pointSize;
+        }
+
+        private void reset(PlotArea pa, int pointSize) {
+            built = true;
+            this.pointSize = pointSize;
+            w = pa.w;
+            h = pa.h;
+            xMin = pa.bounds.xMin;
+            xMax = pa.bounds.xMax;
+            yMin = pa.bounds.yMin;
+            yMax = pa.bounds.yMax;
+            size = 0;
+        }
+
+        private void add(int x, int y, Datapoint.Type type) {
+            if (size == xs.length) {
+                int newLength = Math.max(16, 2 * size);
+                xs = Arrays.copyOf(xs, newLength);
+                ys = Arrays.copyOf(ys, newLength);
+                types = Arrays.copyOf(types, newLength);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            types[size] = type;
+            size++;
+        }
+    }
+
+    /**
+     * The points to join with lines, including the points either side of the view so the lines run off its edges.
+     */
+    public Decimated lines(Series s, PlotArea pa) {
+        Decimated d = lines.computeIfAbsent(s, k -> new Decimated());
+        if (d.isFor(pa, 0)) {
+            return d;
+        }
+        d.reset(pa, 0);
+        int start = Math.max(0, s.firstIndexAfter(pa.bounds.xMin - 1) - 1);
+        int end = Math.min(s.size, s.firstIndexAfter(pa.bounds.xMax) + 1);
+        int[] kept = new int[4];
+        int i = start;
+        while (i < end) {
+            int x = pa.timeToX(s.times[i]);
+            int first = i;
+            int top = i, topY = pa.priceToY(s.prices[i]);
+            int bottom = i, bottomY = topY;
+            for (i++; i < end && pa.timeToX(s.times[i]) == x; i++) {
+                int y = pa.priceToY(s.prices[i]);
+                if (y < topY) {
+                    top = i;
+                    topY = y;
+                } else if (y > bottomY) {
+                    bottom = i;
+                    bottomY = y;
+                }
+            }
+            kept[0] = first;
+            kept[1] = Math.min(top, bottom);
+            kept[2] = Math.max(top, bottom);
+            kept[3] = i - 1;
+            for (int k = 0; k < 4; k++) {
+                if (k == 0 || kept[k] != kept[k - 1]) {
+                    d.add(x, pa.priceToY(s.prices[kept[k]]), s.type(kept[k]));
+                }
+            }
+        }
+        return d;
+    }
+
+    /**
+     * The points within the view bounds that can be seen when drawn pointSize pixels across, keeping one point of
+     * each tier per pixel.
+     */
+    public Decimated points(Series s, PlotArea pa, int pointSize) {
+        Decimated d = points.computeIfAbsent(s, k -> new Decimated());
+        if (d.isFor(pa, pointSize)) {
+            return d;
+        }
+        d.reset(pa, pointSize);
+        int start = s.firstIndexAfter(pa.bounds.xMin - 1);
+        int end = s.firstIndexAfter(pa.bounds.xMax);
+        // which rows of the current column already have a point of each tier, cleared again after each column
+        int rows = pa.h + 2 * pointSize + 1;
+        boolean[] occupied = new boolean[Datapoint.Type.values().length * rows];
+        int i = start;
+        while (i < end) {
+            int x = pa.timeToX(s.times[i]);
+            int columnStart = d.size;
+            for (; i < end && pa.timeToX(s.times[i]) == x; i++) {
+                int y = pa.priceToY(s.prices[i]);
+                if (y < -pointSize || y > pa.h + pointSize) {
+                    continue;
+                }
+                Datapoint.Type type = s.type(i);
+                int cell = type.ordinal() * rows + y + pointSize;
+                if (!occupied[cell]) {
+                    occupied[cell] = true;
+                    d.add(x, y, type);
+                }
+            }
+            for (int j = columnStart; j < d.size; j++) {
+                occupied[d.types[j].ordinal() * rows + d.ys[j] + pointSize] = false;
+            }
+        }
+        return d;
+    }
+}
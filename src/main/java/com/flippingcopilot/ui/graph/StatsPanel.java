@@ -16,7 +16,7 @@ import java.util.Date;
 
 @Slf4j
 public class StatsPanel extends JPanel {
-    private final DataManager dataManager;
+    private DataManager dataManager;
     private final JTable statsTable;
 
     public StatsPanel(DataManager dataManager, PriceGraphConfigManager configManager, FlippingCopilotConfig copilotConfig) {
@@ -86,6 +86,12 @@ public class StatsPanel extends JPanel {
         this.setPreferredSize(new Dimension(280, 400));
     }
 
+    public void setDataManager(DataManager dataManager) {
+        this.dataManager = dataManager;
+        ((DefaultTableModel) statsTable.getModel()).setRowCount(0);
+        populateTable();
+    }
+
     /**
      * Populates the stats table with data
      */
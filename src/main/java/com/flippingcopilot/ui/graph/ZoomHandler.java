@@ -2,12 +2,14 @@ package com.flippingcopilot.ui.graph;
 
 import com.flippingcopilot.ui.graph.model.Bounds;
 import com.flippingcopilot.ui.graph.model.Config;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.awt.*;
 import java.awt.geom.RoundRectangle2D;
+import java.util.function.LongSupplier;
 
 @Slf4j
 @Getter
@@ -15,12 +17,26 @@ public class ZoomHandler {
 
     private static final int MIN_TIME_DELTA = 60*60;
     private static final int MIN_PRICE_DELTA = 5;
+    private static final double WHEEL_ZOOM_STEP = 1.15;
+    static final long ANIMATION_NANOS = 250_000_000L;
+    public static final int ANIMATION_FRAME_MILLIS = 1000 / 60;
     @Setter
     private Point selectionStart = null;
     @Setter
     private Point selectionEnd = null;
     private boolean isSelecting = false;
 
+    private Point panStart = null;
+    private Bounds panStartBounds = null;
+    private boolean isPanning = false;
+
+    private Bounds animationFrom = null;
+    private Bounds animationTo = null;
+    private long animationStartNanos;
+    private boolean isAnimating = false;
+    @Getter(AccessLevel.NONE)
+    private final LongSupplier nanoClock;
+
     private final Rectangle homeButtonRect = new Rectangle();
     private final Rectangle maxButtonRect = new Rectangle();
     private final Rectangle zoomInButtonRect = new Rectangle();
@@ -33,6 +49,14 @@ public class ZoomHandler {
     public Bounds weekViewBounds;
     public Bounds monthViewBounds;
 
+    public ZoomHandler() {
+        this(System::nanoTime);
+    }
+
+    ZoomHandler(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
     public void startSelection(Point point) {
         selectionStart = new Point(point);
         selectionEnd = null;
@@ -66,39 +90,146 @@ public class ZoomHandler {
             return;
         }
 
-        pa.bounds = new Bounds(newTimeMin, newTimeMax, newPriceMin, newPriceMax);
+        startAnimation(pa, new Bounds(newTimeMin, newTimeMax, newPriceMin, newPriceMax));
 
         cancelSelection();
     }
 
     public void applyZoomIn(PlotArea pa) {
-        pa.bounds.xMin = Math.min(pa.bounds.xMax - MIN_TIME_DELTA, pa.bounds.xMin + (int) (pa.bounds.xDelta()*0.2));
-
+        Bounds b = targetBounds(pa).copy();
+        b.xMin = Math.min(b.xMax - MIN_TIME_DELTA, b.xMin + (int) (b.xDelta()*0.2));
+        startAnimation(pa, b);
     }
 
     public void applyZoomOut(PlotArea pa) {
-        int td = pa.bounds.xDelta();
-        pa.bounds.xMin= Math.max(maxViewBounds.xMin, pa.bounds.xMin- (int) (td*0.2));
-        pa.bounds.xMax = Math.min(maxViewBounds.xMax, pa.bounds.xMax + (int) (td*0.2));
-        int pd = pa.bounds.yDelta();
-        pa.bounds.yMin = Math.max(maxViewBounds.yMin, pa.bounds.yMin - (int) (pd*0.1));
-        pa.bounds.yMax = Math.min(maxViewBounds.yMax, pa.bounds.yMax + (int) (pd*0.1));
+        Bounds b = targetBounds(pa).copy();
+        int td = b.xDelta();
+        b.xMin = Math.max(maxViewBounds.xMin, b.xMin - (int) (td*0.2));
+        b.xMax = Math.min(maxViewBounds.xMax, b.xMax + (int) (td*0.2));
+        int pd = b.yDelta();
+        b.yMin = Math.max(maxViewBounds.yMin, b.yMin - (int) (pd*0.1));
+        b.yMax = Math.min(maxViewBounds.yMax, b.yMax + (int) (pd*0.1));
+        startAnimation(pa, b);
     }
 
     public void applyHomeView(PlotArea pa) {
-        pa.bounds = homeViewBounds.copy();
+        startAnimation(pa, homeViewBounds.copy());
     }
 
     public void applyMaxView(PlotArea pa) {
-        pa.bounds = maxViewBounds.copy();
+        startAnimation(pa, maxViewBounds.copy());
     }
 
     public void applyWeekView(PlotArea pa) {
-        pa.bounds = weekViewBounds.copy();
+        startAnimation(pa, weekViewBounds.copy());
     }
 
     public void applyMonthView(PlotArea pa) {
-        pa.bounds = monthViewBounds.copy();
+        startAnimation(pa, monthViewBounds.copy());
+    }
+
+    /**
+     * Zooms both axes about the point under the cursor, keeping the view within the max view.
+     * A positive rotation (scrolling down) zooms out.
+     */
+    public void applyWheelZoom(PlotArea pa, Point p, double rotation) {
+        cancelAnimation();
+        double factor = Math.pow(WHEEL_ZOOM_STEP, rotation);
+        Bounds b = pa.bounds;
+        int anchorTime = b.xMin + (int) (((long) b.xDelta() * Math.max(0, Math.min(p.x, pa.w))) / pa.w);
+        int anchorPrice = b.yMax - (int) (((long) b.yDelta() * Math.max(0, Math.min(p.y, pa.h))) / pa.h);
+
+        int timeDelta = zoomedDelta(b.xDelta(), factor, MIN_TIME_DELTA, maxViewBounds.xDelta());
+        int priceDelta = zoomedDelta(b.yDelta(), factor, MIN_PRICE_DELTA, maxViewBounds.yDelta());
+        int newTimeMin = zoomedMin(b.xMin, b.xDelta(), anchorTime, timeDelta, maxViewBounds.xMin, maxViewBounds.xMax);
+        int newPriceMin = zoomedMin(b.yMin, b.yDelta(), anchorPrice, priceDelta, maxViewBounds.yMin, maxViewBounds.yMax);
+        pa.bounds = new Bounds(newTimeMin, newTimeMin + timeDelta, newPriceMin, newPriceMin + priceDelta);
+    }
+
+    private static int zoomedDelta(int delta, double factor, int minDelta, int maxDelta) {
+        long zoomed = Math.round(delta * factor);
+        return (int) Math.max(minDelta, Math.min(Math.max(maxDelta, minDelta), zoomed));
+    }
+
+    // the new min such that the anchor stays at the same relative position, shifted back within the limits
+    private static int zoomedMin(int min, int delta, int anchor, int newDelta, int limitMin, int limitMax) {
+        int newMin = anchor - (int) (((long) (anchor - min) * newDelta) / delta);
+        newMin = Math.min(newMin, limitMax - newDelta);
+        return Math.max(newMin, limitMin);
+    }
+
+    public void startPan(PlotArea pa, Point point) {
+        cancelAnimation();
+        panStart = new Point(point);
+        panStartBounds = pa.bounds.copy();
+        isPanning = true;
+    }
+
+    /**
+     * Moves the view with the cursor since the pan started. The time axis can't be panned past the max view
+     * unless the view is already wider than it.
+     */
+    public void applyPan(PlotArea pa, Point point) {
+        if (!isPanning) return;
+        int timeShift = (int) (((long) panStartBounds.xDelta() * (point.x - panStart.x)) / pa.w);
+        int priceShift = (int) (((long) panStartBounds.yDelta() * (point.y - panStart.y)) / pa.h);
+        if (panStartBounds.xDelta() <= maxViewBounds.xDelta()) {
+            timeShift = Math.max(panStartBounds.xMax - maxViewBounds.xMax, Math.min(panStartBounds.xMin - maxViewBounds.xMin, timeShift));
+        }
+        pa.bounds = new Bounds(panStartBounds.xMin - timeShift, panStartBounds.xMax - timeShift,
+                panStartBounds.yMin + priceShift, panStartBounds.yMax + priceShift);
+    }
+
+    public void endPan() {
+        panStart = null;
+        panStartBounds = null;
+        isPanning = false;
+    }
+
+    /**
+     * Starts easing the view from where it is now to the target, see {@link #stepAnimation(PlotArea)}.
+     */
+    public void startAnimation(PlotArea pa, Bounds target) {
+        animationFrom = pa.bounds.copy();
+        animationTo = target;
+        animationStartNanos = nanoClock.getAsLong();
+        isAnimating = true;
+    }
+
+    /**
+     * Moves the view to where it should be at this point of the animation, ending the animation once the target
+     * is reached.
+     */
+    public void stepAnimation(PlotArea pa) {
+        if (!isAnimating) return;
+        double t = (nanoClock.getAsLong() - animationStartNanos) / (double) ANIMATION_NANOS;
+        if (t >= 1) {
+            pa.bounds = animationTo.copy();
+            cancelAnimation();
+            return;
+        }
+        // ease out cubic, starts fast and settles gently on the target
+        double e = 1 - Math.pow(1 - t, 3);
+        pa.bounds = new Bounds(
+                interpolate(animationFrom.xMin, animationTo.xMin, e),
+                interpolate(animationFrom.xMax, animationTo.xMax, e),
+                interpolate(animationFrom.yMin, animationTo.yMin, e),
+                interpolate(animationFrom.yMax, animationTo.yMax, e));
+    }
+
+    public void cancelAnimation() {
+        animationFrom = null;
+        animationTo = null;
+        isAnimating = false;
+    }
+
+    // where the view is headed, steps like zoom in build on this so repeated clicks don't lose progress
+    public Bounds targetBounds(PlotArea pa) {
+        return isAnimating ? animationTo : pa.bounds;
+    }
+
+    private static int interpolate(int from, int to, double e) {
+        return from + (int) Math.round((to - (long) from) * e);
     }
 
     public void cancelSelection() {
@@ -1,5 +1,6 @@
 package com.flippingcopilot.ui.graph.model;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -10,6 +11,7 @@ import java.awt.*;
 @Getter
 @Setter
 @NoArgsConstructor
+@EqualsAndHashCode
 public class Config {
     public static int LABEL_PADDING = 20;
     public static int TICK_SIZE = 5;
@@ -37,6 +39,11 @@ public class Config {
     public static Color SELECTION_BORDER_COLOR = new Color(70, 70, 220);
     public static Color GRAPH_BUTTON_COLOR = new Color(150, 150, 150, 200);
     public static Color GRAPH_BUTTON_HOVER_COLOR = new Color(100,100,100);
+    // line colors of the items in a comparison graph, in the order the items are added
+    public static final Color[] COMPARISON_COLORS = {
+            new Color(0, 153, 255), new Color(255, 102, 0), new Color(80, 200, 120), new Color(230, 80, 160),
+            new Color(240, 210, 60), new Color(160, 120, 255), new Color(60, 210, 210), new Color(200, 200, 200)
+    };
 
     // configurable properties
     public boolean connectPoints = false;
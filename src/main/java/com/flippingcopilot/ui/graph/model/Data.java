@@ -1,9 +1,13 @@
 package com.flippingcopilot.ui.graph.model;
 
+import com.flippingcopilot.util.MsgPackStreamReader;
 import com.flippingcopilot.util.MsgPackUtil;
 import com.google.gson.annotations.SerializedName;
 import lombok.Getter;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 public class Data {
 
@@ -13,6 +17,10 @@ public class Data {
     @Getter
     public boolean fromWaitSuggestion;
 
+    // set on the copies handed out while the rest of the graph data is still loading
+    @Getter
+    public boolean partial;
+
     // 6 months 1h data
     @SerializedName("low_1h_times")
     public int[] low1hTimes;
@@ -96,86 +104,206 @@ public class Data {
             return null;
         }
         for (int i = 0; i < mapSize; i++) {
-            String key = (String) MsgPackUtil.decodePrimitive(b);
-            switch (key) {
-                case "l1ht":
-                    d.low1hTimes = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "l1hp":
-                    d.low1hPrices = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "h1ht":
-                    d.high1hTimes = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "h1hp":
-                    d.high1hPrices = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "l5mt":
-                    d.low5mTimes = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "l5mp":
-                    d.low5mPrices = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "h5mt":
-                    d.high5mTimes = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "h5mp":
-                    d.high5mPrices = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "llt":
-                    d.lowLatestTimes = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "llp":
-                    d.lowLatestPrices = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "hlt":
-                    d.highLatestTimes = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "hlp":
-                    d.highLatestPrices = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "pt":
-                    d.predictionTimes = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "plm":
-                    d.predictionLowMeans = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "pliu":
-                    d.predictionLowIQRUpper = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "plil":
-                    d.predictionLowIQRLower = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "phm":
-                    d.predictionHighMeans = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "phiu":
-                    d.predictionHighIQRUpper = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "phil":
-                    d.predictionHighIQRLower = MsgPackUtil.decodeInt32Array(b);
-                    break;
-                case "id":
-                    d.itemId =  (int) (long)MsgPackUtil.decodePrimitive(b);
-                    break;
-                case "n":
-                    d.name = (String) MsgPackUtil.decodePrimitive(b);
-                    break;
-                case "dv":
-                    d.dailyVolume = (double) MsgPackUtil.decodePrimitive(b);
-                    break;
-                case "sp":
-                    d.sellPrice = (long) (long) MsgPackUtil.decodePrimitive(b);
-                    break;
-                case "bp":
-                    d.buyPrice = (long) MsgPackUtil.decodePrimitive(b);
-                    break;
-                default:
-                    // discard value for unrecognised key
-                    MsgPackUtil.decodePrimitive(b);
+            int key = MsgPackUtil.readKey(b, Key.SYMBOLS);
+            if (key < 0) {
+                // discard value for unrecognised key
+                MsgPackUtil.skip(b);
+                continue;
             }
+            d.readField(Key.VALUES[key], b);
+        }
+
+        return d;
+    }
+
+    /**
+     * Decodes the graph data into d as it is read from the stream. Each time another of the 1h, 5m, latest or
+     * prediction series is complete, and more entries are still to come, a copy of the data decoded so far is
+     * passed to onPartialData so the graph can be drawn before the whole payload has arrived.
+     */
+    public static Data fromMsgPack(MsgPackStreamReader r, Data d, Consumer<Data> onPartialData) throws IOException {
+        int mapSize = r.readMapHeader();
+        if (mapSize < 0) {
+            return null;
+        }
+        int completedSeries = d.completedSeries();
+        for (int i = 0; i < mapSize; i++) {
+            int key = MsgPackUtil.readKey(r.readValue(), Key.SYMBOLS);
+            ByteBuffer value = r.readValue();
+            if (key >= 0) {
+                d.readField(Key.VALUES[key], value);
+            }
+            if (i < mapSize - 1 && d.completedSeries() != completedSeries) {
+                completedSeries = d.completedSeries();
+                onPartialData.accept(d.copy());
+            }
+        }
+        return d;
+    }
+
+    private void readField(Key key, ByteBuffer b) {
+        switch (key) {
+            case LOW_1H_TIMES:
+                low1hTimes = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case LOW_1H_PRICES:
+                low1hPrices = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case HIGH_1H_TIMES:
+                high1hTimes = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case HIGH_1H_PRICES:
+                high1hPrices = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case LOW_5M_TIMES:
+                low5mTimes = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case LOW_5M_PRICES:
+                low5mPrices = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case HIGH_5M_TIMES:
+                high5mTimes = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case HIGH_5M_PRICES:
+                high5mPrices = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case LOW_LATEST_TIMES:
+                lowLatestTimes = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case LOW_LATEST_PRICES:
+                lowLatestPrices = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case HIGH_LATEST_TIMES:
+                highLatestTimes = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case HIGH_LATEST_PRICES:
+                highLatestPrices = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case PREDICTION_TIMES:
+                predictionTimes = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case PREDICTION_LOW_MEANS:
+                predictionLowMeans = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case PREDICTION_LOW_IQR_UPPER:
+                predictionLowIQRUpper = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case PREDICTION_LOW_IQR_LOWER:
+                predictionLowIQRLower = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case PREDICTION_HIGH_MEANS:
+                predictionHighMeans = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case PREDICTION_HIGH_IQR_UPPER:
+                predictionHighIQRUpper = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case PREDICTION_HIGH_IQR_LOWER:
+                predictionHighIQRLower = MsgPackUtil.decodeInt32Array(b);
+                break;
+            case ITEM_ID:
+                itemId = MsgPackUtil.readInt(b);
+                break;
+            case NAME:
+                name = MsgPackUtil.readString(b);
+                break;
+            case DAILY_VOLUME:
+                dailyVolume = MsgPackUtil.readDouble(b);
+                break;
+            case SELL_PRICE:
+                sellPrice = MsgPackUtil.readLong(b);
+                break;
+            case BUY_PRICE:
+                buyPrice = MsgPackUtil.readLong(b);
+                break;
+        }
+    }
+
+    // bit set of the series groups that have been fully decoded
+    private int completedSeries() {
+        int completed = 0;
+        if (low1hTimes != null && low1hPrices != null && high1hTimes != null && high1hPrices != null) {
+            completed |= 1;
         }
+        if (low5mTimes != null && low5mPrices != null && high5mTimes != null && high5mPrices != null) {
+            completed |= 2;
+        }
+        if (lowLatestTimes != null && lowLatestPrices != null && highLatestTimes != null && highLatestPrices != null) {
+            completed |= 4;
+        }
+        if (predictionTimes != null && predictionLowMeans != null && predictionLowIQRUpper != null && predictionLowIQRLower != null
+                && predictionHighMeans != null && predictionHighIQRUpper != null && predictionHighIQRLower != null) {
+            completed |= 8;
+        }
+        return completed;
+    }
 
+    // shallow copy, the arrays are never modified once decoded so they can be shared
+    private Data copy() {
+        Data d = new Data();
+        d.loadingErrorMessage = loadingErrorMessage;
+        d.fromWaitSuggestion = fromWaitSuggestion;
+        d.partial = true;
+        d.low1hTimes = low1hTimes;
+        d.low1hPrices = low1hPrices;
+        d.high1hTimes = high1hTimes;
+        d.high1hPrices = high1hPrices;
+        d.low5mTimes = low5mTimes;
+        d.low5mPrices = low5mPrices;
+        d.high5mTimes = high5mTimes;
+        d.high5mPrices = high5mPrices;
+        d.lowLatestTimes = lowLatestTimes;
+        d.lowLatestPrices = lowLatestPrices;
+        d.highLatestTimes = highLatestTimes;
+        d.highLatestPrices = highLatestPrices;
+        d.predictionTimes = predictionTimes;
+        d.predictionLowMeans = predictionLowMeans;
+        d.predictionLowIQRUpper = predictionLowIQRUpper;
+        d.predictionLowIQRLower = predictionLowIQRLower;
+        d.predictionHighMeans = predictionHighMeans;
+        d.predictionHighIQRUpper = predictionHighIQRUpper;
+        d.predictionHighIQRLower = predictionHighIQRLower;
+        d.itemId = itemId;
+        d.name = name;
+        d.dailyVolume = dailyVolume;
+        d.sellPrice = sellPrice;
+        d.buyPrice = buyPrice;
         return d;
     }
-}
\ No newline at end of file
+
+    // keys of the msgpack encoded graph data, matched in place against the encoded key bytes
+    private enum Key {
+        LOW_1H_TIMES("l1ht"),
+        LOW_1H_PRICES("l1hp"),
+        HIGH_1H_TIMES("h1ht"),
+        HIGH_1H_PRICES("h1hp"),
+        LOW_5M_TIMES("l5mt"),
+        LOW_5M_PRICES("l5mp"),
+        HIGH_5M_TIMES("h5mt"),
+        HIGH_5M_PRICES("h5mp"),
+        LOW_LATEST_TIMES("llt"),
+        LOW_LATEST_PRICES("llp"),
+        HIGH_LATEST_TIMES("hlt"),
+        HIGH_LATEST_PRICES("hlp"),
+        PREDICTION_TIMES("pt"),
+        PREDICTION_LOW_MEANS("plm"),
+        PREDICTION_LOW_IQR_UPPER("pliu"),
+        PREDICTION_LOW_IQR_LOWER("plil"),
+        PREDICTION_HIGH_MEANS("phm"),
+        PREDICTION_HIGH_IQR_UPPER("phiu"),
+        PREDICTION_HIGH_IQR_LOWER("phil"),
+        ITEM_ID("id"),
+        NAME("n"),
+        DAILY_VOLUME("dv"),
+        SELL_PRICE("sp"),
+        BUY_PRICE("bp");
+
+        private static final Key[] VALUES = values();
+        private static final byte[][] SYMBOLS = MsgPackUtil.symbols(Arrays.stream(VALUES).map(k -> k.symbol).toArray(String[]::new));
+
+        private final String symbol;
+
+        Key(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+}
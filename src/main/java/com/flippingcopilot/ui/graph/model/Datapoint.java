@@ -38,14 +38,18 @@ public class Datapoint {
     }
 
     public Point getHoverPosition(PlotArea pa) {
+        return new Point(hoverX(pa, time, type), pa.priceToY(price));
+    }
+
+    // averages are hovered at the middle of the period they cover
+    public static int hoverX(PlotArea pa, int time, Type type) {
         int x = pa.timeToX(time);
-        int y = pa.priceToY(price);
         if (type == Type.FIVE_MIN_AVERAGE) {
             x += pa.timeDeltaToXDelta(Constants.FIVE_MIN_SECONDS / 2);
         } else if (type == Type.HOUR_AVERAGE) {
             x += pa.timeDeltaToXDelta(Constants.HOUR_SECONDS / 2);
         }
-        return new Point(x, y);
+        return x;
     }
 
     public enum Type {
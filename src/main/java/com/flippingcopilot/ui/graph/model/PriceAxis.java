@@ -1,9 +1,13 @@
 package com.flippingcopilot.ui.graph.model;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class PriceAxis {
-    public int[] tickPrices;
-    public int[] gridOnlyPrices;
+    public final int[] tickPrices;
+    public final int[] gridOnlyPrices;
+
+    // formatted labels of the ticks and their widths, set by the AxisCache
+    public String[] tickLabels;
+    public int[] tickLabelWidths;
 }
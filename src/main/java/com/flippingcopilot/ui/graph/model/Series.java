@@ -0,0 +1,198 @@
+package com.flippingcopilot.ui.graph.model;
+
+import java.util.Arrays;
+
+/**
+ * A low or high price series held as parallel primitive arrays, ordered by time. The points of each tier are a
+ * contiguous run: [0, hourEnd) are 1h averages, [hourEnd, fiveMinEnd) are 5m averages and [fiveMinEnd, size) are
+ * the latest prices, or predictions for a prediction series. Only the first size elements of the arrays are valid.
+ */
+public class Series {
+
+    public final boolean isLow;
+    public final int[] times;
+    public final int[] prices;
+    // IQR bounds, only set for prediction series
+    public final int[] iqrLower;
+    public final int[] iqrUpper;
+    public final int size;
+    public final int hourEnd;
+    public final int fiveMinEnd;
+
+    // the 1h and 5m tiers the series was merged from and where they were cut, so an update that only changes the
+    // latest points can reuse them
+    private final int[][] sourceTiers;
+    private final int hourCut;
+    private final int fiveMinCut;
+
+    private Series(boolean isLow, int[] times, int[] prices, int[] iqrLower, int[] iqrUpper, int size, int hourEnd, int fiveMinEnd,
+                   int[][] sourceTiers, int hourCut, int fiveMinCut) {
+        this.isLow = isLow;
+        this.times = times;
+        this.prices = prices;
+        this.iqrLower = iqrLower;
+        this.iqrUpper = iqrUpper;
+        this.size = size;
+        this.hourEnd = hourEnd;
+        this.fiveMinEnd = fiveMinEnd;
+        this.sourceTiers = sourceTiers;
+        this.hourCut = hourCut;
+        this.fiveMinCut = fiveMinCut;
+    }
+
+    /**
+     * Combines the hour / 5min / latest wiki price data points into a continuous series where hour points transition
+     * into the 5min points that transition into the latest points, so we get increasingly finer granularity. The
+     * points are truncated at the boundaries to ensure no overlap: the latest points start at the first whole 5min
+     * bucket after the first latest point, and the 5min points at the first whole hour after the first remaining point.
+     * Any of the arrays may be null if that tier hasn't been received yet.
+     */
+    public static Series merge(boolean isLow, int[] hourTimes, int[] hourPrices, int[] fiveMinTimes, int[] fiveMinPrices, int[] latestTimes, int[] latestPrices) {
+        int nHour = length(hourTimes), nFiveMin = length(fiveMinTimes), nLatest = length(latestTimes);
+
+        int fiveMinCut = nLatest > 0 ? nextBucket(latestTimes[0], Constants.FIVE_MIN_SECONDS) : Integer.MAX_VALUE;
+        int first = Integer.MAX_VALUE;
+        for (int i = 0; i < nFiveMin && first == Integer.MAX_VALUE; i++) {
+            if (fiveMinTimes[i] < fiveMinCut) {
+                first = fiveMinTimes[i];
+            }
+        }
+        for (int i = 0; i < nLatest && first == Integer.MAX_VALUE; i++) {
+            if (latestTimes[i] >= fiveMinCut) {
+                first = latestTimes[i];
+            }
+        }
+        int hourCut = first != Integer.MAX_VALUE ? nextBucket(first, Constants.HOUR_SECONDS) : Integer.MAX_VALUE;
+
+        int[] times = new int[nHour + nFiveMin + nLatest];
+        int[] prices = new int[times.length];
+        int n = 0;
+        for (int i = 0; i < nHour; i++) {
+            if (hourTimes[i] < hourCut) {
+                times[n] = hourTimes[i];
+                prices[n++] = hourPrices[i];
+            }
+        }
+        int hourEnd = n;
+        for (int i = 0; i < nFiveMin; i++) {
+            if (fiveMinTimes[i] < fiveMinCut && fiveMinTimes[i] >= hourCut) {
+                times[n] = fiveMinTimes[i];
+                prices[n++] = fiveMinPrices[i];
+            }
+        }
+        int fiveMinEnd = n;
+        n = appendLatest(times, prices, n, latestTimes, latestPrices, fiveMinCut, hourCut);
+        int[][] sourceTiers = {hourTimes, hourPrices, fiveMinTimes, fiveMinPrices};
+        return new Series(isLow, times, prices, null, null, n, hourEnd, fiveMinEnd, sourceTiers, hourCut, fiveMinCut);
+    }
+
+    /**
+     * Merges updated tiers of the same item. When the 1h and 5m tiers are unchanged and the latest points still
+     * start in the same 5m bucket, which is the usual case when new latest prices arrive, the 1h and 5m points of
+     * this series are copied across and only the latest points are spliced on.
+     */
+    public Series update(int[] hourTimes, int[] hourPrices, int[] fiveMinTimes, int[] fiveMinPrices, int[] latestTimes, int[] latestPrices) {
+        int nLatest = length(latestTimes);
+        int newFiveMinCut = nLatest > 0 ? nextBucket(latestTimes[0], Constants.FIVE_MIN_SECONDS) : Integer.MAX_VALUE;
+        int[][] newSourceTiers = {hourTimes, hourPrices, fiveMinTimes, fiveMinPrices};
+        // with no 5m points the hour cut depends on the latest points
+        boolean reusable = sourceTiers != null && newFiveMinCut == fiveMinCut && fiveMinEnd > hourEnd
+                && Arrays.deepEquals(newSourceTiers, sourceTiers);
+        if (!reusable) {
+            return merge(isLow, hourTimes, hourPrices, fiveMinTimes, fiveMinPrices, latestTimes, latestPrices);
+        }
+        int[] newTimes = Arrays.copyOf(times, fiveMinEnd + nLatest);
+        int[] newPrices = Arrays.copyOf(prices, newTimes.length);
+        int n = appendLatest(newTimes, newPrices, fiveMinEnd, latestTimes, latestPrices, fiveMinCut, hourCut);
+        return new Series(isLow, newTimes, newPrices, null, null, n, hourEnd, fiveMinEnd, newSourceTiers, hourCut, fiveMinCut);
+    }
+
+    private static int appendLatest(int[] times, int[] prices, int n, int[] latestTimes, int[] latestPrices, int fiveMinCut, int hourCut) {
+        for (int i = 0; i < length(latestTimes); i++) {
+            if (latestTimes[i] >= fiveMinCut && latestTimes[i] >= hourCut) {
+                times[n] = latestTimes[i];
+                prices[n++] = latestPrices[i];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Wraps the prediction arrays without copying them.
+     */
+    public static Series prediction(boolean isLow, int[] times, int[] means, int[] iqrLower, int[] iqrUpper) {
+        int n = length(times);
+        if (n == 0) {
+            return new Series(isLow, new int[0], new int[0], new int[0], new int[0], 0, 0, 0, null, 0, 0);
+        }
+        return new Series(isLow, times, means, iqrLower, iqrUpper, n, 0, 0, null, 0, 0);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isPrediction() {
+        return iqrLower != null;
+    }
+
+    public Datapoint.Type type(int i) {
+        if (isPrediction()) {
+            return Datapoint.Type.PREDICTION;
+        } else if (i < hourEnd) {
+            return Datapoint.Type.HOUR_AVERAGE;
+        } else if (i < fiveMinEnd) {
+            return Datapoint.Type.FIVE_MIN_AVERAGE;
+        }
+        return Datapoint.Type.INSTA_SELL_BUY;
+    }
+
+    /**
+     * Index of the first point with a time after t, or size if there is none.
+     */
+    public int firstIndexAfter(int t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] > t) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Index of the first point that differs from the other series, or -1 if they are the same.
+     */
+    public int firstDifference(Series other) {
+        int i = Arrays.mismatch(times, 0, size, other.times, 0, other.size);
+        int j = Arrays.mismatch(prices, 0, size, other.prices, 0, other.size);
+        if (isPrediction() && other.isPrediction()) {
+            i = minIndex(i, Arrays.mismatch(iqrLower, 0, size, other.iqrLower, 0, other.size));
+            i = minIndex(i, Arrays.mismatch(iqrUpper, 0, size, other.iqrUpper, 0, other.size));
+        }
+        return minIndex(i, j);
+    }
+
+    private static int minIndex(int i, int j) {
+        return i == -1 ? j : j == -1 ? i : Math.min(i, j);
+    }
+
+    public Datapoint datapoint(int i) {
+        if (isPrediction()) {
+            return new Datapoint(times[i], prices[i], iqrLower[i], iqrUpper[i], isLow);
+        }
+        return new Datapoint(times[i], prices[i], isLow, type(i));
+    }
+
+    private static int nextBucket(int t, int bucketSeconds) {
+        return bucketSeconds * (t / bucketSeconds) + bucketSeconds;
+    }
+
+    // series that haven't been received yet, while the graph data is still loading, are null
+    private static int length(int[] a) {
+        return a == null ? 0 : a.length;
+    }
+}
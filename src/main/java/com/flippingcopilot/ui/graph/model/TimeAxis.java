@@ -1,10 +1,16 @@
 package com.flippingcopilot.ui.graph.model;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class TimeAxis {
-    public int[] dateOnlyTickTimes;
-    public int[] timeOnlyTickTimes;
-    public int[] gridOnlyTickTimes;
+    public final int[] dateOnlyTickTimes;
+    public final int[] timeOnlyTickTimes;
+    public final int[] gridOnlyTickTimes;
+
+    // formatted labels of the ticks and their widths, set by the AxisCache
+    public String[] dateLabels;
+    public int[] dateLabelWidths;
+    public String[] timeLabels;
+    public int[] timeLabelWidths;
 }
@@ -0,0 +1,122 @@
+package com.flippingcopilot.util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads msgpack values one at a time from a stream, so a large map can be decoded entry by entry as it arrives rather
+ * than after the whole body has been read. Each value is copied into a reused buffer and decoded with the MsgPackUtil
+ * methods.
+ */
+public class MsgPackStreamReader {
+
+    private final DataInputStream in;
+    private byte[] buf = new byte[1024];
+    private int length;
+    private long bytesRead;
+
+    public MsgPackStreamReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /**
+     * Reads a map header, returning the number of entries or -1 if the value is nil.
+     */
+    public int readMapHeader() throws IOException {
+        length = 0;
+        int format = copy(1) & 0xFF;
+        int size;
+        if (format == 0xC0) {
+            size = -1;
+        } else if ((format & 0xF0) == 0x80) {
+            size = format & 0x0F;
+        } else if (format == 0xDE) {
+            size = copy(2) & 0xFFFF;
+        } else if (format == 0xDF) {
+            size = copy(4);
+        } else {
+            throw new IOException("Expected map format, got: " + format);
+        }
+        bytesRead += length;
+        return size;
+    }
+
+    /**
+     * Reads the next complete value. The returned buffer is only valid until the next call.
+     */
+    public ByteBuffer readValue() throws IOException {
+        length = 0;
+        copyValue();
+        bytesRead += length;
+        return ByteBuffer.wrap(buf, 0, length);
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private void copyValue() throws IOException {
+        int format = copy(1) & 0xFF;
+        if (format <= 0x7F || (format & 0xE0) == 0xE0 || format == 0xC0 || format == 0xC2 || format == 0xC3) {
+            return;
+        } else if ((format & 0xE0) == 0xA0) {
+            copy(format & 0x1F);
+            return;
+        } else if ((format & 0xF0) == 0x90) {
+            copyValues(format & 0x0F);
+            return;
+        } else if ((format & 0xF0) == 0x80) {
+            copyValues(2 * (format & 0x0F));
+            return;
+        }
+        switch (format) {
+            case 0xCC: case 0xD0: copy(1); break;
+            case 0xCD: case 0xD1: copy(2); break;
+            case 0xCE: case 0xD2: case 0xCA: copy(4); break;
+            case 0xCF: case 0xD3: case 0xCB: copy(8); break;
+            case 0xD9: case 0xC4: copy(copy(1) & 0xFF); break;
+            case 0xDA: case 0xC5: copy(copy(2) & 0xFFFF); break;
+            case 0xDB: case 0xC6: copy(copy(4)); break;
+            case 0xD4: copy(2); break;
+            case 0xD5: copy(3); break;
+            case 0xD6: copy(5); break;
+            case 0xD7: copy(9); break;
+            case 0xD8: copy(17); break;
+            case 0xC7: copy((copy(1) & 0xFF) + 1); break;
+            case 0xC8: copy((copy(2) & 0xFFFF) + 1); break;
+            case 0xC9: copy(copy(4) + 1); break;
+            case 0xDC: copyValues(copy(2) & 0xFFFF); break;
+            case 0xDD: copyValues(copy(4)); break;
+            case 0xDE: copyValues(2 * (copy(2) & 0xFFFF)); break;
+            case 0xDF: copyValues(2 * copy(4)); break;
+            default:
+                throw new IOException("Invalid msgpack format: " + format);
+        }
+    }
+
+    private void copyValues(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            copyValue();
+        }
+    }
+
+    // copies n bytes from the stream to the end of the buffer, returning them as a big endian int when n <= 4
+    private int copy(int n) throws IOException {
+        if (n < 0) {
+            throw new IOException("Invalid msgpack length: " + n);
+        }
+        if (length + n > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, length + n));
+        }
+        in.readFully(buf, length, n);
+        int v = 0;
+        for (int i = 0; i < n && i < 4; i++) {
+            v = (v << 8) | (buf[length + i] & 0xFF);
+        }
+        length += n;
+        return v;
+    }
+}
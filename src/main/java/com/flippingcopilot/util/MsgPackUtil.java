@@ -1,9 +1,16 @@
 package com.flippingcopilot.util;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
+/**
+ * Minimal MsgPack decoding for the suggestion and price graph payloads. The read* methods decode values straight
+ * into primitives, and readKey matches map keys against a precomputed symbol table by comparing the key bytes in
+ * the buffer, so decoding allocates nothing beyond the strings and arrays that end up in the result.
+ * decodePrimitive is the older generic decoder that boxes every value.
+ */
 public class MsgPackUtil {
 
     private static final int EXT_INT32 = 41;
@@ -94,11 +101,38 @@ public class MsgPackUtil {
     }
 
     public static int[] decodeInt32Array(ByteBuffer b) {
-        int format = b.get() & 0xFF;
+        int byteLength = readInt32ArrayHeader(b);
+        if (byteLength < 0) {
+            return null;
+        }
+        // bulk copy through a little endian view rather than assembling each int from its bytes
+        int[] result = new int[byteLength / 4];
+        b.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(result);
+        b.position(b.position() + byteLength);
+        return result;
+    }
 
+    /**
+     * Like decodeInt32Array but returns a view over the array in the original buffer rather than copying it, the
+     * view is only valid for as long as the buffer's contents are.
+     */
+    public static IntBuffer decodeInt32ArrayView(ByteBuffer b) {
+        int byteLength = readInt32ArrayHeader(b);
+        if (byteLength < 0) {
+            return null;
+        }
+        ByteBuffer slice = b.slice();
+        slice.limit(byteLength);
+        b.position(b.position() + byteLength);
+        return slice.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().asReadOnlyBuffer();
+    }
+
+    // returns the byte length of the array or -1 if it is nil
+    private static int readInt32ArrayHeader(ByteBuffer b) {
+        int format = b.get() & 0xFF;
         if (format == 0xC0) {
             // nil (null)
-            return null;
+            return -1;
         } else if (format == 0xC9) {
             // ext 32 - extension with 32-bit length
             int byteLength = b.getInt();
@@ -106,13 +140,7 @@ public class MsgPackUtil {
             if (extType != EXT_INT32) {
                 throw new IllegalArgumentException("Expected extension type " + EXT_INT32 + ", got: " + extType);
             }
-            int arrayLength = byteLength / 4;
-            int[] result = new int[arrayLength];
-            for (int i = 0; i < arrayLength; i++) {
-                result[i] = (b.get() & 0xff) | ((b.get() & 0xff) << 8) |
-                        ((b.get() & 0xff) << 16) | ((b.get() & 0xff) << 24);
-            }
-            return result;
+            return byteLength;
         } else {
             throw new IllegalArgumentException("Expected extension format 0xC9 or nil 0xC0, got: " + format);
         }
@@ -136,4 +164,179 @@ public class MsgPackUtil {
             throw new IllegalArgumentException("Invalid map format: " + format);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Encodes the map keys of a message type as UTF-8, the index of a key in the returned table is what readKey returns.
+     */
+    public static byte[][] symbols(String... keys) {
+        byte[][] symbols = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            symbols[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return symbols;
+    }
+
+    /**
+     * Reads a map key, returning its index in the symbol table or -1 if the key isn't in the table.
+     */
+    public static int readKey(ByteBuffer b, byte[][] symbols) {
+        int length = readStringLength(b, b.get() & 0xFF);
+        int pos = b.position();
+        int match = -1;
+        for (int i = 0; i < symbols.length; i++) {
+            byte[] symbol = symbols[i];
+            if (symbol.length == length && bytesEqual(b, pos, symbol)) {
+                match = i;
+                break;
+            }
+        }
+        b.position(pos + length);
+        return match;
+    }
+
+    /**
+     * Consumes and returns true if the next value is nil, otherwise leaves the buffer untouched.
+     */
+    public static boolean readNil(ByteBuffer b) {
+        if ((b.get(b.position()) & 0xFF) == 0xC0) {
+            b.get();
+            return true;
+        }
+        return false;
+    }
+
+    public static int readInt(ByteBuffer b) {
+        return (int) readLong(b);
+    }
+
+    public static long readLong(ByteBuffer b) {
+        int format = b.get() & 0xFF;
+        if (format <= 0x7F) {
+            return format;
+        } else if ((format & 0xE0) == 0xE0) {
+            return format - 256;
+        }
+        switch (format) {
+            case 0xCC:
+                return b.get() & 0xFF;
+            case 0xCD:
+                return b.getShort() & 0xFFFF;
+            case 0xCE:
+                return b.getInt() & 0xFFFFFFFFL;
+            case 0xCF:
+            case 0xD3:
+                return b.getLong();
+            case 0xD0:
+                return b.get();
+            case 0xD1:
+                return b.getShort();
+            case 0xD2:
+                return b.getInt();
+            case 0xC0:
+                return 0;
+            default:
+                throw new IllegalArgumentException("Invalid integer format: " + format);
+        }
+    }
+
+    public static double readDouble(ByteBuffer b) {
+        int format = b.get(b.position()) & 0xFF;
+        if (format == 0xCB) {
+            b.get();
+            return b.getDouble();
+        } else if (format == 0xCA) {
+            b.get();
+            return b.getFloat();
+        }
+        return readLong(b);
+    }
+
+    public static String readString(ByteBuffer b) {
+        int format = b.get() & 0xFF;
+        if (format == 0xC0) {
+            return null;
+        }
+        int length = readStringLength(b, format);
+        if (length == 0) {
+            return "";
+        }
+        if (b.hasArray()) {
+            String s = new String(b.array(), b.arrayOffset() + b.position(), length, StandardCharsets.UTF_8);
+            b.position(b.position() + length);
+            return s;
+        }
+        return getString(length, new byte[length], b);
+    }
+
+    /**
+     * Skips over the next value of any type, including nested arrays and maps.
+     */
+    public static void skip(ByteBuffer b) {
+        int format = b.get() & 0xFF;
+        int n;
+        if (format <= 0x7F || (format & 0xE0) == 0xE0 || format == 0xC0 || format == 0xC2 || format == 0xC3) {
+            return;
+        } else if ((format & 0xE0) == 0xA0) {
+            n = format & 0x1F;
+        } else if ((format & 0xF0) == 0x90) {
+            skipValues(b, format & 0x0F);
+            return;
+        } else if ((format & 0xF0) == 0x80) {
+            skipValues(b, 2 * (format & 0x0F));
+            return;
+        } else {
+            switch (format) {
+                case 0xCC: case 0xD0: n = 1; break;
+                case 0xCD: case 0xD1: n = 2; break;
+                case 0xCE: case 0xD2: case 0xCA: n = 4; break;
+                case 0xCF: case 0xD3: case 0xCB: n = 8; break;
+                case 0xD9: case 0xC4: n = b.get() & 0xFF; break;
+                case 0xDA: case 0xC5: n = b.getShort() & 0xFFFF; break;
+                case 0xDB: case 0xC6: n = b.getInt(); break;
+                case 0xD4: n = 2; break;
+                case 0xD5: n = 3; break;
+                case 0xD6: n = 5; break;
+                case 0xD7: n = 9; break;
+                case 0xD8: n = 17; break;
+                case 0xC7: n = (b.get() & 0xFF) + 1; break;
+                case 0xC8: n = (b.getShort() & 0xFFFF) + 1; break;
+                case 0xC9: n = b.getInt() + 1; break;
+                case 0xDC: skipValues(b, b.getShort() & 0xFFFF); return;
+                case 0xDD: skipValues(b, b.getInt()); return;
+                case 0xDE: skipValues(b, 2 * (b.getShort() & 0xFFFF)); return;
+                case 0xDF: skipValues(b, 2 * b.getInt()); return;
+                default:
+                    throw new IllegalArgumentException("Invalid format: " + format);
+            }
+        }
+        b.position(b.position() + n);
+    }
+
+    private static void skipValues(ByteBuffer b, int n) {
+        for (int i = 0; i < n; i++) {
+            skip(b);
+        }
+    }
+
+    private static int readStringLength(ByteBuffer b, int format) {
+        if ((format & 0xE0) == 0xA0) {
+            return format & 0x1F;
+        } else if (format == 0xD9) {
+            return b.get() & 0xFF;
+        } else if (format == 0xDA) {
+            return b.getShort() & 0xFFFF;
+        } else if (format == 0xDB) {
+            return b.getInt();
+        }
+        throw new IllegalArgumentException("Invalid string format: " + format);
+    }
+
+    private static boolean bytesEqual(ByteBuffer b, int pos, byte[] symbol) {
+        for (int i = 0; i < symbol.length; i++) {
+            if (b.get(pos + i) != symbol[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+package com.flippingcopilot.util;
+
+import java.util.UUID;
+
+/**
+ * Open addressing hash map from UUID to int that stores the keys as two primitive longs. A HashMap<UUID, Integer>
+ * costs roughly 100 bytes per entry once the UUID, Integer and node objects are counted, this costs around 25.
+ */
+public class UUIDIntMap {
+
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private long[] msb;
+    private long[] lsb;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    public UUIDIntMap() {
+        init(16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value for the id or {@link #MISSING} if there is no entry.
+     */
+    public int get(UUID id) {
+        int i = slot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        return used[i] ? values[i] : MISSING;
+    }
+
+    public void put(UUID id, int value) {
+        if ((size + 1) * 4 > used.length * 3) {
+            rehash(used.length * 2);
+        }
+        long m = id.getMostSignificantBits();
+        long l = id.getLeastSignificantBits();
+        int i = slot(m, l);
+        if (!used[i]) {
+            used[i] = true;
+            msb[i] = m;
+            lsb[i] = l;
+            size++;
+        }
+        values[i] = value;
+    }
+
+    public void clear() {
+        init(16);
+    }
+
+    private int slot(long m, long l) {
+        int mask = used.length - 1;
+        int i = mix(m ^ l) & mask;
+        while (used[i] && (msb[i] != m || lsb[i] != l)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMsb = msb;
+        long[] oldLsb = lsb;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        init(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int s = slot(oldMsb[i], oldLsb[i]);
+                used[s] = true;
+                msb[s] = oldMsb[i];
+                lsb[s] = oldLsb[i];
+                values[s] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void init(int capacity) {
+        msb = new long[capacity];
+        lsb = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        size = 0;
+    }
+
+    private static int mix(long h) {
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+}
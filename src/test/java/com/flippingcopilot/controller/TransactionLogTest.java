@@ -0,0 +1,152 @@
+package com.flippingcopilot.controller;
+
+import com.flippingcopilot.model.OfferStatus;
+import com.flippingcopilot.model.Transaction;
+import com.google.gson.*;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class TransactionLogTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Instant.class, (JsonSerializer<Instant>) (src, t, c) -> new JsonPrimitive(src.toEpochMilli()))
+            .registerTypeAdapter(Instant.class, (JsonDeserializer<Instant>) (json, t, c) -> Instant.ofEpochMilli(json.getAsLong()))
+            .create();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("un_acked", ".jsonl").toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testAppendAndAckSurviveReload() {
+        TransactionLog log = new TransactionLog(file, gson);
+        Assert.assertTrue(log.load().isEmpty());
+        List<Transaction> transactions = randomTransactions(10);
+        transactions.forEach(log::append);
+        log.ack(transactions.subList(0, 4));
+
+        List<Transaction> loaded = new TransactionLog(file, gson).load();
+        Assert.assertEquals(ids(transactions.subList(4, 10)), ids(loaded));
+    }
+
+    @Test
+    public void testDuplicateAppendsAreIgnored() {
+        TransactionLog log = new TransactionLog(file, gson);
+        log.load();
+        List<Transaction> transactions = randomTransactions(3);
+        transactions.forEach(log::append);
+        transactions.forEach(log::append);
+
+        Assert.assertEquals(ids(transactions), ids(new TransactionLog(file, gson).load()));
+    }
+
+    @Test
+    public void testTornWriteIsSkipped() throws IOException {
+        TransactionLog log = new TransactionLog(file, gson);
+        log.load();
+        List<Transaction> transactions = randomTransactions(5);
+        transactions.forEach(log::append);
+
+        // simulate a crash part way through appending a record
+        String torn = "T 1a2b3c4d " + gson.toJson(randomTransactions(1).get(0));
+        Files.write(file.toPath(), torn.substring(0, torn.length() / 2).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        log = new TransactionLog(file, gson);
+        Assert.assertEquals(ids(transactions), ids(log.load()));
+
+        // appends after recovering from the torn record must still be readable
+        Transaction next = randomTransactions(1).get(0);
+        log.append(next);
+        List<Transaction> expected = new ArrayList<>(transactions);
+        expected.add(next);
+        Assert.assertEquals(ids(expected), ids(new TransactionLog(file, gson).load()));
+    }
+
+    @Test
+    public void testInvalidTombstoneIsSkipped() throws IOException {
+        TransactionLog log = new TransactionLog(file, gson);
+        log.load();
+        List<Transaction> transactions = randomTransactions(6);
+        transactions.subList(0, 3).forEach(log::append);
+        // passes its checksum but the id isn't a uuid
+        String tombstone = TransactionLog.record('A', "not-a-uuid") + "\n";
+        Files.write(file.toPath(), tombstone.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        transactions.subList(3, 6).forEach(log::append);
+        log.ack(transactions.subList(4, 5));
+
+        List<Transaction> expected = new ArrayList<>(transactions);
+        expected.remove(4);
+        Assert.assertEquals(ids(expected), ids(new TransactionLog(file, gson).load()));
+    }
+
+    @Test
+    public void testLegacyFileIsReadAndDeduplicated() throws IOException {
+        List<Transaction> transactions = randomTransactions(4);
+        List<String> lines = new ArrayList<>();
+        for (Transaction t : transactions) {
+            lines.add(gson.toJson(t));
+            lines.add(gson.toJson(t));
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+        Assert.assertEquals(ids(transactions), ids(new TransactionLog(file, gson).load()));
+        Assert.assertEquals(4, Files.readAllLines(file.toPath()).size());
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        TransactionLog log = new TransactionLog(file, gson);
+        log.load();
+        List<Transaction> transactions = randomTransactions(300);
+        transactions.forEach(log::append);
+        log.ack(transactions.subList(0, 250));
+        Assert.assertTrue(log.needsCompaction());
+
+        log.compact();
+        Assert.assertFalse(log.needsCompaction());
+        Assert.assertEquals(50, Files.readAllLines(file.toPath()).size());
+        Assert.assertEquals(ids(transactions.subList(250, 300)), ids(new TransactionLog(file, gson).load()));
+    }
+
+    private List<UUID> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).collect(Collectors.toList());
+    }
+
+    private List<Transaction> randomTransactions(int n) {
+        Random random = new Random();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Transaction t = new Transaction();
+            t.setId(UUID.randomUUID());
+            t.setType(random.nextBoolean() ? OfferStatus.BUY : OfferStatus.SELL);
+            t.setItemId(random.nextInt(30000));
+            t.setPrice(random.nextInt(1_000_000));
+            t.setQuantity(1 + random.nextInt(1000));
+            t.setBoxId(random.nextInt(8));
+            t.setAmountSpent(t.getPrice() * t.getQuantity());
+            t.setTimestamp(Instant.now());
+            transactions.add(t);
+        }
+        return transactions;
+    }
+}
@@ -8,6 +8,8 @@ import org.junit.Test;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -27,7 +29,7 @@ public class FlipPriceGraphControllerTest {
         List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 10_000, List.of(0));
 
         // create and populate the flip cache
-        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
         flipManager.setFlipsChangedCallback(() -> {});
         flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
         flipManager.mergeFlips(flips, null);
@@ -36,7 +38,7 @@ public class FlipPriceGraphControllerTest {
 
         verifyflipManagerStoredOrder(flipManager);
 
-        flips.sort(Comparator.comparing(FlipV2::getClosedTime).reversed().thenComparing(FlipV2::getId));
+        flips.sort(Comparator.comparing(FlipV2::getClosedTime).reversed().thenComparing(Comparator.comparing(FlipV2::getId).reversed()));
 
         // create list of test interval start times
         List<Integer> testTimes = Stream.generate(()-> randomIntBetween(sixMonthsAgo, now)).limit(100).collect(Collectors.toList());
@@ -76,7 +78,7 @@ public class FlipPriceGraphControllerTest {
         List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 5_000, List.of(0, 1, 2));
 
         // create and populate the flip cache
-        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
         flipManager.setFlipsChangedCallback(() -> {});
         flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
         flipManager.mergeFlips(flips, null);
@@ -121,13 +123,210 @@ public class FlipPriceGraphControllerTest {
         }
     }
 
+    @Test
+    public void testMergeUpdatedFlips() {
+        int now = (int) Instant.now().getEpochSecond();
+        int sixMonthsAgo = (int) Instant.now().minus(365/ 2, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 5_000, List.of(0, 1, 2));
+
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+        flipManager.mergeFlips(new ArrayList<>(flips), null);
+
+        // re-merge a subset of the flips with moved close times and changed profits, as the server does on updates
+        List<FlipV2> updated = new ArrayList<>();
+        for (int i = 0; i < flips.size(); i += 7) {
+            FlipV2 f = flips.get(i);
+            f.setClosedTime(randomIntBetween(sixMonthsAgo, now));
+            f.setProfit(randomIntBetween(-2_000_000, 4_000_000));
+            f.setItemName("item " + (i % 13));
+            updated.add(f);
+        }
+        flipManager.mergeFlips(updated, null);
+        verifyflipManagerStoredOrder(flipManager);
+
+        flips.sort(Comparator.comparing(FlipV2::getClosedTime).reversed().thenComparing(Comparator.comparing(FlipV2::getId).reversed()));
+        flipManager.setIntervalDisplayName(null);
+        flipManager.setIntervalStartTime(0);
+        Assert.assertEquals(expectedStats(flips, 0, null), flipManager.getIntervalStats());
+        assertFlipListsEqual(flipManager.getPageFlips(1, flips.size()), flips);
+    }
+
+    @Test
+    public void testReadsDuringMerge() throws Exception {
+        int now = (int) Instant.now().getEpochSecond();
+        int sixMonthsAgo = (int) Instant.now().minus(365/ 2, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 20_000, List.of(0, 1, 2));
+
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+
+        // a reader paging through the flips while they're merged in batches must always see a consistent,
+        // growing history
+        AtomicBoolean merging = new AtomicBoolean(true);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            int lastCount = 0;
+            try {
+                while (merging.get()) {
+                    Stats stats = flipManager.getIntervalStats();
+                    Assert.assertTrue(stats.flipsMade >= lastCount);
+                    lastCount = stats.flipsMade;
+                    List<FlipV2> page = flipManager.getPageFlips(1, 500);
+                    for (int i = 1; i < page.size(); i++) {
+                        Assert.assertTrue(page.get(i - 1).getClosedTime() >= page.get(i).getClosedTime());
+                    }
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < flips.size(); i += 200) {
+            flipManager.mergeFlips(new ArrayList<>(flips.subList(i, Math.min(i + 200, flips.size()))), null);
+        }
+        merging.set(false);
+        reader.join();
+        Assert.assertEquals(Collections.emptyList(), failures);
+
+        verifyflipManagerStoredOrder(flipManager);
+        Assert.assertEquals(expectedStats(flips, 0, null), flipManager.getIntervalStats());
+    }
+
+    @Test
+    public void testIncrementalMerges() {
+        int now = (int) Instant.now().getEpochSecond();
+        int yearAgo = (int) Instant.now().minus(365, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(yearAgo, now, 3_000, List.of(0, 1, 2));
+        for (FlipV2 f : flips) {
+            f.setItemId(randomIntBetween(0, 20));
+            f.setItemName("item " + f.getItemId());
+        }
+
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+
+        // small batches, some re-merging earlier flips into other weeks, so each publish only changes a few weeks
+        // and items and has to get the rest right from the previous view
+        List<FlipV2> merged = new ArrayList<>();
+        for (int i = 0; i < flips.size(); i += 100) {
+            List<FlipV2> batch = new ArrayList<>(flips.subList(i, Math.min(i + 100, flips.size())));
+            merged.addAll(batch);
+            for (int j = 0; j < 5 && i > 0; j++) {
+                FlipV2 f = merged.get(randomIntBetween(0, i - 1));
+                f.setClosedTime(randomIntBetween(yearAgo, now));
+                f.setItemId(randomIntBetween(0, 20));
+                f.setItemName("item " + f.getItemId());
+                batch.add(f);
+            }
+            flipManager.mergeFlips(batch, null);
+
+            for (int time : Arrays.asList(0, randomIntBetween(yearAgo, now), now - 60 * 60)) {
+                for (String name : Arrays.asList(null, DISPLAY_NAME_1, DISPLAY_NAME_2)) {
+                    Assert.assertEquals(expectedStats(merged, time, name), flipManager.calculateStats(time, name));
+                    Integer accountId = name == null ? null : displayNameToAccountId.get(name);
+                    Map<Integer, ItemStats> expected = new HashMap<>();
+                    for (FlipV2 f : merged) {
+                        if (f.getClosedTime() > time && (accountId == null || accountId == f.getAccountId())) {
+                            expected.computeIfAbsent(f.getItemId(), (k) -> new ItemStats(k, f.getItemName())).addFlip(f);
+                        }
+                    }
+                    Map<Integer, ItemStats> actual = new HashMap<>();
+                    flipManager.calculateItemStats(time, name).forEach(s -> actual.put(s.itemId, s));
+                    Assert.assertEquals(expected, actual);
+                }
+            }
+        }
+        verifyflipManagerStoredOrder(flipManager);
+    }
+
+    @Test(timeout = 10_000)
+    public void testIntervalChangeDuringMerge() throws Exception {
+        int now = (int) Instant.now().getEpochSecond();
+        int sixMonthsAgo = (int) Instant.now().minus(365/ 2, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 2_000, List.of(0, 1, 2));
+
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+        flipManager.mergeFlips(new ArrayList<>(flips), null);
+
+        // a writer holding the lock, as a long sync chunk would, mustn't hold up the EDT changing the interval
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            synchronized (flipManager) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        writer.start();
+        locked.await();
+        try {
+            int time = randomIntBetween(sixMonthsAgo, now);
+            flipManager.setIntervalDisplayName(DISPLAY_NAME_2);
+            flipManager.setIntervalStartTime(time);
+            Assert.assertEquals(DISPLAY_NAME_2, flipManager.getIntervalDisplayName());
+            Assert.assertEquals(expectedStats(flips, time, DISPLAY_NAME_2), flipManager.getIntervalStats());
+            flipManager.setIntervalDisplayName("Acc 4");
+            Assert.assertEquals(new Stats(), flipManager.getIntervalStats());
+            Assert.assertTrue(flipManager.getDisplayNameOptions().contains("Acc 4"));
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testItemStats() {
+        int now = (int) Instant.now().getEpochSecond();
+        int yearAgo = (int) Instant.now().minus(365, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(yearAgo, now, 10_000, List.of(0, 1, 2));
+        for (FlipV2 f : flips) {
+            f.setItemId(randomIntBetween(0, 50));
+            f.setItemName("item " + f.getItemId());
+            f.setOpenedTime(f.getClosedTime() - randomIntBetween(0, 48 * 60 * 60));
+        }
+
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+        flipManager.mergeFlips(new ArrayList<>(flips), null);
+
+        // times both near the start and near the end so the totals are added up from either side
+        List<Integer> testTimes = Stream.generate(()-> randomIntBetween(yearAgo, now)).limit(30).collect(Collectors.toList());
+        testTimes.add(0);
+        testTimes.add(now - 60 * 60);
+        for (int time : testTimes) {
+            for (String name : Arrays.asList(null, DISPLAY_NAME_1, DISPLAY_NAME_3)) {
+                Integer accountId = name == null ? null : displayNameToAccountId.get(name);
+                Map<Integer, ItemStats> expected = new HashMap<>();
+                for (FlipV2 f : flips) {
+                    if (f.getClosedTime() > time && (accountId == null || accountId == f.getAccountId())) {
+                        expected.computeIfAbsent(f.getItemId(), (k) -> new ItemStats(k, f.getItemName())).addFlip(f);
+                    }
+                }
+                Map<Integer, ItemStats> actual = new HashMap<>();
+                flipManager.calculateItemStats(time, name).forEach(s -> actual.put(s.itemId, s));
+                Assert.assertEquals(expected, actual);
+            }
+        }
+    }
+
     public void verifyflipManagerStoredOrder(FlipManager flipManager) {
         for (int i =0; i < flipManager.weeks.size(); i++) {
             Assert.assertTrue(flipManager.weeks.get(Math.max(i-1,0)).weekStart <= flipManager.weeks.get(i).weekStart);
             FlipManager.WeekAggregate w = flipManager.weeks.get(i);
-            for (List<FlipV2> flips : w.accountIdToFlips.values()) {
-                for (int ii =1; ii < flips.size(); ii++) {
-                    Assert.assertTrue(flips.get(ii-1).getClosedTime() <= flips.get(ii).getClosedTime());
+            for (FlipColumns flips : w.accountIdToFlips.values()) {
+                for (int ii =1; ii < flips.size; ii++) {
+                    Assert.assertTrue(flips.compareRows(ii-1, flips, ii) < 0);
                 }
             }
         }
@@ -0,0 +1,211 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.ApiRequestHandler;
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import com.flippingcopilot.controller.Persistance;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class FlipSyncTest {
+
+    private static final String DISPLAY_NAME = "Acc 1";
+    private static final int NUM_FLIPS = 200_000;
+
+    private final Gson gson = new Gson();
+    private final OkHttpClient okHttpClient = new OkHttpClient();
+    private final Map<UUID, FlipV2> serverFlips = new LinkedHashMap<>();
+    private final Map<UUID, Integer> serverUpdatedTimes = new HashMap<>();
+    private int rowsTransferred;
+
+    private HttpServer server;
+    private File directory;
+    private LoginResponseManager loginResponseManager;
+    private ApiRequestHandler api;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("flipping-copilot-test").toFile();
+        Persistance.setUp(directory.getPath());
+
+        // stand-in for the copilot server that honours the changed_since cursor
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/profit-tracking/rs-account-names", (e) -> respond(e, Map.of(DISPLAY_NAME, 0)));
+        server.createContext("/profit-tracking/client-flips", (e) -> {
+            String query = e.getRequestURI().getQuery();
+            int changedSince = query == null ? 0 : Integer.parseInt(query.substring(query.indexOf('=') + 1));
+            List<FlipV2> flips = serverFlips.values().stream()
+                    .filter(f -> serverUpdatedTimes.get(f.getId()) >= changedSince)
+                    .collect(Collectors.toList());
+            rowsTransferred += flips.size();
+            respond(e, flips);
+        });
+        server.start();
+
+        loginResponseManager = new LoginResponseManager(gson, new DoesNothingExecutorService());
+        loginResponseManager.setLoginResponse(new LoginResponse(false, "", "jwt", 1));
+        api = new ApiRequestHandler(okHttpClient, gson, loginResponseManager, null, null, "http://localhost:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        for (File f : Objects.requireNonNull(directory.listFiles())) {
+            f.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRestartOnlyTransfersChangedFlips() throws Exception {
+        int now = (int) Instant.now().getEpochSecond();
+        int twoDaysAgo = now - 2 * 24 * 60 * 60;
+        Random random = new Random(1);
+        for (int i = 0; i < NUM_FLIPS; i++) {
+            addServerFlip(randomFlip(random, now - 365 * 24 * 60 * 60, twoDaysAgo), twoDaysAgo);
+        }
+
+        // first start, no snapshot so the full history is downloaded
+        FlipManager flipManager = newFlipManager();
+        flipManager.syncFlips(0);
+        Assert.assertEquals(NUM_FLIPS, rowsTransferred);
+        assertMatchesServer(flipManager);
+
+        // while the plugin is off some flips are updated and new ones are made
+        rowsTransferred = 0;
+        List<FlipV2> existing = new ArrayList<>(serverFlips.values());
+        for (int i = 0; i < 1000; i++) {
+            FlipV2 f = existing.get(random.nextInt(existing.size()));
+            f.setProfit(f.getProfit() + 1000);
+            addServerFlip(f, now);
+        }
+        int changed = serverUpdatedTimes.values().stream().mapToInt(t -> t == now ? 1 : 0).sum();
+        for (int i = 0; i < 200; i++) {
+            addServerFlip(randomFlip(random, twoDaysAgo, now), now);
+        }
+
+        // second start, the snapshot is loaded and only the changed flips are downloaded
+        flipManager = newFlipManager();
+        flipManager.syncFlips(0);
+        Assert.assertEquals(changed + 200, rowsTransferred);
+        assertMatchesServer(flipManager);
+    }
+
+    @Test
+    public void testCorruptSnapshotFallsBackToFullDownload() throws Exception {
+        int now = (int) Instant.now().getEpochSecond();
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            addServerFlip(randomFlip(random, now - 30 * 24 * 60 * 60, now), now - 24 * 60 * 60);
+        }
+        newFlipManager().syncFlips(0);
+
+        File snapshot = new File(directory, "user_1_flips.bin");
+        byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        bytes[bytes.length / 2] ^= 0xFF;
+        Files.write(snapshot.toPath(), bytes);
+
+        rowsTransferred = 0;
+        FlipManager flipManager = newFlipManager();
+        flipManager.syncFlips(0);
+        Assert.assertEquals(1000, rowsTransferred);
+        assertMatchesServer(flipManager);
+    }
+
+    @Test
+    public void testDeletedFlipsDropOutAfterFullSyncInterval() throws Exception {
+        int now = (int) Instant.now().getEpochSecond();
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            addServerFlip(randomFlip(random, now - 30 * 24 * 60 * 60, now), now - 24 * 60 * 60);
+        }
+        newFlipManager().syncFlips(0);
+        File snapshotFile = new File(directory, "user_1_flips.bin");
+        int lastFullSync = FlipSnapshot.load(snapshotFile).lastFullSync;
+
+        // deletions aren't sent as changes so a delta sync keeps the deleted flips, and the last full sync time
+        Iterator<UUID> it = serverFlips.keySet().iterator();
+        for (int i = 0; i < 10; i++) {
+            it.next();
+            it.remove();
+        }
+        rowsTransferred = 0;
+        FlipManager flipManager = newFlipManager();
+        flipManager.syncFlips(0);
+        Assert.assertEquals(0, rowsTransferred);
+        Assert.assertEquals(1000, flipManager.getPageFlips(1, 2000).size());
+        FlipSnapshot snapshot = FlipSnapshot.load(snapshotFile);
+        Assert.assertEquals(lastFullSync, snapshot.lastFullSync);
+
+        // once the full sync interval has passed since the last full download the history is downloaded again
+        FlipSnapshot.store(snapshotFile, snapshot.cursor, lastFullSync - 31 * 24 * 60 * 60, snapshot.flips.size(), (c) -> snapshot.flips.forEach(c));
+        flipManager = newFlipManager();
+        flipManager.syncFlips(0);
+        Assert.assertEquals(990, rowsTransferred);
+        assertMatchesServer(flipManager);
+        Assert.assertTrue(FlipSnapshot.load(snapshotFile).lastFullSync >= now);
+    }
+
+    private FlipManager newFlipManager() {
+        FlipManager flipManager = new FlipManager(api, new DoesNothingExecutorService(), okHttpClient, loginResponseManager);
+        flipManager.setFlipsChangedCallback(() -> {});
+        return flipManager;
+    }
+
+    private void assertMatchesServer(FlipManager flipManager) {
+        List<FlipV2> expected = new ArrayList<>(serverFlips.values());
+        expected.sort(Comparator.comparing(FlipV2::getClosedTime).reversed().thenComparing(Comparator.comparing(FlipV2::getId).reversed()));
+        Stats expectedStats = new Stats();
+        expected.forEach(expectedStats::addFlip);
+
+        flipManager.setIntervalDisplayName(DISPLAY_NAME);
+        flipManager.setIntervalStartTime(0);
+        Assert.assertEquals(expectedStats, flipManager.getIntervalStats());
+        Assert.assertEquals(expected, flipManager.getPageFlips(1, expected.size()));
+    }
+
+    private void addServerFlip(FlipV2 f, int updatedTime) {
+        serverFlips.put(f.getId(), f);
+        serverUpdatedTimes.put(f.getId(), updatedTime);
+    }
+
+    private FlipV2 randomFlip(Random random, int start, int end) {
+        FlipV2 f = new FlipV2();
+        f.setId(UUID.randomUUID());
+        f.setAccountId(0);
+        f.setItemId(random.nextInt(100));
+        f.setItemName("Item " + f.getItemId());
+        f.setOpenedTime(start);
+        f.setOpenedQuantity(100);
+        f.setClosedQuantity(100);
+        f.setClosedTime(start + random.nextInt(end - start));
+        f.setSpent(random.nextInt(1_000_000_000));
+        f.setProfit(random.nextInt(6_000_000) - 2_000_000);
+        f.setClosed(true);
+        return f;
+    }
+
+    private void respond(HttpExchange e, Object body) throws IOException {
+        e.getResponseHeaders().add("Content-Type", "application/json");
+        e.sendResponseHeaders(200, 0);
+        try (Writer w = new OutputStreamWriter(e.getResponseBody(), StandardCharsets.UTF_8)) {
+            gson.toJson(body, w);
+        }
+    }
+}
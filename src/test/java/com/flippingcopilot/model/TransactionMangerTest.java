@@ -0,0 +1,127 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.ApiRequestHandler;
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import com.flippingcopilot.controller.Persistance;
+import com.google.gson.*;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class TransactionMangerTest {
+
+    private static final String DISPLAY_NAME = "Acc 1";
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Instant.class, (JsonSerializer<Instant>) (src, t, c) -> new JsonPrimitive(src.toEpochMilli()))
+            .registerTypeAdapter(Instant.class, (JsonDeserializer<Instant>) (json, t, c) -> Instant.ofEpochMilli(json.getAsLong()))
+            .create();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("flipping-copilot-test").toFile();
+        Persistance.setUp(directory.getPath());
+        Persistance.gson = gson;
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : Objects.requireNonNull(directory.listFiles())) {
+            f.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRetryDelayGrowsWithinJitterBounds() {
+        TransactionManger.UploadState state = new TransactionManger.UploadState(now::get);
+        for (int i = 0; i < 6; i++) {
+            long backoff = TransactionManger.BASE_RETRY_DELAY_MS << i;
+            long delay = state.nextRetryDelayMs();
+            Assert.assertTrue(delay + " not in upper half of " + backoff, delay >= backoff / 2 && delay <= backoff);
+        }
+    }
+
+    @Test
+    public void testRetryDelayIsCapped() {
+        TransactionManger.UploadState state = new TransactionManger.UploadState(now::get);
+        for (int i = 0; i < 100; i++) {
+            now.addAndGet(TransactionManger.RETRY_BUDGET_REFILL_MS);
+            long delay = state.nextRetryDelayMs();
+            Assert.assertTrue(delay <= TransactionManger.MAX_RETRY_DELAY_MS);
+        }
+        Assert.assertTrue(state.nextRetryDelayMs() >= TransactionManger.MAX_RETRY_DELAY_MS / 2);
+    }
+
+    @Test
+    public void testExhaustedRetryBudgetWaitsForRefill() {
+        TransactionManger.UploadState state = new TransactionManger.UploadState(now::get);
+        // successes reset the backoff but not the budget, so short retries spend it
+        for (int i = 0; i < TransactionManger.RETRY_BUDGET; i++) {
+            Assert.assertTrue(state.nextRetryDelayMs() <= TransactionManger.BASE_RETRY_DELAY_MS);
+            state.recordSuccess(Collections.emptyList(), 10);
+        }
+        Assert.assertEquals(TransactionManger.RETRY_BUDGET_REFILL_MS, state.nextRetryDelayMs());
+        state.recordSuccess(Collections.emptyList(), 10);
+
+        // one retry is restored per refill interval
+        now.addAndGet(TransactionManger.RETRY_BUDGET_REFILL_MS);
+        Assert.assertTrue(state.nextRetryDelayMs() <= TransactionManger.BASE_RETRY_DELAY_MS);
+        state.recordSuccess(Collections.emptyList(), 10);
+        Assert.assertEquals(TransactionManger.RETRY_BUDGET_REFILL_MS, state.nextRetryDelayMs());
+    }
+
+    @Test
+    public void testUnAckedTransactionsAreSentInBatches() {
+        int n = 2 * TransactionManger.MAX_BATCH_SIZE + 50;
+        List<List<Transaction>> batches = new ArrayList<>();
+        LoginResponseManager loginResponseManager = new LoginResponseManager(gson, new DoesNothingExecutorService());
+        ApiRequestHandler api = new ApiRequestHandler(new OkHttpClient(), gson, loginResponseManager, null, null, "http://localhost") {
+            @Override
+            public void sendTransactionsAsync(List<Transaction> transactions, String displayName, Consumer<List<FlipV2>> onSuccess, Consumer<HttpResponseException> onFailure) {
+                batches.add(transactions);
+                onSuccess.accept(new ArrayList<>());
+            }
+        };
+        FlipManager flipManager = new FlipManager(api, new DoesNothingExecutorService(), new OkHttpClient(), loginResponseManager);
+        flipManager.setFlipsChangedCallback(() -> {});
+        TransactionManger transactionManger = new TransactionManger(flipManager, new DoesNothingExecutorService(), api, loginResponseManager, null);
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Transaction t = new Transaction();
+            t.setId(UUID.randomUUID());
+            t.setType(OfferStatus.BUY);
+            t.setItemId(i);
+            t.setQuantity(1);
+            t.setTimestamp(Instant.now());
+            transactions.add(t);
+            transactionManger.addTransaction(t, DISPLAY_NAME);
+        }
+
+        // the executor never runs the follow up syncs so drive them by hand
+        for (int i = 0; i < 4; i++) {
+            transactionManger.getUploadState(DISPLAY_NAME).scheduled.set(false);
+            transactionManger.syncUnAckedTransactions(DISPLAY_NAME);
+        }
+        Assert.assertEquals(3, batches.size());
+        int size = TransactionManger.MAX_BATCH_SIZE;
+        Assert.assertEquals(transactions.subList(0, size), batches.get(0));
+        Assert.assertEquals(transactions.subList(size, 2 * size), batches.get(1));
+        Assert.assertEquals(transactions.subList(2 * size, n), batches.get(2));
+        Assert.assertTrue(transactionManger.getUnAckedTransactions(DISPLAY_NAME).isEmpty());
+    }
+}
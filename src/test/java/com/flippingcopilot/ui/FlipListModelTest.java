@@ -0,0 +1,109 @@
+package com.flippingcopilot.ui;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import com.flippingcopilot.model.FlipManager;
+import com.flippingcopilot.model.FlipV2;
+import okhttp3.OkHttpClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class FlipListModelTest {
+
+    @Test
+    public void testRowsMatchPages() {
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.mergeFlips(flips(1_000), "Acc 1");
+        flipManager.setIntervalDisplayName(null);
+        flipManager.setIntervalStartTime(1);
+
+        FlipListModel model = new FlipListModel(flipManager);
+        model.update(flipManager.getIntervalStats().flipsMade);
+        Assert.assertEquals(1_000, model.getSize());
+
+        List<FlipV2> expected = flipManager.getPageFlips(1, 1_000);
+        // read backwards and out of block order so blocks are evicted and fetched again
+        for (int i = model.getSize() - 1; i >= 0; i -= 7) {
+            Assert.assertEquals(expected.get(i), model.getElementAt(i));
+        }
+        for (int i = 0; i < model.getSize(); i++) {
+            Assert.assertEquals(expected.get(i), model.getElementAt(i));
+        }
+
+        // a shrunk interval
+        flipManager.setIntervalStartTime(expected.get(100).getClosedTime());
+        model.update(flipManager.getIntervalStats().flipsMade);
+        Assert.assertEquals(100, model.getSize());
+        Assert.assertEquals(expected.get(0), model.getElementAt(0));
+        Assert.assertEquals(expected.get(99), model.getElementAt(99));
+    }
+
+    @Test
+    public void testUpdateReportsOnlyChangedRows() {
+        FlipManager flipManager = new FlipManager(null, new DoesNothingExecutorService(), new OkHttpClient.Builder().build(), null);
+        flipManager.setFlipsChangedCallback(() -> {});
+        List<FlipV2> flips = flips(200);
+        flipManager.mergeFlips(new ArrayList<>(flips), "Acc 1");
+        flipManager.setIntervalStartTime(1);
+
+        FlipListModel model = new FlipListModel(flipManager);
+        model.update(200);
+        for (int i = 0; i < 60; i++) {
+            model.getElementAt(i);
+        }
+        List<ListDataEvent> events = new ArrayList<>();
+        model.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                events.add(e);
+            }
+
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                events.add(e);
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                events.add(e);
+            }
+        });
+
+        // nothing changed
+        model.update(200);
+        Assert.assertTrue(events.isEmpty());
+
+        // the newest flips are first, so the flip at index 5 is the 6th newest
+        FlipV2 changed = flips.get(194);
+        changed.setProfit(-1);
+        flipManager.mergeFlips(new ArrayList<>(List.of(changed)), "Acc 1");
+        model.update(200);
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(ListDataEvent.CONTENTS_CHANGED, events.get(0).getType());
+        Assert.assertEquals(5, events.get(0).getIndex0());
+        Assert.assertEquals(5, events.get(0).getIndex1());
+        Assert.assertEquals(-1, model.getElementAt(5).getProfit());
+    }
+
+    private List<FlipV2> flips(int n) {
+        List<FlipV2> flips = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            FlipV2 f = new FlipV2();
+            f.setId(UUID.randomUUID());
+            f.setAccountId(1);
+            f.setItemId(i % 20);
+            f.setClosed(true);
+            f.setClosedTime(1_700_000_000 + i * 600);
+            f.setProfit(i);
+            flips.add(f);
+        }
+        return flips;
+    }
+}
@@ -0,0 +1,79 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Bounds;
+import com.flippingcopilot.ui.graph.model.Config;
+import com.flippingcopilot.ui.graph.model.Constants;
+import com.flippingcopilot.ui.graph.model.PriceAxis;
+import com.flippingcopilot.ui.graph.model.TimeAxis;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+public class AxisCacheTest {
+
+    private static final int DAY = Constants.DAY_SECONDS;
+
+    @Test
+    public void testMemoisedPerView() {
+        AxisCache cache = new AxisCache();
+        FontMetrics metrics = metrics();
+        PlotArea pa = plotArea(new Bounds(100 * DAY, 103 * DAY, 1000, 2000));
+
+        TimeAxis timeAxis = cache.timeAxis(pa, 0, metrics);
+        PriceAxis priceAxis = cache.priceAxis(pa, metrics);
+        Assert.assertSame(timeAxis, cache.timeAxis(pa, 0, metrics));
+        Assert.assertSame(priceAxis, cache.priceAxis(pa, metrics));
+
+        // a different time zone changes the ticks
+        Assert.assertNotSame(timeAxis, cache.timeAxis(pa, Constants.HOUR_SECONDS, metrics));
+    }
+
+    @Test
+    public void testLabelsMatchFormatting() {
+        AxisCache cache = new AxisCache();
+        FontMetrics metrics = metrics();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("d MMM");
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
+        PlotArea pa = plotArea(new Bounds(100 * DAY, 103 * DAY, 1000, 2000));
+        int offset = AxisCalculator.getLocalTimeOffsetSeconds();
+
+        // pan by half a day at a time so labels are carried over from the previous view
+        for (int i = 0; i < 6; i++) {
+            TimeAxis axis = cache.timeAxis(pa, offset, metrics);
+            Assert.assertTrue(axis.timeOnlyTickTimes.length > 0);
+            for (int j = 0; j < axis.dateOnlyTickTimes.length; j++) {
+                String expected = dateFormat.format(new Date(axis.dateOnlyTickTimes[j] * 1000L));
+                Assert.assertEquals(expected, axis.dateLabels[j]);
+                Assert.assertEquals(metrics.stringWidth(expected), axis.dateLabelWidths[j]);
+            }
+            for (int j = 0; j < axis.timeOnlyTickTimes.length; j++) {
+                String expected = timeFormat.format(new Date(axis.timeOnlyTickTimes[j] * 1000L));
+                Assert.assertEquals(expected, axis.timeLabels[j]);
+                Assert.assertEquals(metrics.stringWidth(expected), axis.timeLabelWidths[j]);
+            }
+
+            PriceAxis priceAxis = cache.priceAxis(pa, metrics);
+            for (int j = 0; j < priceAxis.tickPrices.length; j++) {
+                Assert.assertEquals(com.flippingcopilot.ui.UIUtilities.quantityToRSDecimalStack(priceAxis.tickPrices[j], true), priceAxis.tickLabels[j]);
+            }
+            pa.bounds = new Bounds(pa.bounds.xMin + DAY / 2, pa.bounds.xMax + DAY / 2, pa.bounds.yMin + 100, pa.bounds.yMax + 100);
+        }
+    }
+
+    private static FontMetrics metrics() {
+        Graphics2D g2 = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+        return g2.getFontMetrics(g2.getFont().deriveFont(Config.FONT_SIZE));
+    }
+
+    private static PlotArea plotArea(Bounds bounds) {
+        PlotArea pa = new PlotArea();
+        pa.w = 500;
+        pa.h = 300;
+        pa.bounds = bounds;
+        return pa;
+    }
+}
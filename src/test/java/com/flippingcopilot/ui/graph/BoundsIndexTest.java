@@ -0,0 +1,77 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Bounds;
+import com.flippingcopilot.ui.graph.model.Constants;
+import com.flippingcopilot.ui.graph.model.Data;
+import com.flippingcopilot.ui.graph.model.Series;
+import com.flippingcopilot.util.MsgPackWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class BoundsIndexTest {
+
+    @Test
+    public void testMatchesScan() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        Random random = new Random(1);
+        for (Series s : dm.series) {
+            BoundsIndex index = new BoundsIndex(s);
+            for (int k = 0; k < 500; k++) {
+                int from = random.nextInt(s.size + 1);
+                int to = from + random.nextInt(s.size - from + 1);
+                int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    min = Math.min(min, s.isPrediction() ? Math.min(s.prices[i], s.iqrLower[i]) : s.prices[i]);
+                    max = Math.max(max, s.isPrediction() ? Math.max(s.prices[i], s.iqrUpper[i]) : s.prices[i]);
+                    sum += s.prices[i];
+                }
+                Assert.assertEquals(min, index.min(from, to));
+                Assert.assertEquals(max, index.max(from, to));
+                Assert.assertEquals(sum, index.priceSum(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testWindowBoundsMatchScan() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        Bounds max = dm.calculateBounds(Integer.MIN_VALUE);
+        Assert.assertEquals(scanBounds(dm, Integer.MIN_VALUE, Integer.MAX_VALUE), max);
+
+        Random random = new Random(1);
+        for (int k = 0; k < 100; k++) {
+            int fromTime = max.xMin + random.nextInt(max.xDelta());
+            int toTime = fromTime + random.nextInt(10 * Constants.DAY_SECONDS);
+            Assert.assertEquals(scanBounds(dm, fromTime, toTime), dm.calculateBounds(fromTime, toTime));
+        }
+        // no points in the window
+        Assert.assertEquals(Integer.MAX_VALUE, dm.calculateBounds(max.xMax + 1, max.xMax + 2).xMin);
+    }
+
+    private static Bounds scanBounds(DataManager dm, int fromTime, int toTime) {
+        Bounds b = new Bounds(Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        long ySum = 0;
+        long n = 0;
+        for (Series s : dm.series) {
+            for (int i = 0; i < s.size; i++) {
+                if (s.times[i] <= fromTime || s.times[i] > toTime) {
+                    continue;
+                }
+                ySum += s.prices[i];
+                n++;
+                b.xMin = Math.min(b.xMin, s.times[i]);
+                b.xMax = Math.max(b.xMax, s.times[i]);
+                b.yMin = Math.min(b.yMin, s.isPrediction() ? Math.min(s.prices[i], s.iqrLower[i]) : s.prices[i]);
+                b.yMax = Math.max(b.yMax, s.isPrediction() ? Math.max(s.prices[i], s.iqrUpper[i]) : s.prices[i]);
+            }
+        }
+        int pricePadding = Math.max(1, (int) (0.03 * (n > 0 ? ySum / n : 0)));
+        b.yMin = Math.max(0, b.yMin - pricePadding);
+        b.yMax += pricePadding;
+        return b;
+    }
+}
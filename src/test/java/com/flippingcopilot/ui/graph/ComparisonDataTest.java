@@ -0,0 +1,52 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Bounds;
+import com.flippingcopilot.ui.graph.model.Data;
+import com.flippingcopilot.ui.graph.model.Series;
+import com.flippingcopilot.util.MsgPackWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class ComparisonDataTest {
+
+    @Test
+    public void testNormalisedFromSharedStart() throws Exception {
+        Data a = Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1)));
+        Data b = Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(2)));
+        // no price data at all, left out of the comparison
+        Data empty = new Data();
+
+        ComparisonData comparison = new ComparisonData(Arrays.asList(a, empty, b));
+        Assert.assertEquals(2, comparison.series.length);
+        Assert.assertEquals(a.name, comparison.names[0]);
+        Assert.assertEquals(b.name, comparison.names[1]);
+
+        DataManager dmA = new DataManager(a);
+        DataManager dmB = new DataManager(b);
+        int start = Math.max(dmA.lows.times[0], dmB.lows.times[0]);
+        for (int i = 0; i < 2; i++) {
+            Series s = comparison.series[i];
+            Series lows = (i == 0 ? dmA : dmB).lows;
+            Assert.assertEquals(lows.times[lows.firstIndexAfter(start - 1)], s.times[0]);
+            Assert.assertEquals(ComparisonData.UNCHANGED, s.prices[0]);
+            // the last point is always kept
+            long expected = ComparisonData.UNCHANGED * (long) lows.prices[lows.size - 1] / lows.prices[lows.firstIndexAfter(start - 1)];
+            Assert.assertEquals(lows.times[lows.size - 1], s.times[s.size - 1]);
+            Assert.assertEquals(expected, s.prices[s.size - 1]);
+            Assert.assertTrue(s.size <= 2 * 1001 + 2);
+            Assert.assertTrue(s.size < lows.size);
+        }
+
+        Bounds max = comparison.calculateBounds(Integer.MIN_VALUE);
+        Assert.assertTrue(max.yMin < ComparisonData.UNCHANGED && max.yMax > ComparisonData.UNCHANGED);
+    }
+
+    @Test
+    public void testNoItems() {
+        ComparisonData comparison = new ComparisonData(Arrays.asList(new Data(), new Data()));
+        Assert.assertTrue(comparison.isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Data;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GraphDataCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedIsEvictedOverBudget() {
+        long itemBytes = GraphDataCache.estimateBytes(data(1, 1000, false));
+        GraphDataCache cache = new GraphDataCache(3 * itemBytes);
+        cache.put(data(1, 1000, false), 0);
+        cache.put(data(2, 1000, false), 0);
+        cache.put(data(3, 1000, false), 0);
+        Assert.assertEquals(3 * itemBytes, cache.getTotalBytes());
+
+        // touching item 1 makes item 2 the least recently used
+        Assert.assertNotNull(cache.get(1, 0));
+        cache.put(data(4, 1000, false), 0);
+        Assert.assertNull(cache.get(2, 0));
+        Assert.assertNotNull(cache.get(1, 0));
+        Assert.assertNotNull(cache.get(3, 0));
+        Assert.assertNotNull(cache.get(4, 0));
+        Assert.assertEquals(3 * itemBytes, cache.getTotalBytes());
+
+        // replacing an item doesn't double count it
+        cache.put(data(4, 1000, false), 0);
+        Assert.assertEquals(3 * itemBytes, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testTierTtls() {
+        GraphDataCache cache = new GraphDataCache(GraphDataCache.DEFAULT_BUDGET_BYTES);
+        cache.put(data(1, 100, true), 0);
+        cache.put(data(2, 100, false), 0);
+
+        Assert.assertEquals(GraphDataCache.Freshness.FRESH, cache.freshness(1, GraphDataCache.LATEST_TTL_MS - 1));
+        Assert.assertEquals(GraphDataCache.Freshness.STALE, cache.freshness(1, GraphDataCache.LATEST_TTL_MS));
+        Assert.assertNotNull(cache.get(1, GraphDataCache.LATEST_TTL_MS));
+
+        // without any latest prices the data stays fresh for as long as the 1h history
+        Assert.assertEquals(GraphDataCache.Freshness.FRESH, cache.freshness(2, GraphDataCache.HOUR_TTL_MS - 1));
+
+        Assert.assertEquals(GraphDataCache.Freshness.MISSING, cache.freshness(1, GraphDataCache.HOUR_TTL_MS));
+        Assert.assertNull(cache.get(1, GraphDataCache.HOUR_TTL_MS));
+        Assert.assertNull(cache.get(2, GraphDataCache.HOUR_TTL_MS));
+        Assert.assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testPartialAndFailedDataIsNotCached() {
+        GraphDataCache cache = new GraphDataCache(GraphDataCache.DEFAULT_BUDGET_BYTES);
+        Data partial = data(1, 100, true);
+        partial.partial = true;
+        cache.put(partial, 0);
+        Data failed = data(2, 0, false);
+        failed.loadingErrorMessage = "There was an issue loading the graph data for this item.";
+        cache.put(failed, 0);
+        Assert.assertNull(cache.get(1, 0));
+        Assert.assertNull(cache.get(2, 0));
+    }
+
+    private Data data(int itemId, int n, boolean withLatest) {
+        Data d = new Data();
+        d.itemId = itemId;
+        d.low1hTimes = new int[n];
+        d.low1hPrices = new int[n];
+        d.high1hTimes = new int[n];
+        d.high1hPrices = new int[n];
+        if (withLatest) {
+            d.lowLatestTimes = new int[n];
+            d.lowLatestPrices = new int[n];
+        }
+        return d;
+    }
+}
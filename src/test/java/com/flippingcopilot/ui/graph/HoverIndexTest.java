@@ -0,0 +1,91 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Bounds;
+import com.flippingcopilot.ui.graph.model.Constants;
+import com.flippingcopilot.ui.graph.model.Data;
+import com.flippingcopilot.ui.graph.model.Datapoint;
+import com.flippingcopilot.ui.graph.model.Series;
+import com.flippingcopilot.util.MsgPackWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class HoverIndexTest {
+
+    private static final int RADIUS = 8;
+
+    @Test
+    public void testMatchesBruteForce() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        Bounds max = dm.calculateBounds(Integer.MIN_VALUE);
+        PlotArea pa = new PlotArea();
+        pa.w = 500;
+        pa.h = 300;
+        HoverIndex index = new HoverIndex();
+        Random random = new Random(1);
+
+        // the whole history and the last day zoomed in
+        Bounds[] views = {
+                max,
+                dm.calculateBounds(max.xMax - Constants.DAY_SECONDS)
+        };
+        int found = 0;
+        for (Bounds view : views) {
+            pa.bounds = view;
+            index.update(dm, pa, RADIUS);
+            for (int i = 0; i < 2000; i++) {
+                int x = random.nextInt(pa.w + 40) - 20;
+                int y = random.nextInt(pa.h + 40) - 20;
+                int ref = index.find(x, y);
+                Datapoint expected = closestPoint(dm, pa, x, y);
+                if (expected == null) {
+                    Assert.assertEquals(-1, ref);
+                } else {
+                    Datapoint actual = index.datapoint(ref);
+                    Assert.assertEquals(expected.time, actual.time);
+                    Assert.assertEquals(expected.price, actual.price);
+                    Assert.assertEquals(expected.isLow, actual.isLow);
+                    Assert.assertEquals(expected.type, actual.type);
+                    found++;
+                }
+            }
+        }
+        Assert.assertTrue(found > 100);
+    }
+
+    @Test
+    public void testEmptyPlotArea() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        PlotArea pa = new PlotArea();
+        pa.bounds = dm.calculateBounds(Integer.MIN_VALUE);
+        HoverIndex index = new HoverIndex();
+        // before the panel is first painted
+        index.update(dm, pa, RADIUS);
+        Assert.assertEquals(-1, index.find(0, 0));
+    }
+
+    // checks every point, preferring the first series in order on ties
+    private static Datapoint closestPoint(DataManager dm, PlotArea pa, int x, int y) {
+        Point mouse = new Point(x, y);
+        Datapoint closest = null;
+        double minDistance = RADIUS;
+        for (Series s : dm.series) {
+            for (int i = 0; i < s.size; i++) {
+                Datapoint d = s.datapoint(i);
+                Point p = d.getHoverPosition(pa);
+                if (p.x < -RADIUS || p.x > pa.w + RADIUS || p.y < -RADIUS || p.y > pa.h + RADIUS) {
+                    continue;
+                }
+                double distance = mouse.distance(p);
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    closest = d;
+                }
+            }
+        }
+        return closest;
+    }
+}
@@ -0,0 +1,154 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.*;
+import com.flippingcopilot.util.MsgPackWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+public class SeriesDecimatorTest {
+
+    @Test
+    public void testZoomedOutLinesKeepColumnExtremes() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        PlotArea pa = plotArea(dm.calculateBounds(Integer.MIN_VALUE));
+        SeriesDecimator decimator = new SeriesDecimator();
+
+        SeriesDecimator.Decimated lines = decimator.lines(dm.lows, pa);
+        Assert.assertTrue(dm.lows.size > 4 * pa.w);
+        Assert.assertTrue(lines.size <= 4 * (pa.w + 3));
+
+        // every column keeps the same vertical extent
+        int[] top = new int[pa.w + 1], bottom = new int[pa.w + 1];
+        java.util.Arrays.fill(top, Integer.MAX_VALUE);
+        java.util.Arrays.fill(bottom, Integer.MIN_VALUE);
+        for (int i = 0; i < dm.lows.size; i++) {
+            int x = pa.timeToX(dm.lows.times[i]);
+            int y = pa.priceToY(dm.lows.prices[i]);
+            top[x] = Math.min(top[x], y);
+            bottom[x] = Math.max(bottom[x], y);
+        }
+        int[] decimatedTop = new int[pa.w + 1], decimatedBottom = new int[pa.w + 1];
+        java.util.Arrays.fill(decimatedTop, Integer.MAX_VALUE);
+        java.util.Arrays.fill(decimatedBottom, Integer.MIN_VALUE);
+        for (int i = 0; i < lines.size; i++) {
+            if (i > 0) {
+                Assert.assertTrue(lines.xs[i] >= lines.xs[i - 1]);
+            }
+            decimatedTop[lines.xs[i]] = Math.min(decimatedTop[lines.xs[i]], lines.ys[i]);
+            decimatedBottom[lines.xs[i]] = Math.max(decimatedBottom[lines.xs[i]], lines.ys[i]);
+        }
+        Assert.assertArrayEquals(top, decimatedTop);
+        Assert.assertArrayEquals(bottom, decimatedBottom);
+    }
+
+    @Test
+    public void testDecimatedDrawsTheSamePixels() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        Bounds max = dm.calculateBounds(Integer.MIN_VALUE);
+        int midPrice = max.yMin + max.yDelta() / 2;
+        Bounds[] views = {
+                max,
+                // the last month, mixing the 1h and 5m tiers
+                new Bounds(max.xMax - 30 * Constants.DAY_SECONDS, max.xMax, max.yMin, max.yMax),
+                // zoomed in on prices so the points of a column spread over many pixels and some are off the view
+                new Bounds(max.xMin, max.xMax, midPrice - max.yDelta() / 20, midPrice + max.yDelta() / 20),
+        };
+        for (Bounds view : views) {
+            for (int pointSize : new int[]{1, 4}) {
+                PlotArea pa = plotArea(view.copy());
+                RenderV2 renderer = new RenderV2();
+                BufferedImage decimated = image(pa);
+                BufferedImage full = image(pa);
+                for (Series s : new Series[]{dm.lows, dm.highs}) {
+                    renderer.drawPoints(decimated.createGraphics(), pa, s, Color.WHITE, pointSize);
+                    drawAllPoints(full.createGraphics(), pa, s, pointSize);
+                    renderer.drawLines(decimated.createGraphics(), pa, s, Color.WHITE, Config.NORMAL_STROKE);
+                    drawAllLines(full.createGraphics(), pa, s);
+                }
+                Assert.assertArrayEquals(pixels(full), pixels(decimated));
+            }
+        }
+    }
+
+    @Test
+    public void testZoomedInKeepsEveryPoint() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        Bounds max = dm.calculateBounds(Integer.MIN_VALUE);
+        // the 1h tier of the last week, fewer points than pixel columns
+        Bounds view = new Bounds(dm.lows.times[dm.lows.hourEnd - 1] - 7 * Constants.DAY_SECONDS, dm.lows.times[dm.lows.hourEnd - 1], max.yMin, max.yMax);
+        PlotArea pa = plotArea(view);
+
+        int visible = dm.lows.firstIndexAfter(view.xMax) - dm.lows.firstIndexAfter(view.xMin - 1);
+        SeriesDecimator.Decimated points = new SeriesDecimator().points(dm.lows, pa, 1);
+        Assert.assertEquals(visible, points.size);
+        Assert.assertEquals(pa.timeToX(view.xMax), points.xs[points.size - 1]);
+    }
+
+    @Test
+    public void testCachedUntilTheViewChanges() throws Exception {
+        DataManager dm = new DataManager(Data.fromMsgPack(ByteBuffer.wrap(MsgPackWriter.graphDataPayload(1))));
+        PlotArea pa = plotArea(dm.calculateBounds(Integer.MIN_VALUE));
+        SeriesDecimator decimator = new SeriesDecimator();
+        SeriesDecimator.Decimated d = decimator.lines(dm.highs, pa);
+        int[] ys = java.util.Arrays.copyOf(d.ys, d.size);
+        Assert.assertArrayEquals(ys, java.util.Arrays.copyOf(decimator.lines(dm.highs, pa).ys, d.size));
+
+        pa.bounds.yMax += pa.bounds.yDelta();
+        Assert.assertNotEquals(ys[0], decimator.lines(dm.highs, pa).ys[0]);
+    }
+
+    private static BufferedImage image(PlotArea pa) {
+        return new BufferedImage(pa.w + 1, pa.h + 1, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    // every point of the series, drawn the same way as RenderV2.drawPoints
+    private static void drawAllPoints(Graphics2D g2, PlotArea pa, Series s, int size) {
+        g2.setColor(Color.WHITE);
+        g2.clipRect(0, 0, pa.w, pa.h);
+        int hourWidth = pa.timeDeltaToXDelta(Constants.HOUR_SECONDS);
+        int fiveMinWidth = pa.timeDeltaToXDelta(Constants.FIVE_MIN_SECONDS);
+        for (int i = s.firstIndexAfter(pa.bounds.xMin - 1); i < s.firstIndexAfter(pa.bounds.xMax); i++) {
+            int x = pa.timeToX(s.times[i]);
+            int y = pa.priceToY(s.prices[i]);
+            if (s.type(i) == Datapoint.Type.HOUR_AVERAGE) {
+                g2.fillRect(x, y, hourWidth + size, size);
+            } else if (s.type(i) == Datapoint.Type.FIVE_MIN_AVERAGE) {
+                g2.fillRect(x, y, fiveMinWidth + size, size);
+            } else {
+                g2.fillOval(x - size / 2, y - size / 2, size, size);
+            }
+        }
+    }
+
+    // a line through every point of the series, including those either side of the view
+    private static void drawAllLines(Graphics2D g2, PlotArea pa, Series s) {
+        g2.setColor(Color.WHITE);
+        g2.setStroke(Config.NORMAL_STROKE);
+        g2.clipRect(0, 0, pa.w, pa.h);
+        int start = Math.max(0, s.firstIndexAfter(pa.bounds.xMin - 1) - 1);
+        int end = Math.min(s.size, s.firstIndexAfter(pa.bounds.xMax) + 1);
+        Path2D.Float path = new Path2D.Float();
+        path.moveTo(pa.timeToX(s.times[start]), pa.priceToY(s.prices[start]));
+        for (int i = start + 1; i < end; i++) {
+            path.lineTo(pa.timeToX(s.times[i]), pa.priceToY(s.prices[i]));
+        }
+        g2.draw(path);
+    }
+
+    private static PlotArea plotArea(Bounds bounds) {
+        PlotArea pa = new PlotArea();
+        pa.w = 500;
+        pa.h = 300;
+        pa.bounds = bounds;
+        return pa;
+    }
+}
@@ -0,0 +1,92 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.ui.graph.model.Bounds;
+import com.flippingcopilot.ui.graph.model.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class ZoomHandlerTest {
+
+    private static final int DAY = Constants.DAY_SECONDS;
+
+    @Test
+    public void testWheelZoomKeepsPointUnderCursor() {
+        ZoomHandler zoomHandler = zoomHandler();
+        PlotArea pa = plotArea(new Bounds(10 * DAY, 20 * DAY, 1000, 2000));
+        Point cursor = new Point(150, 200);
+        int time = pa.bounds.xMin + pa.bounds.xDelta() * cursor.x / pa.w;
+        int price = pa.bounds.yMax - pa.bounds.yDelta() * cursor.y / pa.h;
+
+        zoomHandler.applyWheelZoom(pa, cursor, -2);
+        Assert.assertTrue(pa.bounds.xDelta() < 10 * DAY);
+        Assert.assertEquals(time, pa.bounds.xMin + (long) pa.bounds.xDelta() * cursor.x / pa.w, 60);
+        Assert.assertEquals(price, pa.bounds.yMax - (long) pa.bounds.yDelta() * cursor.y / pa.h, 1);
+
+        // zooming out is limited to the max view
+        zoomHandler.applyWheelZoom(pa, cursor, 50);
+        Assert.assertEquals(zoomHandler.maxViewBounds, pa.bounds);
+    }
+
+    @Test
+    public void testPanStaysWithinMaxView() {
+        ZoomHandler zoomHandler = zoomHandler();
+        PlotArea pa = plotArea(new Bounds(10 * DAY, 20 * DAY, 1000, 2000));
+
+        zoomHandler.startPan(pa, new Point(100, 100));
+        zoomHandler.applyPan(pa, new Point(150, 130));
+        Assert.assertEquals(new Bounds(9 * DAY, 19 * DAY, 1100, 2100), pa.bounds);
+
+        zoomHandler.applyPan(pa, new Point(10000, 100));
+        Assert.assertEquals(0, pa.bounds.xMin);
+        Assert.assertEquals(10 * DAY, pa.bounds.xDelta());
+        zoomHandler.endPan();
+        Assert.assertFalse(zoomHandler.isPanning());
+    }
+
+    @Test
+    public void testAnimationEndsOnTarget() {
+        AtomicLong nanos = new AtomicLong();
+        ZoomHandler zoomHandler = zoomHandler(nanos::get);
+        PlotArea pa = plotArea(zoomHandler.maxViewBounds.copy());
+
+        zoomHandler.applyWeekView(pa);
+        Assert.assertTrue(zoomHandler.isAnimating());
+        // clicking again mid animation continues on from the target
+        zoomHandler.applyZoomIn(pa);
+        Bounds target = zoomHandler.targetBounds(pa).copy();
+        Assert.assertEquals(zoomHandler.weekViewBounds.xMax, target.xMax);
+        Assert.assertTrue(target.xMin > zoomHandler.weekViewBounds.xMin);
+
+        nanos.addAndGet(ZoomHandler.ANIMATION_NANOS / 2);
+        zoomHandler.stepAnimation(pa);
+        Assert.assertTrue(zoomHandler.isAnimating());
+        Assert.assertTrue(pa.bounds.xMin > 0 && pa.bounds.xMin < target.xMin);
+        nanos.addAndGet(ZoomHandler.ANIMATION_NANOS / 2);
+        zoomHandler.stepAnimation(pa);
+        Assert.assertFalse(zoomHandler.isAnimating());
+        Assert.assertEquals(target, pa.bounds);
+    }
+
+    private static ZoomHandler zoomHandler() {
+        return zoomHandler(System::nanoTime);
+    }
+
+    private static ZoomHandler zoomHandler(LongSupplier nanoClock) {
+        ZoomHandler zoomHandler = new ZoomHandler(nanoClock);
+        zoomHandler.maxViewBounds = new Bounds(0, 100 * DAY, 0, 10000);
+        zoomHandler.weekViewBounds = new Bounds(93 * DAY, 100 * DAY, 2000, 5000);
+        return zoomHandler;
+    }
+
+    private static PlotArea plotArea(Bounds bounds) {
+        PlotArea pa = new PlotArea();
+        pa.w = 500;
+        pa.h = 300;
+        pa.bounds = bounds;
+        return pa;
+    }
+}
@@ -0,0 +1,67 @@
+package com.flippingcopilot.ui.graph.model;
+
+import com.flippingcopilot.ui.graph.DataManager;
+import com.flippingcopilot.util.MsgPackStreamReader;
+import com.flippingcopilot.util.MsgPackWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DataTest {
+
+    @Test
+    public void testStreamedGraphDataIsStaged() throws Exception {
+        byte[] bytes = MsgPackWriter.graphDataPayload(1);
+        Data expected = Data.fromMsgPack(ByteBuffer.wrap(bytes));
+
+        // a stream that trickles in a few bytes at a time like a slow connection
+        InputStream slow = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 100));
+            }
+        };
+        Data seed = new Data();
+        seed.name = "Abyssal whip";
+        List<Data> partials = new ArrayList<>();
+        MsgPackStreamReader reader = new MsgPackStreamReader(slow);
+        Data d = Data.fromMsgPack(reader, seed, partials::add);
+        Assert.assertEquals(bytes.length, reader.getBytesRead());
+
+        // 1h, 5m, latest and prediction series each complete before the final stats entries
+        Assert.assertEquals(4, partials.size());
+        Data first = partials.get(0);
+        Assert.assertArrayEquals(expected.high1hPrices, first.high1hPrices);
+        Assert.assertNull(first.low5mTimes);
+        Assert.assertNull(first.predictionTimes);
+        Assert.assertEquals("Abyssal whip", first.name);
+        Assert.assertNotNull(partials.get(1).high5mPrices);
+        Assert.assertNull(partials.get(1).lowLatestTimes);
+        Assert.assertNotNull(partials.get(3).predictionHighIQRLower);
+
+        // partial data must be drawable
+        for (Data partial : partials) {
+            Assert.assertFalse(new DataManager(partial).lows.isEmpty());
+        }
+
+        Assert.assertArrayEquals(expected.lowLatestPrices, d.lowLatestPrices);
+        Assert.assertArrayEquals(expected.predictionLowMeans, d.predictionLowMeans);
+        Assert.assertEquals(expected.itemId, d.itemId);
+        Assert.assertEquals(expected.sellPrice, d.sellPrice);
+        Assert.assertEquals(expected.dailyVolume, d.dailyVolume, 0);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedStream() throws Exception {
+        byte[] bytes = MsgPackWriter.graphDataPayload(1);
+        InputStream truncated = new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2));
+        Data.fromMsgPack(new MsgPackStreamReader(truncated), new Data(), (d) -> {});
+    }
+}
@@ -0,0 +1,102 @@
+package com.flippingcopilot.ui.graph.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SeriesTest {
+
+    private static final int H = Constants.HOUR_SECONDS;
+    private static final int M = Constants.FIVE_MIN_SECONDS;
+
+    @Test
+    public void testTiersAreSplicedWithoutOverlap() {
+        int[] hourTimes = {0, H, 2 * H, 3 * H};
+        int[] fiveMinTimes = {2 * H + 6 * M, 2 * H + 11 * M, 3 * H, 3 * H + M, 3 * H + 2 * M};
+        // the first latest point is 30s into a 5m bucket
+        int[] latestTimes = {3 * H + M + 30, 3 * H + 2 * M + 10, 3 * H + 2 * M + 20};
+
+        Series s = Series.merge(true, hourTimes, prices(hourTimes), fiveMinTimes, prices(fiveMinTimes), latestTimes, prices(latestTimes));
+
+        // 5m points start at the first whole hour after the first 5m point and the latest points at the first
+        // whole 5m bucket after the first latest point
+        int[] expectedTimes = {0, H, 2 * H, 3 * H, 3 * H + M, 3 * H + 2 * M + 10, 3 * H + 2 * M + 20};
+        Assert.assertArrayEquals(expectedTimes, Arrays.copyOf(s.times, s.size));
+        Assert.assertArrayEquals(prices(expectedTimes), Arrays.copyOf(s.prices, s.size));
+        Assert.assertEquals(3, s.hourEnd);
+        Assert.assertEquals(5, s.fiveMinEnd);
+        Assert.assertEquals(Datapoint.Type.HOUR_AVERAGE, s.type(2));
+        Assert.assertEquals(Datapoint.Type.FIVE_MIN_AVERAGE, s.type(3));
+        Assert.assertEquals(Datapoint.Type.INSTA_SELL_BUY, s.type(5));
+        Assert.assertEquals(5, s.firstIndexAfter(3 * H + M));
+        Assert.assertEquals(s.size, s.firstIndexAfter(4 * H));
+    }
+
+    @Test
+    public void testMissingTiers() {
+        int[] hourTimes = {0, H, 2 * H};
+        Series s = Series.merge(false, hourTimes, prices(hourTimes), null, null, null, null);
+        Assert.assertEquals(3, s.size);
+        Assert.assertEquals(3, s.hourEnd);
+        Assert.assertFalse(s.isLow);
+
+        Series empty = Series.merge(false, null, null, null, null, null, null);
+        Assert.assertTrue(empty.isEmpty());
+
+        Series prediction = Series.prediction(true, null, null, null, null);
+        Assert.assertTrue(prediction.isEmpty());
+        Assert.assertTrue(prediction.isPrediction());
+    }
+
+    @Test
+    public void testUpdateMatchesFullMerge() {
+        int[] hourTimes = {0, H, 2 * H, 3 * H};
+        int[] fiveMinTimes = {2 * H + 6 * M, 3 * H, 3 * H + M, 3 * H + 2 * M};
+        int[] latestTimes = {3 * H + M + 30, 3 * H + 2 * M + 10};
+        Series s = Series.merge(true, hourTimes, prices(hourTimes), fiveMinTimes, prices(fiveMinTimes), latestTimes, prices(latestTimes));
+
+        // new latest points in the same 5m bucket reuse the 1h and 5m points
+        int[] newLatestTimes = {3 * H + M + 40, 3 * H + 2 * M + 10, 3 * H + 2 * M + 50};
+        assertSameSeries(Series.merge(true, hourTimes, prices(hourTimes), fiveMinTimes, prices(fiveMinTimes), newLatestTimes, prices(newLatestTimes)),
+                s.update(hourTimes.clone(), prices(hourTimes), fiveMinTimes.clone(), prices(fiveMinTimes), newLatestTimes, prices(newLatestTimes)));
+
+        // the latest points moving into the next 5m bucket, or a new 5m point, need a full merge
+        int[] laterLatestTimes = {3 * H + 2 * M + 10, 3 * H + 3 * M};
+        assertSameSeries(Series.merge(true, hourTimes, prices(hourTimes), fiveMinTimes, prices(fiveMinTimes), laterLatestTimes, prices(laterLatestTimes)),
+                s.update(hourTimes, prices(hourTimes), fiveMinTimes, prices(fiveMinTimes), laterLatestTimes, prices(laterLatestTimes)));
+        int[] newFiveMinTimes = Arrays.copyOf(fiveMinTimes, fiveMinTimes.length + 1);
+        newFiveMinTimes[fiveMinTimes.length] = 3 * H + 3 * M;
+        assertSameSeries(Series.merge(true, hourTimes, prices(hourTimes), newFiveMinTimes, prices(newFiveMinTimes), newLatestTimes, prices(newLatestTimes)),
+                s.update(hourTimes, prices(hourTimes), newFiveMinTimes, prices(newFiveMinTimes), newLatestTimes, prices(newLatestTimes)));
+    }
+
+    @Test
+    public void testFirstDifference() {
+        int[] times = {0, H, 2 * H};
+        Series s = Series.merge(false, times, prices(times), null, null, null, null);
+        Assert.assertEquals(-1, s.firstDifference(Series.merge(false, times.clone(), prices(times), null, null, null, null)));
+
+        int[] changedPrices = prices(times);
+        changedPrices[2] += 1;
+        Assert.assertEquals(2, s.firstDifference(Series.merge(false, times, changedPrices, null, null, null, null)));
+
+        int[] moreTimes = {0, H, 2 * H, 3 * H};
+        Assert.assertEquals(3, s.firstDifference(Series.merge(false, moreTimes, prices(moreTimes), null, null, null, null)));
+    }
+
+    private static void assertSameSeries(Series expected, Series actual) {
+        Assert.assertArrayEquals(Arrays.copyOf(expected.times, expected.size), Arrays.copyOf(actual.times, actual.size));
+        Assert.assertArrayEquals(Arrays.copyOf(expected.prices, expected.size), Arrays.copyOf(actual.prices, actual.size));
+        Assert.assertEquals(expected.hourEnd, actual.hourEnd);
+        Assert.assertEquals(expected.fiveMinEnd, actual.fiveMinEnd);
+    }
+
+    private static int[] prices(int[] times) {
+        int[] prices = new int[times.length];
+        for (int i = 0; i < times.length; i++) {
+            prices[i] = 1000 + times[i] / 10;
+        }
+        return prices;
+    }
+}
@@ -0,0 +1,113 @@
+package com.flippingcopilot.util;
+
+import com.flippingcopilot.model.ItemPrice;
+import com.flippingcopilot.model.Suggestion;
+import com.flippingcopilot.ui.graph.model.Data;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+public class MsgPackUtilTest {
+
+    @Test
+    public void testTypedReads() {
+        byte[] bytes = new MsgPackWriter()
+                .integer(5).integer(-7).integer(300).integer(-40_000).integer(3_000_000_000L)
+                .float64(1.5).float32(2.5f).integer(12)
+                .str("héllo").nil()
+                .toByteArray();
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        Assert.assertEquals(5, MsgPackUtil.readInt(b));
+        Assert.assertEquals(-7, MsgPackUtil.readInt(b));
+        Assert.assertEquals(300, MsgPackUtil.readInt(b));
+        Assert.assertEquals(-40_000, MsgPackUtil.readLong(b));
+        Assert.assertEquals(3_000_000_000L, MsgPackUtil.readLong(b));
+        Assert.assertEquals(1.5, MsgPackUtil.readDouble(b), 0);
+        Assert.assertEquals(2.5, MsgPackUtil.readDouble(b), 0);
+        Assert.assertEquals(12, MsgPackUtil.readDouble(b), 0);
+        Assert.assertEquals("héllo", MsgPackUtil.readString(b));
+        Assert.assertNull(MsgPackUtil.readString(b));
+        Assert.assertFalse(b.hasRemaining());
+    }
+
+    @Test
+    public void testInt32Arrays() {
+        int[] first = {0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 123456789};
+        int[] second = {42};
+        byte[] bytes = new MsgPackWriter().integer(7).int32Array(first).nil().int32Array(second).int32Array(new int[0]).toByteArray();
+
+        // decode from a direct buffer that doesn't start at the beginning of its backing memory
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+        direct.position(3);
+        direct.put(bytes);
+        direct.position(3);
+        ByteBuffer b = direct.slice();
+        Assert.assertEquals(7, MsgPackUtil.readInt(b));
+        Assert.assertArrayEquals(first, MsgPackUtil.decodeInt32Array(b));
+        Assert.assertNull(MsgPackUtil.decodeInt32Array(b));
+        Assert.assertArrayEquals(second, MsgPackUtil.decodeInt32Array(b));
+        Assert.assertEquals(0, MsgPackUtil.decodeInt32Array(b).length);
+        Assert.assertFalse(b.hasRemaining());
+
+        b = ByteBuffer.wrap(bytes);
+        MsgPackUtil.readInt(b);
+        IntBuffer view = MsgPackUtil.decodeInt32ArrayView(b);
+        Assert.assertEquals(first.length, view.remaining());
+        for (int i = 0; i < first.length; i++) {
+            Assert.assertEquals(first[i], view.get(i));
+        }
+        Assert.assertNull(MsgPackUtil.decodeInt32ArrayView(b));
+        Assert.assertEquals(42, MsgPackUtil.decodeInt32ArrayView(b).get(0));
+        Assert.assertEquals(0, MsgPackUtil.decodeInt32ArrayView(b).remaining());
+        Assert.assertFalse(b.hasRemaining());
+    }
+
+    @Test
+    public void testReadKey() {
+        byte[][] symbols = MsgPackUtil.symbols("id", "i", "pliu", "plil");
+        ByteBuffer b = ByteBuffer.wrap(new MsgPackWriter().str("i").str("plil").str("id").str("pl").str("x").toByteArray());
+        Assert.assertEquals(1, MsgPackUtil.readKey(b, symbols));
+        Assert.assertEquals(3, MsgPackUtil.readKey(b, symbols));
+        Assert.assertEquals(0, MsgPackUtil.readKey(b, symbols));
+        Assert.assertEquals(-1, MsgPackUtil.readKey(b, symbols));
+        Assert.assertEquals(-1, MsgPackUtil.readKey(b, symbols));
+        Assert.assertFalse(b.hasRemaining());
+    }
+
+    @Test
+    public void testUnknownKeysAreSkipped() {
+        MsgPackWriter w = new MsgPackWriter().map(7)
+                .str("sp").integer(1_000)
+                .str("new_map").map(2).str("a").array(3).integer(1).bool(true).nil().str("b").float32(1f)
+                .str("new_array").int32Array(new int[]{1, 2, 3})
+                .str("bp").integer(900)
+                .str("new_long").integer(Long.MAX_VALUE)
+                .str("m").str("hello")
+                .str("gd").nil();
+        ItemPrice ip = ItemPrice.fromMsgPack(ByteBuffer.wrap(w.toByteArray()));
+        Assert.assertEquals(1_000, ip.getSellPrice());
+        Assert.assertEquals(900, ip.getBuyPrice());
+        Assert.assertEquals("hello", ip.getMessage());
+        Assert.assertNull(ip.getGraphData());
+    }
+
+    @Test
+    public void testSuggestionPayload() {
+        byte[] bytes = MsgPackWriter.suggestionPayload(1);
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        Suggestion s = Suggestion.fromMsgPack(b);
+        Assert.assertFalse(b.hasRemaining());
+        Assert.assertEquals("buy", s.getType());
+        Assert.assertEquals(3, s.getBoxId());
+        Assert.assertEquals("Abyssal whip", s.getName());
+        Data d = s.getGraphData();
+        Assert.assertEquals(4151, d.itemId);
+        Assert.assertEquals(180 * 24, d.low1hTimes.length);
+        Assert.assertEquals(30 * 24 * 12, d.high5mPrices.length);
+        Assert.assertEquals(4 * 24 * 60, d.highLatestPrices.length);
+        Assert.assertEquals(24 * 12, d.predictionHighIQRLower.length);
+        Assert.assertTrue(d.dailyVolume > 0);
+    }
+}
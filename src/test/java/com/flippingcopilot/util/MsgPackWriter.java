@@ -0,0 +1,194 @@
+package com.flippingcopilot.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Encodes msgpack in the same shape the copilot server sends it, used to build payloads for the decoder tests and
+ * benchmarks.
+ */
+public class MsgPackWriter {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    public MsgPackWriter map(int size) {
+        if (size < 16) {
+            out.write(0x80 | size);
+        } else {
+            out.write(0xDE);
+            writeShort(size);
+        }
+        return this;
+    }
+
+    public MsgPackWriter array(int size) {
+        if (size < 16) {
+            out.write(0x90 | size);
+        } else {
+            out.write(0xDC);
+            writeShort(size);
+        }
+        return this;
+    }
+
+    public MsgPackWriter str(String s) {
+        if (s == null) {
+            return nil();
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            out.write(0xA0 | bytes.length);
+        } else {
+            out.write(0xD9);
+            out.write(bytes.length);
+        }
+        out.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    public MsgPackWriter integer(long v) {
+        if (v >= 0 && v <= 0x7F) {
+            out.write((int) v);
+        } else if (v < 0 && v >= -32) {
+            out.write((int) (v & 0xFF));
+        } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+            out.write(0xD1);
+            writeShort((int) v);
+        } else if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+            out.write(0xD2);
+            writeInt((int) v);
+        } else {
+            out.write(0xD3);
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+        return this;
+    }
+
+    public MsgPackWriter float64(double v) {
+        out.write(0xCB);
+        long bits = Double.doubleToLongBits(v);
+        writeInt((int) (bits >>> 32));
+        writeInt((int) bits);
+        return this;
+    }
+
+    public MsgPackWriter float32(float v) {
+        out.write(0xCA);
+        writeInt(Float.floatToIntBits(v));
+        return this;
+    }
+
+    public MsgPackWriter bool(boolean v) {
+        out.write(v ? 0xC3 : 0xC2);
+        return this;
+    }
+
+    public MsgPackWriter nil() {
+        out.write(0xC0);
+        return this;
+    }
+
+    // int arrays are sent as an ext 32 of little endian int32s
+    public MsgPackWriter int32Array(int[] values) {
+        if (values == null) {
+            return nil();
+        }
+        out.write(0xC9);
+        writeInt(values.length * 4);
+        out.write(41);
+        ByteBuffer b = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        b.asIntBuffer().put(values);
+        out.write(b.array(), 0, b.capacity());
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    private void writeShort(int v) {
+        out.write((v >>> 8) & 0xFF);
+        out.write(v & 0xFF);
+    }
+
+    private void writeInt(int v) {
+        out.write((v >>> 24) & 0xFF);
+        out.write((v >>> 16) & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+        out.write(v & 0xFF);
+    }
+
+    /**
+     * A suggestion with graph data sized like a real one: 6 months of 1h data, 1 month of 5m data, a few days of
+     * latest data and a day of predictions.
+     */
+    public static byte[] suggestionPayload(long seed) {
+        Random random = new Random(seed);
+        MsgPackWriter w = new MsgPackWriter();
+        w.map(9)
+                .str("t").str("buy")
+                .str("b").integer(3)
+                .str("i").integer(random.nextInt(30000))
+                .str("p").integer(random.nextInt(100_000_000))
+                .str("q").integer(random.nextInt(25_000))
+                .str("n").str("Abyssal whip")
+                .str("id").integer(random.nextInt(1_000_000))
+                .str("m").str("")
+                .str("gd");
+        writeGraphData(w, random);
+        return w.toByteArray();
+    }
+
+    // just the graph data from suggestionPayload
+    public static byte[] graphDataPayload(long seed) {
+        MsgPackWriter w = new MsgPackWriter();
+        writeGraphData(w, new Random(seed));
+        return w.toByteArray();
+    }
+
+    private static void writeGraphData(MsgPackWriter w, Random random) {
+        int now = 1_700_000_000;
+        w.map(24);
+        String[][] keys = {{"l1ht", "l1hp", "h1ht", "h1hp"}, {"l5mt", "l5mp", "h5mt", "h5mp"}, {"llt", "llp", "hlt", "hlp"}};
+        int[] lengths = {180 * 24, 30 * 24 * 12, 4 * 24 * 60};
+        int[] steps = {3600, 300, 60};
+        for (int s = 0; s < keys.length; s++) {
+            w.str(keys[s][0]).int32Array(times(random, now, lengths[s], steps[s]));
+            w.str(keys[s][1]).int32Array(prices(random, lengths[s]));
+            w.str(keys[s][2]).int32Array(times(random, now, lengths[s], steps[s]));
+            w.str(keys[s][3]).int32Array(prices(random, lengths[s]));
+        }
+        int predictions = 24 * 12;
+        w.str("pt").int32Array(times(random, now + predictions * 300, predictions, 300));
+        for (String k : new String[]{"plm", "pliu", "plil", "phm", "phiu", "phil"}) {
+            w.str(k).int32Array(prices(random, predictions));
+        }
+        w.str("id").integer(4151)
+                .str("n").str("Abyssal whip")
+                .str("dv").float64(random.nextDouble() * 100_000)
+                .str("sp").integer(random.nextInt(3_000_000))
+                .str("bp").integer(random.nextInt(3_000_000));
+    }
+
+    private static int[] times(Random random, int end, int n, int step) {
+        int[] times = new int[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = end - (n - i) * step + random.nextInt(step / 2);
+        }
+        return times;
+    }
+
+    private static int[] prices(Random random, int n) {
+        int[] prices = new int[n];
+        int price = 1_500_000;
+        for (int i = 0; i < n; i++) {
+            price = Math.max(1, price + random.nextInt(20_001) - 10_000);
+            prices[i] = price;
+        }
+        return prices;
+    }
+}